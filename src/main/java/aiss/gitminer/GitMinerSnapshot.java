@@ -0,0 +1,35 @@
+package aiss.gitminer;
+
+import aiss.gitminer.dto.RestoreReport;
+import aiss.gitminer.service.SnapshotService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Offline backup and restore of the persistent store, with the server stopped:
+//   java -cp gitminer.jar -Dloader.main=aiss.gitminer.GitMinerSnapshot org.springframework.boot.loader.PropertiesLauncher \
+//       snapshot|restore <file> [--gitminer.data-dir=...]
+public class GitMinerSnapshot {
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2 || !Arrays.asList("snapshot", "restore").contains(args[0])) {
+			System.err.println("Usage: GitMinerSnapshot snapshot|restore <file> [--property=value ...]");
+			System.exit(2);
+		}
+		Path file = Path.of(args[1]);
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(GitMinerApplication.class)
+				.web(WebApplicationType.NONE)
+				.profiles("persistent")
+				.run(Arrays.copyOfRange(args, 2, args.length))) {
+			SnapshotService snapshotService = context.getBean(SnapshotService.class);
+			if (args[0].equals("snapshot")) {
+				System.out.println("Wrote " + snapshotService.snapshot(file) + " rows to " + file);
+			} else {
+				RestoreReport report = snapshotService.restore(file);
+				System.out.println("Restored " + report.getTotalRows() + " rows " + report.getRows() + " in " + report.getElapsedMillis() + " ms");
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package aiss.gitminer.controller;
+
+import aiss.gitminer.dto.RestoreReport;
+import aiss.gitminer.exception.InvalidSnapshotException;
+import aiss.gitminer.service.SnapshotService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@Tag(name = "Admin" , description = "Backup and restore")
+@RestController
+@RequestMapping("/gitminer/admin")
+
+public class AdminController {
+    @Autowired
+    SnapshotService snapshotService;
+
+    // GET http://localhost:8080/gitminer/admin/snapshot
+    @Operation(summary = "Take snapshot", description = "Download a consistent point-in-time copy of every project, " +
+            "commit, issue, comment, user and label as a compressed, checksummed binary file, for Restore snapshot",
+            tags = { "get" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Snapshot" ,
+                    content = {@Content(schema = @Schema(type = "string", format = "binary"),
+                            mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)})
+    })
+    @GetMapping("/snapshot")
+    public void takeSnapshot(HttpServletResponse response) throws IOException {
+        String name = "gitminer-" + Instant.now().truncatedTo(ChronoUnit.SECONDS).toString().replace(":", "") + ".gmsnap";
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "\"");
+        snapshotService.snapshot(response.getOutputStream());
+    }
+
+    // POST http://localhost:8080/gitminer/admin/restore
+    @Operation(summary = "Restore snapshot", description = "Replace the whole dataset with the contents of a file " +
+            "downloaded from Take snapshot. The file is verified before anything is deleted",
+            tags = { })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Rows restored by table" ,
+                    content = {@Content(schema = @Schema(implementation = RestoreReport.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid or damaged snapshot" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @PostMapping(value = "/restore", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public RestoreReport restoreSnapshot(HttpServletRequest request) throws IOException, InvalidSnapshotException {
+        Path file = Files.createTempFile("gitminer-restore-", ".gmsnap");
+        try {
+            Files.copy(request.getInputStream(), file, StandardCopyOption.REPLACE_EXISTING);
+            return snapshotService.restore(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
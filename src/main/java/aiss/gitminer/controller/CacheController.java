@@ -0,0 +1,39 @@
+package aiss.gitminer.controller;
+
+import aiss.gitminer.dto.CacheStatistics;
+import aiss.gitminer.service.EntityCacheService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@Tag(name = "Cache" , description = "Entity cache")
+@RestController
+@RequestMapping("/gitminer/cache")
+
+public class CacheController {
+    @Autowired
+    EntityCacheService entityCacheService;
+
+    // GET http://localhost:8080/gitminer/cache/stats
+    @Operation(summary = "Get cache statistics", description = "Get the size and the hit, miss and eviction " +
+            "counters of the project, issue, commit and comment caches",
+            tags = { "get" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Cache statistics by cache name" ,
+                    content = {@Content(schema = @Schema(implementation = CacheStatistics.class),
+                            mediaType = "application/json")})
+    })
+    @GetMapping("/stats")
+    public Map<String, CacheStatistics> getCacheStatistics() {
+        return entityCacheService.statistics();
+    }
+}
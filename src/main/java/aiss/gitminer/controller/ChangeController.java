@@ -0,0 +1,70 @@
+package aiss.gitminer.controller;
+
+import aiss.gitminer.model.Change;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.service.ChangeLogService;
+import aiss.gitminer.service.ChangeStreamService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@Tag(name = "Change" , description = "Change log of the writes to projects, commits, issues and comments")
+@RestController
+@RequestMapping("/gitminer/changes")
+
+public class ChangeController {
+    @Autowired
+    ChangeLogService changeLogService;
+
+    @Autowired
+    ChangeStreamService changeStreamService;
+
+    // GET http://localhost:8080/gitminer/changes?after=0&limit=50
+    @Operation(summary = "Get changes", description = "Get the committed changes after a sequence number, oldest first: " +
+            "the entity (project, commit, issue or comment), its ID, the operation (upsert or delete) and its owner. " +
+            "A reset record means a snapshot was restored and everything read before is stale. " +
+            "The sequence number to resume from is returned in the Link and X-Next-Cursor headers",
+            tags = { "get" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Changes" ,
+                    content = {@Content(schema = @Schema(implementation = Change.class),
+                            mediaType = "application/json")})
+    })
+    @GetMapping
+    public ResponseEntity<List<Change>> getChanges(@Parameter(name = "after", description = "Sequence number of the last change already read", example = "0") @RequestParam(defaultValue = "0") long after,
+                                                   @Parameter(name = "limit", description = "Maximum number of changes in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<Change> changes = changeLogService.findAfter(after, KeysetPage.request(pageSize));
+        return KeysetPage.of(changes, pageSize, change -> String.valueOf(change.getSeq())).toResponseEntity();
+    }
+
+    // GET http://localhost:8080/gitminer/changes/stream?after=0
+    @Operation(summary = "Stream changes", description = "Follow the change log as Server-Sent Events named change: " +
+            "first the changes after the sequence number, then every change as it is committed. " +
+            "Each event has its sequence number as id, so a client reconnecting with Last-Event-ID resumes after it",
+            tags = { "get" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Stream of changes" ,
+                    content = {@Content(schema = @Schema(implementation = Change.class),
+                            mediaType = "text/event-stream")})
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@Parameter(name = "after", description = "Sequence number of the last change already read", example = "0") @RequestParam(required = false) Long after,
+                                    @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return changeStreamService.subscribe(after != null ? after : lastEventId != null ? lastEventId : 0);
+    }
+}
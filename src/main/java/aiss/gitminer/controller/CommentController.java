@@ -1,11 +1,29 @@
 package aiss.gitminer.controller;
 
+import aiss.gitminer.dto.BatchResult;
+import aiss.gitminer.etag.ETags;
+import aiss.gitminer.exception.BatchTooLargeException;
 import aiss.gitminer.exception.CommentNotFoundException;
+import aiss.gitminer.exception.InvalidCursorException;
+import aiss.gitminer.exception.InvalidFieldsException;
+import aiss.gitminer.fields.EntityFields;
+import aiss.gitminer.fields.FieldSelection;
 import aiss.gitminer.model.Comment;
+import aiss.gitminer.pagination.Cursor;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.pagination.TimeRange;
 import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.service.BatchLookupService;
+import aiss.gitminer.service.EntityCacheService;
+import aiss.gitminer.service.SparseFieldService;
+import aiss.gitminer.service.Stamped;
+import aiss.gitminer.service.VersionStampService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,7 +33,9 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -26,21 +46,60 @@ public class CommentController {
     @Autowired
     CommentRepository commentRepository;
 
-    // GET http://localhost:8080/gitminer/comments
-    @Operation(summary = "Get all comments", description = "Get all the comments",
+    @Autowired
+    EntityCacheService entityCacheService;
+
+    @Autowired
+    VersionStampService versionStampService;
+
+    @Autowired
+    BatchLookupService batchLookupService;
+
+    @Autowired
+    SparseFieldService sparseFieldService;
+
+    // GET http://localhost:8080/gitminer/comments?limit=50&after={cursor}
+    // GET http://localhost:8080/gitminer/comments?createdAfter=2023-01-01T00:00:00Z&createdBefore=2023-02-01T00:00:00Z
+    @Operation(summary = "Get all comments", description = "Get a page of comments sorted by ID or, when filtered by " +
+            "creation time, sorted by that time. The cursor of the next page is returned in the Link and X-Next-Cursor headers",
             tags = { "get" })
     @ApiResponses({
             @ApiResponse(responseCode = "200" ,
                     description = "List of comments" ,
                     content = {@Content(schema = @Schema(implementation = Comment.class),
                             mediaType = "application/json")}),
-            @ApiResponse(responseCode = "404" ,
-                    description = "Comments not found" ,
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid cursor or time range" ,
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping
-    public @ResponseBody Iterable<Comment> getComments() {
-        return commentRepository.findAll();
+    public ResponseEntity<?> getComments(@Parameter(name = "limit", description = "Maximum number of comments in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit,
+                                         @Parameter(name = "after", description = "Cursor returned by the previous page") @RequestParam(required = false) String after,
+                                         @Parameter(name = "createdAfter", description = "Only comments created at or after this instant", example = "2023-01-01T00:00:00Z") @RequestParam(required = false) Instant createdAfter,
+                                         @Parameter(name = "createdBefore", description = "Only comments created before this instant", example = "2023-02-01T00:00:00Z") @RequestParam(required = false) Instant createdBefore,
+                                         @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,body,author.username") @RequestParam(required = false) List<String> fields,
+                                         @Parameter(name = "include", description = "Associations to embed", example = "author") @RequestParam(required = false) List<String> include,
+                                         WebRequest webRequest) throws InvalidCursorException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.COMMENT, fields, include);
+        int pageSize = KeysetPage.clampLimit(limit);
+        if (createdAfter != null || createdBefore != null) {
+            TimeRange range = TimeRange.of(createdAfter, createdBefore, after);
+            if (selection.isPresent()) {
+                return sparseFieldService.pageInRange("createdAt", range, null, null, pageSize, selection.get()).toResponseEntity();
+            }
+            List<Comment> comments = commentRepository.findCreatedInRange(range.getAfterTime(), range.getAfterId(), range.getTo(), KeysetPage.request(pageSize));
+            return KeysetPage.byTime(comments, pageSize, Comment::getCreatedAt, Comment::getId).toResponseEntity();
+        }
+        if (selection.isPresent()) {
+            return sparseFieldService.page(after == null ? null : Cursor.decodeId(after), pageSize, selection.get()).toResponseEntity();
+        }
+        List<Comment> comments = after == null
+                ? commentRepository.findAllByOrderByIdAsc(KeysetPage.request(pageSize))
+                : commentRepository.findByIdGreaterThanOrderByIdAsc(Cursor.decodeId(after), KeysetPage.request(pageSize));
+        return KeysetPage.byId(comments, pageSize, Comment::getId).toResponseEntity();
     }
 
     // GET http://localhost:8080/gitminer/comments/1398766669
@@ -56,12 +115,43 @@ public class CommentController {
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping("/{id}")
-    public @ResponseBody Comment getCommentById(@Parameter(name = "id", description = "ID of comment", example = "1398766669") @PathVariable String id) throws CommentNotFoundException {
-        Optional<Comment> comment = commentRepository.findById(id);
+    public ResponseEntity<?> getCommentById(@Parameter(name = "id", description = "ID of comment", example = "1398766669") @PathVariable String id,
+                                            @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,body,author.username") @RequestParam(required = false) List<String> fields,
+                                            @Parameter(name = "include", description = "Associations to embed", example = "author") @RequestParam(required = false) List<String> include,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws CommentNotFoundException, InvalidFieldsException {
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.COMMENT, fields, include);
+        Optional<String> stamp = entityCacheService.commentStamp(id);
+        Optional<ResponseEntity<Comment>> notModified = ETags.notModified(ifNoneMatch, stamp);
+        if (notModified.isPresent()) {
+            return notModified.get();
+        }
+        if (selection.isPresent()) {
+            Map<String, Object> comment = sparseFieldService.find(id, selection.get()).orElseThrow(CommentNotFoundException::new);
+            return ResponseEntity.ok().eTag(ETags.of(stamp.orElseThrow(CommentNotFoundException::new))).body(comment);
+        }
+        Optional<Stamped<Comment>> comment = entityCacheService.findComment(id);
         if (comment.isEmpty()) {
             throw new CommentNotFoundException();
         }
-        return comment.get();
+        return ResponseEntity.ok().eTag(ETags.of(comment.get().getStamp())).body(comment.get().getValue());
+    }
+
+    // POST http://localhost:8080/gitminer/comments/batch
+    @Operation(summary = "Get comments by ID in bulk", description = "Get up to " + BatchLookupService.MAX_IDS + " comments at once, " +
+            "in the order of the given IDs. IDs that are not found get a null item and are listed in not_found",
+            tags = { "post", "id" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Comments in request order" ,
+                    content = {@Content(schema = @Schema(implementation = BatchResult.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Too many IDs" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @PostMapping("/batch")
+    public BatchResult<Comment> getCommentsByIds(@RequestBody List<String> ids) throws BatchTooLargeException {
+        return batchLookupService.findComments(ids);
     }
 
     // GET http://localhost:8080/gitminer/comments?authorId=1891135
@@ -77,7 +167,17 @@ public class CommentController {
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping(params = "authorId")
-    public List<Comment> getCommentByAuthorId(@Parameter(name = "id", description = "ID of author", example = "1891135") @RequestParam String authorId) throws CommentNotFoundException {
+    public List<?> getCommentByAuthorId(@Parameter(name = "id", description = "ID of author", example = "1891135") @RequestParam String authorId,
+                                        @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,body,author.username") @RequestParam(required = false) List<String> fields,
+                                        @Parameter(name = "include", description = "Associations to embed", example = "author") @RequestParam(required = false) List<String> include,
+                                        WebRequest webRequest) throws CommentNotFoundException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.COMMENT, fields, include);
+        if (selection.isPresent()) {
+            return sparseFieldService.findBy("author.id", authorId, selection.get());
+        }
         Optional<List<Comment>> comment = commentRepository.findByAuthor_Id(authorId);
         if (comment.isEmpty()) {
             throw new CommentNotFoundException();
@@ -1,9 +1,26 @@
 package aiss.gitminer.controller;
 
+import aiss.gitminer.dto.BatchResult;
+import aiss.gitminer.dto.CommitResolution;
+import aiss.gitminer.etag.ETags;
+import aiss.gitminer.exception.BatchTooLargeException;
 import aiss.gitminer.exception.CommitNotFoundException;
+import aiss.gitminer.exception.InvalidCursorException;
+import aiss.gitminer.exception.InvalidFieldsException;
+import aiss.gitminer.fields.EntityFields;
+import aiss.gitminer.fields.FieldSelection;
 import aiss.gitminer.model.Comment;
 import aiss.gitminer.model.Commit;
+import aiss.gitminer.pagination.Cursor;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.pagination.TimeRange;
 import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.service.BatchLookupService;
+import aiss.gitminer.service.CommitPrefixIndexService;
+import aiss.gitminer.service.EntityCacheService;
+import aiss.gitminer.service.SparseFieldService;
+import aiss.gitminer.service.Stamped;
+import aiss.gitminer.service.VersionStampService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,10 +30,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Tag(name = "Commit" , description = "Commits")
 @RestController
@@ -26,41 +50,154 @@ public class CommitController {
     @Autowired
     CommitRepository commitRepository;
 
-    // GET http://localhost:8080/gitminer/commits
-    @Operation(summary = "Get all commits", description = "Get a list of all the commits",
+    @Autowired
+    EntityCacheService entityCacheService;
+
+    @Autowired
+    VersionStampService versionStampService;
+
+    @Autowired
+    CommitPrefixIndexService commitPrefixIndexService;
+
+    @Autowired
+    BatchLookupService batchLookupService;
+
+    @Autowired
+    SparseFieldService sparseFieldService;
+
+    // GET http://localhost:8080/gitminer/commits?limit=50&after={cursor}
+    // GET http://localhost:8080/gitminer/commits?since=2023-01-01T00:00:00Z&until=2023-02-01T00:00:00Z
+    @Operation(summary = "Get all commits", description = "Get a page of commits sorted by ID or, when filtered by " +
+            "authored date, sorted by that date. The cursor of the next page is returned in the Link and X-Next-Cursor headers",
             tags = { "get" })
     @ApiResponses({
             @ApiResponse(responseCode = "200" ,
                     description = "Commits" ,
                     content = {@Content(schema = @Schema(implementation = Comment.class),
                             mediaType = "application/json")}),
-            @ApiResponse(responseCode = "404" ,
-                    description = "Comments not found" ,
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid cursor or time range" ,
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping
-    public List<Commit> getCommits() {
-        return commitRepository.findAll();
+    public ResponseEntity<?> getCommits(@Parameter(name = "limit", description = "Maximum number of commits in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit,
+                                        @Parameter(name = "after", description = "Cursor returned by the previous page") @RequestParam(required = false) String after,
+                                        @Parameter(name = "since", description = "Only commits authored at or after this instant", example = "2023-01-01T00:00:00Z") @RequestParam(required = false) Instant since,
+                                        @Parameter(name = "until", description = "Only commits authored before this instant", example = "2023-02-01T00:00:00Z") @RequestParam(required = false) Instant until,
+                                        @Parameter(name = "fields", description = "Properties to return", example = "id,title,authored_date") @RequestParam(required = false) List<String> fields,
+                                        @Parameter(name = "include", description = "Associations to embed; commits have none") @RequestParam(required = false) List<String> include,
+                                        WebRequest webRequest) throws InvalidCursorException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.COMMIT, fields, include);
+        int pageSize = KeysetPage.clampLimit(limit);
+        if (since != null || until != null) {
+            TimeRange range = TimeRange.of(since, until, after);
+            if (selection.isPresent()) {
+                return sparseFieldService.pageInRange("authoredDate", range, null, null, pageSize, selection.get()).toResponseEntity();
+            }
+            List<Commit> commits = commitRepository.findAuthoredInRange(range.getAfterTime(), range.getAfterId(), range.getTo(), KeysetPage.request(pageSize));
+            return KeysetPage.byTime(commits, pageSize, Commit::getAuthoredDate, Commit::getId).toResponseEntity();
+        }
+        if (selection.isPresent()) {
+            return sparseFieldService.page(after == null ? null : Cursor.decodeId(after), pageSize, selection.get()).toResponseEntity();
+        }
+        List<Commit> commits = after == null
+                ? commitRepository.findAllByOrderByIdAsc(KeysetPage.request(pageSize))
+                : commitRepository.findByIdGreaterThanOrderByIdAsc(Cursor.decodeId(after), KeysetPage.request(pageSize));
+        return KeysetPage.byId(commits, pageSize, Commit::getId).toResponseEntity();
     }
 
     // GET http://localhost:8080/gitminer/commits/ee6e291274fcca03801261f1fd0684aa32c6d140
-    @Operation(summary = "Get commit by ID", description = "Get a specific commit using the commit ID",
+    // GET http://localhost:8080/gitminer/commits/ee6e291
+    @Operation(summary = "Get commit by ID", description = "Get a specific commit using the commit ID or an " +
+            "abbreviation of at least " + CommitPrefixIndexService.MIN_PREFIX_LENGTH + " characters. An abbreviation " +
+            "shared by several commits is answered with the IDs it could stand for",
             tags = { "get", "id" })
     @ApiResponses({
             @ApiResponse(responseCode = "200" ,
                     description = "Commit" ,
-                    content = {@Content(schema = @Schema(implementation = Comment.class),
+                    content = {@Content(schema = @Schema(implementation = Commit.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "300" ,
+                    description = "Ambiguous abbreviation" ,
+                    content = {@Content(schema = @Schema(implementation = CommitResolution.class),
                             mediaType = "application/json")}),
             @ApiResponse(responseCode = "404" ,
                     description = "Commit not found" ,
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping("/{id}")
-    public Commit getCommitById(@Parameter(name = "id", description = "ID of commit", example = "ee6e291274fcca03801261f1fd0684aa32c6d140") @PathVariable String id) throws CommitNotFoundException {
-        Optional<Commit> commit = commitRepository.findById(id);
+    public ResponseEntity<?> getCommitById(@Parameter(name = "id", description = "ID of commit, or an abbreviation of it", example = "ee6e291274fcca03801261f1fd0684aa32c6d140") @PathVariable String id,
+                                           @Parameter(name = "fields", description = "Properties to return", example = "id,title,authored_date") @RequestParam(required = false) List<String> fields,
+                                           @Parameter(name = "include", description = "Associations to embed; commits have none") @RequestParam(required = false) List<String> include,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws CommitNotFoundException, InvalidFieldsException {
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.COMMIT, fields, include);
+        Optional<String> stamp = entityCacheService.commitStamp(id);
+        if (stamp.isEmpty()) {
+            CommitResolution resolution = commitPrefixIndexService.resolve(id);
+            if (resolution.isAmbiguous()) {
+                return ResponseEntity.status(HttpStatus.MULTIPLE_CHOICES).body(resolution);
+            }
+            if (resolution.getId() == null) {
+                throw new CommitNotFoundException();
+            }
+            id = resolution.getId();
+            stamp = entityCacheService.commitStamp(id);
+        }
+        Optional<ResponseEntity<Commit>> notModified = ETags.notModified(ifNoneMatch, stamp);
+        if (notModified.isPresent()) {
+            return notModified.get();
+        }
+        if (selection.isPresent()) {
+            Map<String, Object> commit = sparseFieldService.find(id, selection.get()).orElseThrow(CommitNotFoundException::new);
+            return ResponseEntity.ok().eTag(ETags.of(stamp.orElseThrow(CommitNotFoundException::new))).body(commit);
+        }
+        Optional<Stamped<Commit>> commit = entityCacheService.findCommit(id);
         if (commit.isEmpty()) {
             throw new CommitNotFoundException();
         }
-        return commit.get();
+        return ResponseEntity.ok().eTag(ETags.of(commit.get().getStamp())).body(commit.get().getValue());
+    }
+
+    // POST http://localhost:8080/gitminer/commits/resolve
+    @Operation(summary = "Resolve abbreviated commit IDs", description = "Resolve up to " + BatchLookupService.MAX_IDS + " commit IDs " +
+            "or abbreviations at once, in the order given. Each one gets the commit ID it stands for or, if it is unknown or ambiguous, " +
+            "the IDs it could stand for (at most " + CommitPrefixIndexService.MAX_CANDIDATES + "); a null stands for nothing",
+            tags = { "post" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "One resolution per abbreviation" ,
+                    content = {@Content(schema = @Schema(implementation = CommitResolution.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Too many IDs" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @PostMapping("/resolve")
+    public List<CommitResolution> resolveCommitIds(@RequestBody List<String> prefixes) throws BatchTooLargeException {
+        if (prefixes.size() > BatchLookupService.MAX_IDS) {
+            throw new BatchTooLargeException();
+        }
+        return prefixes.stream().map(commitPrefixIndexService::resolve).collect(Collectors.toList());
+    }
+
+    // POST http://localhost:8080/gitminer/commits/batch
+    @Operation(summary = "Get commits by ID in bulk", description = "Get up to " + BatchLookupService.MAX_IDS + " commits at once, " +
+            "in the order of the given IDs. IDs that are not found get a null item and are listed in not_found",
+            tags = { "post", "id" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Commits in request order" ,
+                    content = {@Content(schema = @Schema(implementation = BatchResult.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Too many IDs" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @PostMapping("/batch")
+    public BatchResult<Commit> getCommitsByIds(@RequestBody List<String> ids) throws BatchTooLargeException {
+        return batchLookupService.findCommits(ids);
     }
 }
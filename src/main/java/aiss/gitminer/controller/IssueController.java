@@ -1,9 +1,34 @@
 package aiss.gitminer.controller;
 
+import aiss.gitminer.dto.BatchResult;
+import aiss.gitminer.dto.IssueLatency;
+import aiss.gitminer.dto.IssueSearch;
+import aiss.gitminer.dto.IssueSort;
+import aiss.gitminer.dto.IssueSummary;
+import aiss.gitminer.etag.ETags;
 import aiss.gitminer.model.Issue;
 import aiss.gitminer.model.Comment;
+import aiss.gitminer.exception.BatchTooLargeException;
+import aiss.gitminer.exception.InvalidCursorException;
+import aiss.gitminer.exception.InvalidFieldsException;
+import aiss.gitminer.fields.EntityFields;
+import aiss.gitminer.fields.FieldSelection;
+import aiss.gitminer.exception.InvalidSortException;
+import aiss.gitminer.exception.InvalidTimeRangeException;
 import aiss.gitminer.exception.IssueNotFoundException;
+import aiss.gitminer.pagination.Cursor;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.pagination.TimeRange;
+import aiss.gitminer.repository.CommentRepository;
 import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.service.BatchLookupService;
+import aiss.gitminer.service.EntityCacheService;
+import aiss.gitminer.service.FetchPlanService;
+import aiss.gitminer.service.IssueLatencyService;
+import aiss.gitminer.service.LabelIndexService;
+import aiss.gitminer.service.ResponseCacheService;
+import aiss.gitminer.service.SparseFieldService;
+import aiss.gitminer.service.VersionStampService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,10 +37,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Tag(name = "Issue" , description = "Issues")
 @RestController
@@ -26,25 +59,210 @@ public class IssueController {
     @Autowired
     IssueRepository issueRepository;
 
-    // GET http://localhost:8080/gitminer/issues
-    @Operation(summary = "Get all issues", description = "Get all the issues",
+    @Autowired
+    CommentRepository commentRepository;
+
+    @Autowired
+    FetchPlanService fetchPlanService;
+
+    @Autowired
+    EntityCacheService entityCacheService;
+
+    @Autowired
+    VersionStampService versionStampService;
+
+    @Autowired
+    ResponseCacheService responseCacheService;
+
+    @Autowired
+    LabelIndexService labelIndexService;
+
+    @Autowired
+    BatchLookupService batchLookupService;
+
+    @Autowired
+    SparseFieldService sparseFieldService;
+
+    @Autowired
+    IssueLatencyService issueLatencyService;
+
+    // GET http://localhost:8080/gitminer/issues?limit=50&after={cursor}
+    // GET http://localhost:8080/gitminer/issues?createdAfter=2023-01-01T00:00:00Z&createdBefore=2023-02-01T00:00:00Z
+    @Operation(summary = "Get all issues", description = "Get a page of issues sorted by ID or, when filtered by " +
+            "creation or update time, sorted by that time. The cursor of the next page is returned in the Link and X-Next-Cursor headers",
             tags = { "issues", "get" })
     @ApiResponses({
             @ApiResponse(responseCode = "200" ,
                     description = "Issues" ,
                     content = {@Content(schema = @Schema(implementation = Comment.class),
                             mediaType = "application/json")}),
-            @ApiResponse(responseCode = "404" ,
-                    description = "Issue not found" ,
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid cursor or time range" ,
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping
-    public List<Issue> getIssues() {
-        return issueRepository.findAll();
+    public ResponseEntity<?> getIssues(@Parameter(name = "limit", description = "Maximum number of issues in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit,
+                                       @Parameter(name = "after", description = "Cursor returned by the previous page") @RequestParam(required = false) String after,
+                                       @Parameter(name = "view", description = "full (with labels, users and comments) or summary", example = "summary") @RequestParam(defaultValue = "full") String view,
+                                       @Parameter(name = "createdAfter", description = "Only issues created at or after this instant", example = "2023-01-01T00:00:00Z") @RequestParam(required = false) Instant createdAfter,
+                                       @Parameter(name = "createdBefore", description = "Only issues created before this instant", example = "2023-02-01T00:00:00Z") @RequestParam(required = false) Instant createdBefore,
+                                       @Parameter(name = "updatedAfter", description = "Only issues updated at or after this instant") @RequestParam(required = false) Instant updatedAfter,
+                                       @Parameter(name = "updatedBefore", description = "Only issues updated before this instant") @RequestParam(required = false) Instant updatedBefore,
+                                       @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,title,state,author.username") @RequestParam(required = false) List<String> fields,
+                                       @Parameter(name = "include", description = "Associations to embed: labels, author, assignee, comments, comments.author", example = "labels,author") @RequestParam(required = false) List<String> include,
+                                       WebRequest webRequest) throws InvalidCursorException, InvalidTimeRangeException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.ISSUE, fields, include);
+        int pageSize = KeysetPage.clampLimit(limit);
+        boolean byCreated = createdAfter != null || createdBefore != null;
+        boolean byUpdated = updatedAfter != null || updatedBefore != null;
+        if (byCreated && byUpdated) {
+            throw new InvalidTimeRangeException();
+        }
+        if (byCreated) {
+            TimeRange range = TimeRange.of(createdAfter, createdBefore, after);
+            if (selection.isPresent()) {
+                return sparseFieldService.pageInRange("createdAt", range, null, null, pageSize, selection.get()).toResponseEntity();
+            }
+            if (view.equals("summary")) {
+                List<IssueSummary> summaries = fetchPlanService.findIssueSummariesCreatedInRange(range, pageSize);
+                return KeysetPage.byTime(summaries, pageSize, IssueSummary::getCreatedAt, IssueSummary::getId).toResponseEntity();
+            }
+            List<Issue> issues = fetchPlanService.findIssuesCreatedInRange(range, pageSize);
+            return KeysetPage.byTime(issues, pageSize, Issue::getCreatedAt, Issue::getId).toResponseEntity();
+        }
+        if (byUpdated) {
+            TimeRange range = TimeRange.of(updatedAfter, updatedBefore, after);
+            if (selection.isPresent()) {
+                return sparseFieldService.pageInRange("updatedAt", range, null, null, pageSize, selection.get()).toResponseEntity();
+            }
+            if (view.equals("summary")) {
+                List<IssueSummary> summaries = fetchPlanService.findIssueSummariesUpdatedInRange(range, pageSize);
+                return KeysetPage.byTime(summaries, pageSize, IssueSummary::getUpdatedAt, IssueSummary::getId).toResponseEntity();
+            }
+            List<Issue> issues = fetchPlanService.findIssuesUpdatedInRange(range, pageSize);
+            return KeysetPage.byTime(issues, pageSize, Issue::getUpdatedAt, Issue::getId).toResponseEntity();
+        }
+        String afterId = after == null ? null : Cursor.decodeId(after);
+        if (selection.isPresent()) {
+            return sparseFieldService.page(afterId, pageSize, selection.get()).toResponseEntity();
+        }
+        if (view.equals("summary")) {
+            List<IssueSummary> summaries = fetchPlanService.findIssueSummaryPage(afterId, pageSize);
+            return KeysetPage.byId(summaries, pageSize, IssueSummary::getId).toResponseEntity();
+        }
+        List<Issue> issues = fetchPlanService.findIssuePage(afterId, pageSize);
+        return KeysetPage.byId(issues, pageSize, Issue::getId).toResponseEntity();
+    }
+
+    // GET http://localhost:8080/gitminer/issues/latency?label=bug
+    @Operation(summary = "Get issue latencies", description = "Get the time to close and the time to first comment " +
+            "of the issues of every project, optionally only of those with a label: count, mean and 50th, 90th and 99th " +
+            "percentiles in seconds, the percentiles within 2%. Merged from the histograms of the projects. Takes the place " +
+            "of the issue with ID latency, see POST /gitminer/issues/batch",
+            tags = { "issues", "get" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Issue latencies" ,
+                    content = {@Content(schema = @Schema(implementation = IssueLatency.class),
+                            mediaType = "application/json")})
+    })
+    @GetMapping("/latency")
+    public IssueLatency getIssueLatency(@Parameter(name = "label", description = "Label of the issues to measure", example = "bug") @RequestParam(required = false) String label,
+                                        WebRequest webRequest) {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        return issueLatencyService.latency(null, label);
+    }
+
+    // GET http://localhost:8080/gitminer/issues/search?projectId=15717393&state=opened&label=bug&sort=votes&order=desc
+    @Operation(summary = "Search issues", description = "Get a page of the issues matching every given criterion, " +
+            "sorted by created_at, updated_at, votes or id. The cursor of the next page is returned in the Link and X-Next-Cursor headers. " +
+            "Takes the place of the issue with ID search, see POST /gitminer/issues/batch",
+            tags = { "issues", "get", "filter" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Issues" ,
+                    content = {@Content(schema = @Schema(implementation = Issue.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid cursor, sort or criterion" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @GetMapping("/search")
+    public ResponseEntity<?> searchIssues(@Parameter(name = "projectId", description = "ID of the project", example = "15717393") @RequestParam(required = false) String projectId,
+                                          @Parameter(name = "state", description = "State of the issue", example = "opened") @RequestParam(required = false) String state,
+                                          @Parameter(name = "authorId", description = "ID of the author", example = "5122337") @RequestParam(required = false) String authorId,
+                                          @Parameter(name = "assigneeId", description = "ID of the assignee") @RequestParam(required = false) String assigneeId,
+                                          @Parameter(name = "label", description = "Label the issue must have; repeat it to require several", example = "bug") @RequestParam(name = "label", required = false) List<String> labels,
+                                          @Parameter(name = "minVotes", description = "Minimum number of votes", example = "1") @RequestParam(required = false) Integer minVotes,
+                                          @Parameter(name = "createdAfter", description = "Only issues created at or after this instant", example = "2023-01-01T00:00:00Z") @RequestParam(required = false) Instant createdAfter,
+                                          @Parameter(name = "createdBefore", description = "Only issues created before this instant") @RequestParam(required = false) Instant createdBefore,
+                                          @Parameter(name = "updatedAfter", description = "Only issues updated at or after this instant") @RequestParam(required = false) Instant updatedAfter,
+                                          @Parameter(name = "updatedBefore", description = "Only issues updated before this instant") @RequestParam(required = false) Instant updatedBefore,
+                                          @Parameter(name = "sort", description = "created_at, updated_at, votes or id", example = "created_at") @RequestParam(defaultValue = "created_at") String sort,
+                                          @Parameter(name = "order", description = "asc or desc", example = "desc") @RequestParam(defaultValue = "desc") String order,
+                                          @Parameter(name = "limit", description = "Maximum number of issues in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit,
+                                          @Parameter(name = "after", description = "Cursor returned by the previous page") @RequestParam(required = false) String after,
+                                          @Parameter(name = "view", description = "full (with labels, users and comments) or summary", example = "summary") @RequestParam(defaultValue = "full") String view,
+                                          @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,title,state,author.username") @RequestParam(required = false) List<String> fields,
+                                          @Parameter(name = "include", description = "Associations to embed: labels, author, assignee, comments, comments.author", example = "labels,author") @RequestParam(required = false) List<String> include,
+                                          WebRequest webRequest) throws InvalidCursorException, InvalidSortException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.ISSUE, fields, include);
+        IssueSort issueSort = IssueSort.fromParam(sort).orElseThrow(InvalidSortException::new);
+        if (!order.equals("asc") && !order.equals("desc")) {
+            throw new InvalidSortException();
+        }
+        IssueSearch search = new IssueSearch();
+        search.setProjectId(projectId);
+        search.setState(state);
+        search.setAuthorId(authorId);
+        search.setAssigneeId(assigneeId);
+        if (labels != null) {
+            search.setLabels(labels);
+        }
+        search.setMinVotes(minVotes);
+        search.setCreatedAfter(createdAfter);
+        search.setCreatedBefore(createdBefore);
+        search.setUpdatedAfter(updatedAfter);
+        search.setUpdatedBefore(updatedBefore);
+        search.setSort(issueSort);
+        search.setDescending(order.equals("desc"));
+        if (after != null) {
+            String[] keys = Cursor.decode(after, 2);
+            search.setAfterKey(issueSort.parseKey(keys[0]));
+            search.setAfterId(keys[1]);
+        }
+        labelIndexService.narrow(search);
+        int pageSize = KeysetPage.clampLimit(limit);
+        Function<IssueSummary, String> summaryCursor = summary -> Cursor.encode(issueSort.keyOf(summary.getId(),
+                summary.getCreatedAt(), summary.getUpdatedAt(), summary.getVotes()), summary.getId());
+        if (selection.isPresent()) {
+            // The summaries only serve as the keys of the page
+            List<IssueSummary> keys = issueRepository.searchSummaries(search, KeysetPage.request(pageSize));
+            return KeysetPage.of(keys, pageSize, summaryCursor)
+                    .map(page -> sparseFieldService.load(page.stream().map(IssueSummary::getId).collect(Collectors.toList()), selection.get()))
+                    .toResponseEntity();
+        }
+        if (view.equals("summary")) {
+            List<IssueSummary> summaries = fetchPlanService.searchIssueSummaries(search, pageSize);
+            return KeysetPage.of(summaries, pageSize, summaryCursor).toResponseEntity();
+        }
+        List<Issue> issues = fetchPlanService.searchIssues(search, pageSize);
+        return KeysetPage.of(issues, pageSize, issue -> Cursor.encode(issueSort.keyOf(issue.getId(),
+                issue.getCreatedAt(), issue.getUpdatedAt(), issue.getVotes()), issue.getId())).toResponseEntity();
     }
 
     // GET http://localhost:8080/gitminer/issues/1556497126
-    @Operation(summary = "Get issue by ID", description = "Get a specific issue using the issue ID",
+    @Operation(summary = "Get issue by ID", description = "Get a specific issue using the issue ID. The IDs search and " +
+            "latency are reserved for GET /gitminer/issues/search and /latency; issues with those IDs are read through " +
+            "POST /gitminer/issues/batch",
             tags = { "get", "id" })
     @ApiResponses({
             @ApiResponse(responseCode = "200" ,
@@ -56,33 +274,84 @@ public class IssueController {
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping("/{id}")
-    public Issue getIssueById(@Parameter(name = "id", description = "ID of issue", example = "1556497126") @PathVariable String id) throws IssueNotFoundException {
-        Optional<Issue> issue = issueRepository.findById(id);
-        if (issue.isEmpty()) {
-            throw new IssueNotFoundException();
+    public ResponseEntity<?> getIssueById(@Parameter(name = "id", description = "ID of issue", example = "1556497126") @PathVariable String id,
+                                          @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,title,state,author.username") @RequestParam(required = false) List<String> fields,
+                                          @Parameter(name = "include", description = "Associations to embed: labels, author, assignee, comments, comments.author", example = "labels,author") @RequestParam(required = false) List<String> include,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IssueNotFoundException, InvalidFieldsException {
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.ISSUE, fields, include);
+        Optional<String> stamp = entityCacheService.issueStamp(id);
+        Optional<ResponseEntity<byte[]>> notModified = ETags.notModified(ifNoneMatch, stamp);
+        if (notModified.isPresent()) {
+            return notModified.get();
         }
-        return issue.get();
+        // Sparse representations skip the response cache, which only holds the full one
+        if (selection.isPresent()) {
+            Map<String, Object> issue = sparseFieldService.find(id, selection.get()).orElseThrow(IssueNotFoundException::new);
+            return ResponseEntity.ok().eTag(ETags.of(stamp.orElseThrow(IssueNotFoundException::new))).body(issue);
+        }
+        return responseCacheService.findIssue(id, () -> entityCacheService.findIssue(id))
+                .orElseThrow(IssueNotFoundException::new)
+                .toResponseEntity(acceptEncoding);
+    }
+
+    // POST http://localhost:8080/gitminer/issues/batch
+    @Operation(summary = "Get issues by ID in bulk", description = "Get up to " + BatchLookupService.MAX_IDS + " issues at once, " +
+            "in the order of the given IDs. IDs that are not found get a null item and are listed in not_found",
+            tags = { "post", "id" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Issues in request order" ,
+                    content = {@Content(schema = @Schema(implementation = BatchResult.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Too many IDs" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @PostMapping("/batch")
+    public BatchResult<Issue> getIssuesByIds(@RequestBody List<String> ids) throws BatchTooLargeException {
+        return batchLookupService.findIssues(ids);
     }
 
     // GET http://localhost:8080/gitminer/issues/1554713335/comments
-    @Operation(summary = "Get issue's comments", description = "Get the comments of a specific issue",
+    @Operation(summary = "Get issue's comments", description = "Get a page of the comments of a specific issue sorted by " +
+            "creation time. The cursor of the next page is returned in the Link and X-Next-Cursor headers",
             tags = { "get", "id" })
     @ApiResponses({
             @ApiResponse(responseCode = "200" ,
                     description = "Comments" ,
                     content = {@Content(schema = @Schema(implementation = Comment.class),
                             mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid cursor" ,
+                    content = {@Content(schema = @Schema())}),
             @ApiResponse(responseCode = "404" ,
                     description = "Issue not found" ,
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping("/{id}/comments")
-    public List<Comment> getCommentsOfIssue(@Parameter(name = "id", description = "ID of issue", example = "1554713335")@PathVariable String id) throws IssueNotFoundException {
-        Optional<Issue> issue = issueRepository.findById(id);
-        if (issue.isEmpty()) {
+    public ResponseEntity<?> getCommentsOfIssue(@Parameter(name = "id", description = "ID of issue", example = "1554713335")@PathVariable String id,
+                                                @Parameter(name = "limit", description = "Maximum number of comments in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit,
+                                                @Parameter(name = "after", description = "Cursor returned by the previous page") @RequestParam(required = false) String after,
+                                                @Parameter(name = "fields", description = "Properties of the comments to return; dotted paths select inside embedded objects", example = "id,body,author.username") @RequestParam(required = false) List<String> fields,
+                                                @Parameter(name = "include", description = "Associations to embed in the comments", example = "author") @RequestParam(required = false) List<String> include,
+                                                WebRequest webRequest) throws IssueNotFoundException, InvalidFieldsException, InvalidCursorException {
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.COMMENT, fields, include);
+        // The comments of an issue only change together with its stamp
+        Optional<String> stamp = entityCacheService.issueStamp(id);
+        if (stamp.isEmpty()) {
             throw new IssueNotFoundException();
         }
-        return issue.get().getComments();
+        if (webRequest.checkNotModified(ETags.of(stamp.get()))) {
+            return null;
+        }
+        int pageSize = KeysetPage.clampLimit(limit);
+        TimeRange range = TimeRange.of(null, null, after);
+        if (selection.isPresent()) {
+            return sparseFieldService.pageInRange("createdAt", range, "issueId", id, pageSize, selection.get()).toResponseEntity();
+        }
+        List<Comment> comments = commentRepository.findByIssueCreatedInRange(id, range.getAfterTime(), range.getAfterId(), range.getTo(), KeysetPage.request(pageSize));
+        return KeysetPage.byTime(comments, pageSize, Comment::getCreatedAt, Comment::getId).toResponseEntity();
     }
 
     // GET http://localhost:8080/gitminer/issues?authorId=5122337
@@ -98,9 +367,19 @@ public class IssueController {
                     description = "Issue not found" ,
                     content = {@Content(schema = @Schema())})
     })
-    @GetMapping(params = "authorId")
-    public List<Issue> getIssuesByAuthorId(@Parameter(name = "authorId", description = "ID of the author", example = "5122337")@RequestParam String authorId) throws IssueNotFoundException {
-        Optional<List<Issue>> issue = issueRepository.findByAuthor_Id(authorId);
+    @GetMapping(params = { "authorId", "!label" })
+    public List<?> getIssuesByAuthorId(@Parameter(name = "authorId", description = "ID of the author", example = "5122337")@RequestParam String authorId,
+                                       @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,title,state,author.username") @RequestParam(required = false) List<String> fields,
+                                       @Parameter(name = "include", description = "Associations to embed: labels, author, assignee, comments, comments.author", example = "labels,author") @RequestParam(required = false) List<String> include,
+                                       WebRequest webRequest) throws IssueNotFoundException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.ISSUE, fields, include);
+        if (selection.isPresent()) {
+            return sparseFieldService.findBy("author.id", authorId, selection.get());
+        }
+        Optional<List<Issue>> issue = fetchPlanService.findIssuesByAuthor(authorId);
         if (issue.isEmpty()) {
             throw new IssueNotFoundException();
         }
@@ -119,13 +398,71 @@ public class IssueController {
                     description = "Issue not found" ,
                     content = {@Content(schema = @Schema())})
     })
-    @GetMapping(params = "state")
-    public List<Issue> getIssuesByState(@Parameter(name = "state", description = "State of the issue", example = "open") @RequestParam String state) throws IssueNotFoundException {
-        Optional<List<Issue>> issue = issueRepository.findByState(state);
+    @GetMapping(params = { "state", "!label" })
+    public List<?> getIssuesByState(@Parameter(name = "state", description = "State of the issue", example = "open") @RequestParam String state,
+                                    @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,title,state,author.username") @RequestParam(required = false) List<String> fields,
+                                    @Parameter(name = "include", description = "Associations to embed: labels, author, assignee, comments, comments.author", example = "labels,author") @RequestParam(required = false) List<String> include,
+                                    WebRequest webRequest) throws IssueNotFoundException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.ISSUE, fields, include);
+        if (selection.isPresent()) {
+            return sparseFieldService.findBy("state", state, selection.get());
+        }
+        Optional<List<Issue>> issue = fetchPlanService.findIssuesByState(state);
         if (issue.isEmpty()) {
             throw new IssueNotFoundException();
         }
         return issue.get();
     }
 
+    // GET http://localhost:8080/gitminer/issues?label=bug&label=performance&state=opened
+    @Operation(summary = "Get issues by labels", description = "Get a page of the issues that have every given label " +
+            "(or any of them, with any=true), optionally in a state and project, in label index order: by ID for the " +
+            "issues stored at startup, then in the order they were first written. Answered from the label bitmap index; " +
+            "the number of matches is returned in the X-Total-Count header",
+            tags = { "get", "filter" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Issues" ,
+                    content = {@Content(schema = @Schema(implementation = Issue.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid cursor" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @GetMapping(params = "label")
+    public ResponseEntity<?> getIssuesByLabels(@Parameter(name = "label", description = "Label of the issue; repeat it to combine several", example = "bug") @RequestParam(name = "label") List<String> labels,
+                                               @Parameter(name = "any", description = "Match issues with any of the labels instead of all of them", example = "false") @RequestParam(defaultValue = "false") boolean any,
+                                               @Parameter(name = "state", description = "State of the issue", example = "opened") @RequestParam(required = false) String state,
+                                               @Parameter(name = "projectId", description = "ID of the project", example = "15717393") @RequestParam(required = false) String projectId,
+                                               @Parameter(name = "limit", description = "Maximum number of issues in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit,
+                                               @Parameter(name = "after", description = "Cursor returned by the previous page") @RequestParam(required = false) String after,
+                                               @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,title,state,author.username") @RequestParam(required = false) List<String> fields,
+                                               @Parameter(name = "include", description = "Associations to embed: labels, author, assignee, comments, comments.author", example = "labels,author") @RequestParam(required = false) List<String> include,
+                                               WebRequest webRequest) throws InvalidCursorException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.ISSUE, fields, include);
+        int pageSize = KeysetPage.clampLimit(limit);
+        String afterId = after == null ? null : Cursor.decodeId(after);
+        LabelIndexService.Matches matches = labelIndexService.findIssueIds(labels, any, state, projectId, afterId, pageSize);
+        List<String> pageIds = matches.getIssueIds();
+        if (selection.isPresent()) {
+            return KeysetPage.byId(pageIds, pageSize, issueId -> issueId)
+                    .map(page -> sparseFieldService.load(page, selection.get()))
+                    .toResponseEntity(matches.getCount());
+        }
+        // The cursor comes from the index, so issues deleted since it was read do not end the listing.
+        // They are loaded by ID, then put back in the order of the page
+        return KeysetPage.byId(pageIds, pageSize, issueId -> issueId)
+                .map(page -> {
+                    Map<String, Issue> issues = fetchPlanService.findIssuesByIds(page).stream().collect(Collectors.toMap(Issue::getId, issue -> issue));
+                    return page.stream().map(issues::get).filter(Objects::nonNull).collect(Collectors.toList());
+                })
+                .toResponseEntity(matches.getCount());
+    }
+
 }
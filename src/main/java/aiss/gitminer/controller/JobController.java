@@ -0,0 +1,42 @@
+package aiss.gitminer.controller;
+
+import aiss.gitminer.dto.IngestJob;
+import aiss.gitminer.exception.JobNotFoundException;
+import aiss.gitminer.service.IngestJobService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "Job" , description = "Ingest jobs")
+@RestController
+@RequestMapping("/gitminer/jobs")
+
+public class JobController {
+    @Autowired
+    IngestJobService ingestJobService;
+
+    // GET http://localhost:8080/gitminer/jobs/3f2c7a9e-0d4b-4a51-9c3e-5b8f1e2d6a70
+    @Operation(summary = "Get job", description = "Get the status of an ingest job started with Ingest project and async=true: " +
+            "the entities committed so far, the write rate and, if it failed, the error. Finished jobs are kept for a while",
+            tags = { "get", "id" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Job" ,
+                    content = {@Content(schema = @Schema(implementation = IngestJob.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "404" ,
+                    description = "Job not found" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @GetMapping("/{id}")
+    public IngestJob getJob(@Parameter(name = "id", description = "ID of the job", example = "3f2c7a9e-0d4b-4a51-9c3e-5b8f1e2d6a70") @PathVariable String id) throws JobNotFoundException {
+        return ingestJobService.find(id).orElseThrow(JobNotFoundException::new);
+    }
+}
@@ -1,22 +1,67 @@
 package aiss.gitminer.controller;
 
+import aiss.gitminer.dto.BulkImportReport;
+import aiss.gitminer.dto.IngestJob;
+import aiss.gitminer.dto.IngestReport;
+import aiss.gitminer.dto.IssueLatency;
+import aiss.gitminer.dto.ProjectStats;
+import aiss.gitminer.dto.ProjectSummary;
+import aiss.gitminer.dto.ProjectSyncRequest;
+import aiss.gitminer.dto.SyncReport;
+import aiss.gitminer.etag.ETags;
+import aiss.gitminer.exception.IngestQueueFullException;
+import aiss.gitminer.exception.InvalidCursorException;
+import aiss.gitminer.exception.InvalidFieldsException;
+import aiss.gitminer.exception.ProjectAlreadyExistsException;
 import aiss.gitminer.exception.ProjectNotFoundException;
+import aiss.gitminer.exception.RestoreInProgressException;
+import aiss.gitminer.fields.EntityFields;
+import aiss.gitminer.fields.FieldSelection;
 import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
 import aiss.gitminer.model.Project;
+import aiss.gitminer.pagination.Cursor;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.pagination.TimeRange;
+import aiss.gitminer.repository.CommitRepository;
 import aiss.gitminer.repository.ProjectRepository;
+import aiss.gitminer.service.EntityCacheService;
+import aiss.gitminer.service.FetchPlanService;
+import aiss.gitminer.service.ProjectBulkImportService;
+import aiss.gitminer.service.IngestJobService;
+import aiss.gitminer.service.IssueLatencyService;
+import aiss.gitminer.service.LabelIndexService;
+import aiss.gitminer.service.ProjectExportService;
+import aiss.gitminer.service.ProjectIngestService;
+import aiss.gitminer.service.ProjectService;
+import aiss.gitminer.service.ProjectStatsService;
+import aiss.gitminer.service.ResponseCacheService;
+import aiss.gitminer.service.SparseFieldService;
+import aiss.gitminer.service.VersionStampService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Tag(name = "Project" , description = "GitMiner")
@@ -27,22 +72,107 @@ public class ProjectController {
     @Autowired
     ProjectRepository projectRepository;
 
-    // GET http://localhost:8080/gitminer/projects
-    @Operation(summary = "Get all projects", description = "Get all the projects",
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    FetchPlanService fetchPlanService;
+
+    @Autowired
+    ProjectBulkImportService projectBulkImportService;
+
+    @Autowired
+    EntityCacheService entityCacheService;
+
+    @Autowired
+    VersionStampService versionStampService;
+
+    @Autowired
+    ResponseCacheService responseCacheService;
+
+    @Autowired
+    LabelIndexService labelIndexService;
+
+    @Autowired
+    ProjectStatsService projectStatsService;
+
+    @Autowired
+    IssueLatencyService issueLatencyService;
+
+    @Autowired
+    ProjectExportService projectExportService;
+
+    @Autowired
+    ProjectIngestService projectIngestService;
+
+    @Autowired
+    IngestJobService ingestJobService;
+
+    @Autowired
+    SparseFieldService sparseFieldService;
+
+    // GET http://localhost:8080/gitminer/projects?limit=50&after={cursor}
+    @Operation(summary = "Get all projects", description = "Get a page of projects sorted by ID. " +
+            "The cursor of the next page is returned in the Link and X-Next-Cursor headers",
             tags = { "get" , "id" })
     @ApiResponses({
             @ApiResponse(responseCode = "200" ,
                     description = "Projects" ,
                     content = {@Content(schema = @Schema(implementation = Comment.class),
-                            mediaType = "application/json")})
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid cursor" ,
+                    content = {@Content(schema = @Schema())})
     })
     @GetMapping
-    public List<Project> getProjects() {
-        return projectRepository.findAll();
+    public ResponseEntity<?> getProjects(@Parameter(name = "limit", description = "Maximum number of projects in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit,
+                                         @Parameter(name = "after", description = "Cursor returned by the previous page") @RequestParam(required = false) String after,
+                                         @Parameter(name = "view", description = "full (with commits and issues) or summary", example = "summary") @RequestParam(defaultValue = "full") String view,
+                                         @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,name,issues.title") @RequestParam(required = false) List<String> fields,
+                                         @Parameter(name = "include", description = "Associations to embed: commits, issues and those of issues, like issues.labels", example = "issues") @RequestParam(required = false) List<String> include,
+                                         WebRequest webRequest) throws InvalidCursorException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.PROJECT, fields, include);
+        int pageSize = KeysetPage.clampLimit(limit);
+        String afterId = after == null ? null : Cursor.decodeId(after);
+        if (selection.isPresent()) {
+            return sparseFieldService.page(afterId, pageSize, selection.get()).toResponseEntity();
+        }
+        if (view.equals("summary")) {
+            List<ProjectSummary> summaries = projectRepository.findSummaries(afterId == null ? "" : afterId, KeysetPage.request(pageSize));
+            return KeysetPage.byId(summaries, pageSize, ProjectSummary::getId).toResponseEntity();
+        }
+        List<Project> projects = fetchPlanService.findProjectPage(afterId, pageSize);
+        return KeysetPage.byId(projects, pageSize, Project::getId).toResponseEntity();
+    }
+
+    // GET http://localhost:8080/gitminer/projects/export
+    @Operation(summary = "Export all projects", description = "Stream every project with its commits, issues and comments " +
+            "as newline-delimited JSON, one project per line. Takes the place of the project with ID export",
+            tags = { "get" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Projects" ,
+                    content = {@Content(schema = @Schema(implementation = Project.class),
+                            mediaType = MediaType.APPLICATION_NDJSON_VALUE)})
+    })
+    @GetMapping("/export")
+    public void exportProjects(HttpServletResponse response, WebRequest webRequest) throws IOException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        projectExportService.exportNdjson(response.getOutputStream());
     }
 
     // GET http://localhost:8080/gitminer/projects/15717393
-    @Operation(summary = "Get project by ID", description = "Get a specific project using the project ID",
+    @Operation(summary = "Get project by ID", description = "Get a specific project using the project ID. The ID export " +
+            "is reserved for GET /gitminer/projects/export, which also returns a project with that ID",
             tags = { "get", "id" })
     @ApiResponses({
             @ApiResponse(responseCode = "200" ,
@@ -54,12 +184,150 @@ public class ProjectController {
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping("/{id}")
-    public Project getProjectById(@PathVariable String id) throws ProjectNotFoundException {
-        Optional<Project> project = projectRepository.findById(id);
-        if (project.isEmpty()) {
+    public ResponseEntity<?> getProjectById(@PathVariable String id,
+                                            @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,name,issues.title") @RequestParam(required = false) List<String> fields,
+                                            @Parameter(name = "include", description = "Associations to embed: commits, issues and those of issues, like issues.labels", example = "issues") @RequestParam(required = false) List<String> include,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws ProjectNotFoundException, InvalidFieldsException {
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.PROJECT, fields, include);
+        Optional<String> stamp = entityCacheService.projectStamp(id);
+        Optional<ResponseEntity<byte[]>> notModified = ETags.notModified(ifNoneMatch, stamp);
+        if (notModified.isPresent()) {
+            return notModified.get();
+        }
+        // Sparse representations skip the response cache, which only holds the full one
+        if (selection.isPresent()) {
+            Map<String, Object> project = sparseFieldService.find(id, selection.get()).orElseThrow(ProjectNotFoundException::new);
+            return ResponseEntity.ok().eTag(ETags.of(stamp.orElseThrow(ProjectNotFoundException::new))).body(project);
+        }
+        return responseCacheService.findProject(id, () -> entityCacheService.findProject(id))
+                .orElseThrow(ProjectNotFoundException::new)
+                .toResponseEntity(acceptEncoding);
+    }
+
+    // GET http://localhost:8080/gitminer/projects/15717393/commits?since=2023-01-01T00:00:00Z&limit=50&after={cursor}
+    @Operation(summary = "Get project's commits", description = "Get a page of the commits of a specific project sorted by " +
+            "authored date. The cursor of the next page is returned in the Link and X-Next-Cursor headers",
+            tags = { "get", "id" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Commits" ,
+                    content = {@Content(schema = @Schema(implementation = Commit.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid cursor or time range" ,
+                    content = {@Content(schema = @Schema())}),
+            @ApiResponse(responseCode = "404" ,
+                    description = "Project not found" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @GetMapping("/{id}/commits")
+    public ResponseEntity<?> getCommitsOfProject(@Parameter(name = "id", description = "ID of project", example = "15717393") @PathVariable String id,
+                                                 @Parameter(name = "limit", description = "Maximum number of commits in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit,
+                                                 @Parameter(name = "after", description = "Cursor returned by the previous page") @RequestParam(required = false) String after,
+                                                 @Parameter(name = "since", description = "Only commits authored at or after this instant", example = "2023-01-01T00:00:00Z") @RequestParam(required = false) Instant since,
+                                                 @Parameter(name = "until", description = "Only commits authored before this instant") @RequestParam(required = false) Instant until,
+                                                 @Parameter(name = "fields", description = "Properties to return", example = "id,title,authored_date") @RequestParam(required = false) List<String> fields,
+                                                 @Parameter(name = "include", description = "Associations to embed; commits have none") @RequestParam(required = false) List<String> include,
+                                                 WebRequest webRequest) throws ProjectNotFoundException, InvalidCursorException, InvalidFieldsException {
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.COMMIT, fields, include);
+        // The commits of a project only change together with its revision
+        Optional<String> stamp = entityCacheService.projectStamp(id);
+        if (stamp.isEmpty()) {
             throw new ProjectNotFoundException();
         }
-        return project.get();
+        if (webRequest.checkNotModified(ETags.of(stamp.get()))) {
+            return null;
+        }
+        int pageSize = KeysetPage.clampLimit(limit);
+        TimeRange range = TimeRange.of(since, until, after);
+        if (selection.isPresent()) {
+            return sparseFieldService.pageInRange("authoredDate", range, "projectId", id, pageSize, selection.get()).toResponseEntity();
+        }
+        List<Commit> commits = commitRepository.findByProjectAuthoredInRange(id, range.getAfterTime(), range.getAfterId(), range.getTo(), KeysetPage.request(pageSize));
+        return KeysetPage.byTime(commits, pageSize, Commit::getAuthoredDate, Commit::getId).toResponseEntity();
+    }
+
+    // GET http://localhost:8080/gitminer/projects/15717393/labels?state=opened
+    @Operation(summary = "Get project's label counts", description = "Get the number of issues of a specific project " +
+            "per label, most used first, optionally counting only the issues in a state",
+            tags = { "get", "id" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Issue count per label" ,
+                    content = {@Content(mediaType = "application/json")}),
+            @ApiResponse(responseCode = "404" ,
+                    description = "Project not found" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @GetMapping("/{id}/labels")
+    public Map<String, Integer> getLabelCountsOfProject(@Parameter(name = "id", description = "ID of project", example = "15717393") @PathVariable String id,
+                                                        @Parameter(name = "state", description = "State of the issues to count", example = "opened") @RequestParam(required = false) String state,
+                                                        WebRequest webRequest) throws ProjectNotFoundException {
+        if (entityCacheService.projectStamp(id).isEmpty()) {
+            throw new ProjectNotFoundException();
+        }
+        // The index is refreshed before the list stamp moves, see LabelIndexService
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        return labelIndexService.labelCounts(id, state);
+    }
+
+    // GET http://localhost:8080/gitminer/projects/15717393/stats?authors=10
+    @Operation(summary = "Get project's statistics", description = "Get the number of commits, in total and of the " +
+            "most active authors, the number of issues per state, their votes and the number of comments of a specific project. " +
+            "The figures are kept up to date on every write, so this costs the same for any size of project",
+            tags = { "get", "id" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Project statistics" ,
+                    content = {@Content(schema = @Schema(implementation = ProjectStats.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "404" ,
+                    description = "Project not found" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @GetMapping("/{id}/stats")
+    public ProjectStats getProjectStats(@Parameter(name = "id", description = "ID of project", example = "15717393") @PathVariable String id,
+                                        @Parameter(name = "authors", description = "Maximum number of authors in commits_by_author", example = "10") @RequestParam(defaultValue = "10") int authors,
+                                        WebRequest webRequest) throws ProjectNotFoundException {
+        if (entityCacheService.projectStamp(id).isEmpty()) {
+            throw new ProjectNotFoundException();
+        }
+        // The figures are committed with the write itself, before the list stamp moves
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        return projectStatsService.stats(id, KeysetPage.clampLimit(authors));
+    }
+
+    // GET http://localhost:8080/gitminer/projects/15717393/issues/latency?label=bug
+    @Operation(summary = "Get project's issue latencies", description = "Get the time to close and the time to first comment " +
+            "of the issues of a specific project, optionally only of those with a label: count, mean and 50th, 90th and 99th " +
+            "percentiles in seconds, the percentiles within 2%. Kept up to date on every write",
+            tags = { "get", "id" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Issue latencies" ,
+                    content = {@Content(schema = @Schema(implementation = IssueLatency.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "404" ,
+                    description = "Project not found" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @GetMapping("/{id}/issues/latency")
+    public IssueLatency getIssueLatencyOfProject(@Parameter(name = "id", description = "ID of project", example = "15717393") @PathVariable String id,
+                                                 @Parameter(name = "label", description = "Label of the issues to measure", example = "bug") @RequestParam(required = false) String label,
+                                                 WebRequest webRequest) throws ProjectNotFoundException {
+        if (entityCacheService.projectStamp(id).isEmpty()) {
+            throw new ProjectNotFoundException();
+        }
+        // The histograms are refreshed before the list stamp moves, see IssueLatencyService
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        return issueLatencyService.latency(id, label);
     }
 
     // GET http://localhost:8080/gitminer/projects?name=pitest
@@ -75,8 +343,18 @@ public class ProjectController {
                     content = {@Content(schema = @Schema())})
     })
     @GetMapping(params = "name")
-    public Project getProjectByName(@RequestParam String name) throws ProjectNotFoundException {
-        Optional<Project> project = projectRepository.findByName(name);
+    public Object getProjectByName(@RequestParam String name,
+                                   @Parameter(name = "fields", description = "Properties to return; dotted paths select inside embedded objects", example = "id,name,issues.title") @RequestParam(required = false) List<String> fields,
+                                   @Parameter(name = "include", description = "Associations to embed: commits, issues and those of issues, like issues.labels", example = "issues") @RequestParam(required = false) List<String> include,
+                                   WebRequest webRequest) throws ProjectNotFoundException, InvalidFieldsException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        Optional<FieldSelection> selection = FieldSelection.parse(EntityFields.PROJECT, fields, include);
+        if (selection.isPresent()) {
+            return sparseFieldService.findBy("name", name, selection.get()).stream().findFirst().orElseThrow(ProjectNotFoundException::new);
+        }
+        Optional<Project> project = fetchPlanService.findProjectByName(name);
         if (project.isEmpty()) {
             throw new ProjectNotFoundException();
         }
@@ -175,22 +453,71 @@ public class ProjectController {
                                             "        }\n" +
                                             "    ]\n" +
                                             "}"
-                            ))})
+                            ))}),
+            @ApiResponse(responseCode = "503" ,
+                    description = "A snapshot is being restored" ,
+                    content = {@Content(schema = @Schema())})
     })
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Project createProject(@RequestBody @Valid Project project){
-        Project newProject = new Project(project.getName(), project.getWebUrl());
-        newProject.setId(project.getId());
+    public Project createProject(@RequestBody @Valid Project project) throws RestoreInProgressException {
+        return projectService.create(project);
+    }
 
-        if (project.getCommits() != null) {
-            newProject.setCommits(project.getCommits());
-        }
-        if (project.getIssues() != null) {
-            newProject.setIssues(project.getIssues());
+    // POST http://localhost:8080/gitminer/projects/ingest
+    @Operation(summary = "Ingest project", description = "Create a large project by streaming it. The body has the same " +
+            "format as in Create project, but id, name and web_url must come before commits and issues. " +
+            "Entities are validated and written in batches as they are read. With async=true the body is only checked " +
+            "to be well-formed and to start with a valid, new project; it is then written in the background, one " +
+            "transaction per batch, and its progress is reported by Get job",
+            tags = { })
+    @ApiResponses({
+            @ApiResponse(responseCode = "201" ,
+                    description = "Ingest report" ,
+                    content = {@Content(schema = @Schema(implementation = IngestReport.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "202" ,
+                    description = "Ingest job, also linked by the Location header" ,
+                    content = {@Content(schema = @Schema(implementation = IngestJob.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid project" ,
+                    content = {@Content(schema = @Schema())}),
+            @ApiResponse(responseCode = "409" ,
+                    description = "Project already exists" ,
+                    content = {@Content(schema = @Schema())}),
+            @ApiResponse(responseCode = "429" ,
+                    description = "Too many ingest jobs waiting" ,
+                    content = {@Content(schema = @Schema())}),
+            @ApiResponse(responseCode = "503" ,
+                    description = "A snapshot is being restored" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @PostMapping(value = "/ingest", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> ingestProject(@Parameter(name = "async", description = "Queue the project as an ingest job and answer at once", example = "true") @RequestParam(defaultValue = "false") boolean async,
+                                           HttpServletRequest request) throws IOException, ProjectAlreadyExistsException, IngestQueueFullException, RestoreInProgressException {
+        if (async) {
+            IngestJob job = ingestJobService.submit(request.getInputStream());
+            return ResponseEntity.accepted().location(URI.create("/gitminer/jobs/" + job.getId())).body(job);
         }
+        return ResponseEntity.status(HttpStatus.CREATED).body(projectIngestService.ingest(request.getInputStream()));
+    }
 
-        return projectRepository.save(newProject);
+    // POST http://localhost:8080/gitminer/projects/bulk
+    @Operation(summary = "Bulk import projects", description = "Create or update many projects at once. The body is a " +
+            "JSON array of projects in the format of Create project, or newline-delimited JSON with one project per line. " +
+            "Projects are written in parallel, each in its own transaction, and the outcome of every one of them is " +
+            "reported in request order; a failed project does not affect the others",
+            tags = { })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Bulk import report" ,
+                    content = {@Content(schema = @Schema(implementation = BulkImportReport.class),
+                            mediaType = "application/json")})
+    })
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkImportReport bulkImportProjects(HttpServletRequest request) throws IOException {
+        return projectBulkImportService.importAll(request.getInputStream());
     }
 
     // PUT http://localhost:8080/gitminer/projects/{id}
@@ -204,23 +531,39 @@ public class ProjectController {
                             mediaType = "application/json")}),
             @ApiResponse(responseCode = "404" ,
                     description = "Project not found" ,
+                    content = {@Content(schema = @Schema())}),
+            @ApiResponse(responseCode = "503" ,
+                    description = "A snapshot is being restored" ,
                     content = {@Content(schema = @Schema())})
     })
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void updateProject(@RequestBody @Valid Project updatedProject, @PathVariable String id) throws ProjectNotFoundException {
-        Optional<Project> projectData = projectRepository.findById(id);
-        if (projectData.isEmpty()) {
-            throw new ProjectNotFoundException();
-        }
+    public void updateProject(@RequestBody @Valid Project updatedProject, @PathVariable String id) throws ProjectNotFoundException, RestoreInProgressException {
+        projectService.update(id, updatedProject);
+    }
 
-        Project _project = projectData.get();
-        _project.setId(updatedProject.getId());
-        _project.setName(updatedProject.getName());
-        _project.setWebUrl(updatedProject.getWebUrl());
-        _project.setCommits(updatedProject.getCommits());
-        _project.setIssues(updatedProject.getIssues());
-        projectRepository.save(_project);
+    // PATCH http://localhost:8080/gitminer/projects/{id}/sync
+    @Operation(summary = "Sync project", description = "Insert or update only the commits, issues and comments sent " +
+            "in the body, matching them by ID. Entities of the project that are not sent are left untouched",
+            tags = { })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Inserted, updated and unchanged entities" ,
+                    content = {@Content(schema = @Schema(implementation = SyncReport.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid entities" ,
+                    content = {@Content(schema = @Schema())}),
+            @ApiResponse(responseCode = "404" ,
+                    description = "Project not found" ,
+                    content = {@Content(schema = @Schema())}),
+            @ApiResponse(responseCode = "503" ,
+                    description = "A snapshot is being restored" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @PatchMapping("/{id}/sync")
+    public SyncReport syncProject(@RequestBody @Valid ProjectSyncRequest delta, @PathVariable String id) throws ProjectNotFoundException, RestoreInProgressException {
+        return projectService.sync(id, delta);
     }
 
     // PUT http://localhost:8080/gitminer/projects/{id}
@@ -233,15 +576,14 @@ public class ProjectController {
                             mediaType = "application/json")}),
             @ApiResponse(responseCode = "404" ,
                     description = "Project not found" ,
+                    content = {@Content(schema = @Schema())}),
+            @ApiResponse(responseCode = "503" ,
+                    description = "A snapshot is being restored" ,
                     content = {@Content(schema = @Schema())})
     })
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteProject(@PathVariable String id) throws ProjectNotFoundException {
-        if (projectRepository.existsById(id)) {
-            projectRepository.deleteById(id);
-        } else {
-            throw new ProjectNotFoundException();
-        }
+    public void deleteProject(@PathVariable String id) throws ProjectNotFoundException, RestoreInProgressException {
+        projectService.delete(id);
     }
 }
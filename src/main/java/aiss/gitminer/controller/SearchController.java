@@ -0,0 +1,63 @@
+package aiss.gitminer.controller;
+
+import aiss.gitminer.dto.SearchHit;
+import aiss.gitminer.etag.ETags;
+import aiss.gitminer.exception.InvalidCursorException;
+import aiss.gitminer.exception.InvalidSearchQueryException;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.service.SearchIndexService;
+import aiss.gitminer.service.VersionStampService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+@Tag(name = "Search" , description = "Full-text search")
+@RestController
+@RequestMapping("/gitminer/search")
+
+public class SearchController {
+    @Autowired
+    SearchIndexService searchIndexService;
+
+    @Autowired
+    VersionStampService versionStampService;
+
+    // GET http://localhost:8080/gitminer/search?q=deadlock&type=issue&projectId=4207231
+    // GET http://localhost:8080/gitminer/search?q="out of memory"&limit=20&after={cursor}
+    @Operation(summary = "Search commits, issues and comments", description = "Get a page of the commits, issues and " +
+            "comments whose text matches the query, best matches first. All terms are required unless joined with OR, " +
+            "and quoted phrases must appear in order. The cursor of the next page is returned in the Link and X-Next-Cursor headers",
+            tags = { "get" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Ranked list of matches" ,
+                    content = {@Content(schema = @Schema(implementation = SearchHit.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Invalid query, type or cursor" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @GetMapping
+    public ResponseEntity<List<SearchHit>> search(@Parameter(name = "q", description = "Query in Lucene syntax", example = "deadlock") @RequestParam String q,
+                                                  @Parameter(name = "type", description = "Only matches of this type: commit, issue or comment", example = "issue") @RequestParam(required = false) String type,
+                                                  @Parameter(name = "projectId", description = "Only matches of this project", example = "4207231") @RequestParam(required = false) String projectId,
+                                                  @Parameter(name = "limit", description = "Maximum number of matches in the page", example = "50") @RequestParam(defaultValue = "" + KeysetPage.DEFAULT_LIMIT) int limit,
+                                                  @Parameter(name = "after", description = "Cursor returned by the previous page") @RequestParam(required = false) String after,
+                                                  WebRequest webRequest) throws InvalidSearchQueryException, InvalidCursorException {
+        if (webRequest.checkNotModified(ETags.of(versionStampService.listStamp()))) {
+            return null;
+        }
+        return searchIndexService.search(q, type, projectId, KeysetPage.clampLimit(limit), after).toResponseEntity();
+    }
+}
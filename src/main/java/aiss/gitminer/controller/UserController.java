@@ -0,0 +1,44 @@
+package aiss.gitminer.controller;
+
+import aiss.gitminer.dto.BatchResult;
+import aiss.gitminer.exception.BatchTooLargeException;
+import aiss.gitminer.model.User;
+import aiss.gitminer.service.BatchLookupService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Tag(name = "User" , description = "Users")
+@RestController
+@RequestMapping("/gitminer/users")
+
+public class UserController {
+    @Autowired
+    BatchLookupService batchLookupService;
+
+    // POST http://localhost:8080/gitminer/users/batch
+    @Operation(summary = "Get users by ID in bulk", description = "Get up to " + BatchLookupService.MAX_IDS + " users at once, " +
+            "in the order of the given IDs. IDs that are not found get a null item and are listed in not_found",
+            tags = { "post", "id" })
+    @ApiResponses({
+            @ApiResponse(responseCode = "200" ,
+                    description = "Users in request order" ,
+                    content = {@Content(schema = @Schema(implementation = BatchResult.class),
+                            mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400" ,
+                    description = "Too many IDs" ,
+                    content = {@Content(schema = @Schema())})
+    })
+    @PostMapping("/batch")
+    public BatchResult<User> getUsersByIds(@RequestBody List<String> ids) throws BatchTooLargeException {
+        return batchLookupService.findUsers(ids);
+    }
+}
@@ -0,0 +1,28 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// Entities of a multi-get in the order of the requested IDs, null where an ID was not found; the
+// IDs that were not found are listed as well
+public class BatchResult<T> {
+
+    @JsonProperty("items")
+    private final List<T> items;
+    @JsonProperty("not_found")
+    private final List<String> notFound;
+
+    public BatchResult(List<T> items, List<String> notFound) {
+        this.items = items;
+        this.notFound = notFound;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public List<String> getNotFound() {
+        return notFound;
+    }
+}
@@ -0,0 +1,91 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImportReport {
+
+    @JsonProperty("projects")
+    private final List<ProjectResult> projects = new ArrayList<>();
+    @JsonProperty("elapsed_ms")
+    private long elapsedMillis;
+
+    public List<ProjectResult> getProjects() {
+        return projects;
+    }
+
+    @JsonProperty("succeeded")
+    public long getSucceeded() {
+        return projects.stream().filter(ProjectResult::isSucceeded).count();
+    }
+
+    @JsonProperty("failed")
+    public long getFailed() {
+        return projects.size() - getSucceeded();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @JsonProperty("projects_per_second")
+    public double getProjectsPerSecond() {
+        return elapsedMillis == 0 ? projects.size() * 1000.0 : projects.size() * 1000.0 / elapsedMillis;
+    }
+
+    // Outcome of one project of the request, in request order. Written by the worker that imports it.
+    public static class ProjectResult {
+
+        @JsonProperty("index")
+        private final int index;
+        @JsonProperty("project_id")
+        private final String projectId;
+        @JsonProperty("succeeded")
+        private volatile boolean succeeded;
+        @JsonProperty("attempts")
+        private volatile int attempts;
+        @JsonProperty("error")
+        private volatile String error;
+
+        public ProjectResult(int index, String projectId) {
+            this.index = index;
+            this.projectId = projectId;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getProjectId() {
+            return projectId;
+        }
+
+        public boolean isSucceeded() {
+            return succeeded;
+        }
+
+        public void succeed(int attempts) {
+            this.attempts = attempts;
+            succeeded = true;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void fail(int attempts, String error) {
+            this.attempts = attempts;
+            this.error = error;
+        }
+    }
+}
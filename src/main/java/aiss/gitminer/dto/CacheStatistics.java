@@ -0,0 +1,53 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+public class CacheStatistics {
+
+    @JsonProperty("size")
+    private long size;
+    @JsonProperty("maximum_size")
+    private long maximumSize;
+    @JsonProperty("hits")
+    private long hits;
+    @JsonProperty("misses")
+    private long misses;
+    @JsonProperty("hit_rate")
+    private double hitRate;
+    @JsonProperty("evictions")
+    private long evictions;
+
+    public CacheStatistics(long size, long maximumSize, CacheStats stats) {
+        this.size = size;
+        this.maximumSize = maximumSize;
+        this.hits = stats.hitCount();
+        this.misses = stats.missCount();
+        this.hitRate = stats.hitRate();
+        this.evictions = stats.evictionCount();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,42 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+// What an abbreviated commit ID stands for: the commit, if exactly one starts with it, and otherwise
+// the IDs it could be completed to (none, or several when the prefix is ambiguous)
+public class CommitResolution {
+
+    @JsonProperty("prefix")
+    private final String prefix;
+    @JsonProperty("id")
+    private final String id;
+    @JsonProperty("ambiguous")
+    private final boolean ambiguous;
+    @JsonProperty("candidates")
+    private final List<String> candidates;
+
+    public CommitResolution(String prefix, String id, boolean ambiguous, List<String> candidates) {
+        this.prefix = prefix;
+        this.id = id;
+        this.ambiguous = ambiguous;
+        this.candidates = candidates;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isAmbiguous() {
+        return ambiguous;
+    }
+
+    public List<String> getCandidates() {
+        return candidates;
+    }
+}
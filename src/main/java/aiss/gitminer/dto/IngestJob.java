@@ -0,0 +1,139 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// An asynchronous ingest, see IngestJobService. Written by the worker running it and read by status
+// requests at the same time, so every field is volatile and the counts only move after a commit.
+public class IngestJob {
+
+    public enum Status {
+        @JsonProperty("queued") QUEUED,
+        @JsonProperty("running") RUNNING,
+        @JsonProperty("succeeded") SUCCEEDED,
+        @JsonProperty("failed") FAILED
+    }
+
+    @JsonProperty("id")
+    private final String id;
+    @JsonProperty("project_id")
+    private final String projectId;
+    @JsonProperty("status")
+    private volatile Status status = Status.QUEUED;
+    @JsonProperty("submitted_at")
+    private final Instant submittedAt = Instant.now();
+    @JsonProperty("started_at")
+    private volatile Instant startedAt;
+    @JsonProperty("finished_at")
+    private volatile Instant finishedAt;
+    @JsonProperty("commits")
+    private volatile long commits;
+    @JsonProperty("issues")
+    private volatile long issues;
+    @JsonProperty("comments")
+    private volatile long comments;
+    @JsonProperty("users")
+    private volatile long users;
+    @JsonProperty("entities")
+    private volatile long entities;
+    @JsonProperty("error")
+    private volatile String error;
+
+    public IngestJob(String id, String projectId) {
+        this.id = id;
+        this.projectId = projectId;
+    }
+
+    public void start() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    // Counts of what has been committed so far
+    public void progress(IngestReport report) {
+        commits = report.getCommits();
+        issues = report.getIssues();
+        comments = report.getComments();
+        users = report.getUsers();
+        entities = report.getEntities();
+    }
+
+    public void succeed(IngestReport report) {
+        progress(report);
+        finishedAt = Instant.now();
+        status = Status.SUCCEEDED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getCommits() {
+        return commits;
+    }
+
+    public long getIssues() {
+        return issues;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    public long getUsers() {
+        return users;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    public long getEntities() {
+        return entities;
+    }
+
+    @JsonProperty("entities_per_second")
+    public double getEntitiesPerSecond() {
+        Instant started = startedAt;
+        if (started == null) {
+            return 0;
+        }
+        Instant finished = finishedAt;
+        long millis = Duration.between(started, finished == null ? Instant.now() : finished).toMillis();
+        return millis == 0 ? 0 : entities * 1000.0 / millis;
+    }
+}
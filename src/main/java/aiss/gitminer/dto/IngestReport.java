@@ -0,0 +1,77 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class IngestReport {
+
+    @JsonProperty("project_id")
+    private String projectId;
+    @JsonProperty("commits")
+    private long commits;
+    @JsonProperty("issues")
+    private long issues;
+    @JsonProperty("comments")
+    private long comments;
+    @JsonProperty("users")
+    private long users;
+    @JsonProperty("elapsed_ms")
+    private long elapsedMillis;
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public long getCommits() {
+        return commits;
+    }
+
+    public void addCommit() {
+        commits++;
+    }
+
+    public long getIssues() {
+        return issues;
+    }
+
+    public void addIssue() {
+        issues++;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    public void addComment() {
+        comments++;
+    }
+
+    public long getUsers() {
+        return users;
+    }
+
+    public void addUser() {
+        users++;
+    }
+
+    @JsonProperty("entities")
+    public long getEntities() {
+        return 1 + commits + issues + comments + users;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @JsonProperty("entities_per_second")
+    public double getEntitiesPerSecond() {
+        return elapsedMillis == 0 ? getEntities() * 1000.0 : getEntities() * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,94 @@
+package aiss.gitminer.dto;
+
+import aiss.gitminer.histogram.LatencyHistogram;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Time to close and time to first comment of the issues of a project (or of all of them), optionally
+// only those with a label, as of the change log sequence number seq. Quantiles are within
+// LatencyHistogram.RELATIVE_ACCURACY of the exact ones.
+public class IssueLatency {
+
+    @JsonProperty("project_id")
+    private final String projectId;
+    @JsonProperty("label")
+    private final String label;
+    @JsonProperty("seq")
+    private final long seq;
+    // Closed issues only
+    @JsonProperty("time_to_close")
+    private final Summary timeToClose;
+    // Issues with comments only
+    @JsonProperty("time_to_first_comment")
+    private final Summary timeToFirstComment;
+
+    public IssueLatency(String projectId, String label, long seq, LatencyHistogram timeToClose, LatencyHistogram timeToFirstComment) {
+        this.projectId = projectId;
+        this.label = label;
+        this.seq = seq;
+        this.timeToClose = new Summary(timeToClose);
+        this.timeToFirstComment = new Summary(timeToFirstComment);
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public Summary getTimeToClose() {
+        return timeToClose;
+    }
+
+    public Summary getTimeToFirstComment() {
+        return timeToFirstComment;
+    }
+
+    // In seconds; everything but the count is null when there is nothing to measure
+    public static class Summary {
+
+        @JsonProperty("count")
+        private final long count;
+        @JsonProperty("mean_seconds")
+        private final Double meanSeconds;
+        @JsonProperty("p50_seconds")
+        private final Long p50Seconds;
+        @JsonProperty("p90_seconds")
+        private final Long p90Seconds;
+        @JsonProperty("p99_seconds")
+        private final Long p99Seconds;
+
+        Summary(LatencyHistogram histogram) {
+            this.count = histogram.getCount();
+            this.meanSeconds = histogram.mean();
+            this.p50Seconds = histogram.quantile(0.5);
+            this.p90Seconds = histogram.quantile(0.9);
+            this.p99Seconds = histogram.quantile(0.99);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public Double getMeanSeconds() {
+            return meanSeconds;
+        }
+
+        public Long getP50Seconds() {
+            return p50Seconds;
+        }
+
+        public Long getP90Seconds() {
+            return p90Seconds;
+        }
+
+        public Long getP99Seconds() {
+            return p99Seconds;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package aiss.gitminer.dto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Criteria of GET /gitminer/issues/search. Every criterion left null is not applied; labels must all be present.
+// Time bounds are half-open like TimeRange: the "after" ends are inclusive, the "before" ends exclusive.
+public class IssueSearch {
+
+    private String state;
+    private String authorId;
+    private String assigneeId;
+    private List<String> labels = new ArrayList<>();
+    private String projectId;
+    private Integer minVotes;
+    private Instant createdAfter;
+    private Instant createdBefore;
+    private Instant updatedAfter;
+    private Instant updatedBefore;
+    private IssueSort sort = IssueSort.CREATED_AT;
+    private boolean descending;
+    // Set from the label bitmap index when the labels match few issues, see LabelIndexService.narrow
+    private List<String> issueIds;
+    // Sort key and id of the last issue of the previous page, if any
+    private Comparable<?> afterKey;
+    private String afterId;
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(String authorId) {
+        this.authorId = authorId;
+    }
+
+    public String getAssigneeId() {
+        return assigneeId;
+    }
+
+    public void setAssigneeId(String assigneeId) {
+        this.assigneeId = assigneeId;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(List<String> labels) {
+        this.labels = labels;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public Integer getMinVotes() {
+        return minVotes;
+    }
+
+    public void setMinVotes(Integer minVotes) {
+        this.minVotes = minVotes;
+    }
+
+    public Instant getCreatedAfter() {
+        return createdAfter;
+    }
+
+    public void setCreatedAfter(Instant createdAfter) {
+        this.createdAfter = createdAfter;
+    }
+
+    public Instant getCreatedBefore() {
+        return createdBefore;
+    }
+
+    public void setCreatedBefore(Instant createdBefore) {
+        this.createdBefore = createdBefore;
+    }
+
+    public Instant getUpdatedAfter() {
+        return updatedAfter;
+    }
+
+    public void setUpdatedAfter(Instant updatedAfter) {
+        this.updatedAfter = updatedAfter;
+    }
+
+    public Instant getUpdatedBefore() {
+        return updatedBefore;
+    }
+
+    public void setUpdatedBefore(Instant updatedBefore) {
+        this.updatedBefore = updatedBefore;
+    }
+
+    public IssueSort getSort() {
+        return sort;
+    }
+
+    public void setSort(IssueSort sort) {
+        this.sort = sort;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+    public List<String> getIssueIds() {
+        return issueIds;
+    }
+
+    public void setIssueIds(List<String> issueIds) {
+        this.issueIds = issueIds;
+    }
+
+    public Comparable<?> getAfterKey() {
+        return afterKey;
+    }
+
+    public void setAfterKey(Comparable<?> afterKey) {
+        this.afterKey = afterKey;
+    }
+
+    public String getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(String afterId) {
+        this.afterId = afterId;
+    }
+}
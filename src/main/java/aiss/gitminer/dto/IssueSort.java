@@ -0,0 +1,61 @@
+package aiss.gitminer.dto;
+
+import aiss.gitminer.exception.InvalidCursorException;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Optional;
+
+// Sort keys of the issue search. Nullable fields sort as the value they fall back to (an issue never
+// updated was last updated when it was created, no votes count as 0), so every issue has a key and
+// the keyset cursor never has to encode a null
+public enum IssueSort {
+    CREATED_AT("created_at"),
+    UPDATED_AT("updated_at"),
+    VOTES("votes"),
+    ID("id");
+
+    private final String param;
+
+    IssueSort(String param) {
+        this.param = param;
+    }
+
+    public static Optional<IssueSort> fromParam(String param) {
+        return Arrays.stream(values()).filter(sort -> sort.param.equals(param)).findFirst();
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public String keyOf(String id, Instant createdAt, Instant updatedAt, Integer votes) {
+        switch (this) {
+            case CREATED_AT:
+                return createdAt.toString();
+            case UPDATED_AT:
+                return (updatedAt == null ? createdAt : updatedAt).toString();
+            case VOTES:
+                return String.valueOf(votes == null ? 0 : votes);
+            default:
+                return id;
+        }
+    }
+
+    public Comparable<?> parseKey(String key) throws InvalidCursorException {
+        try {
+            switch (this) {
+                case CREATED_AT:
+                case UPDATED_AT:
+                    return Instant.parse(key);
+                case VOTES:
+                    return Integer.valueOf(key);
+                default:
+                    return key;
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new InvalidCursorException();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+// Read-only projection of an issue: no description, labels or comments, and users only by ID. The
+// comment and label counts are aggregated separately, see FetchPlanService.addCounts
+public class IssueSummary {
+
+    @JsonProperty("id")
+    private final String id;
+    @JsonProperty("title")
+    private final String title;
+    @JsonProperty("state")
+    private final String state;
+    @JsonProperty("created_at")
+    private final Instant createdAt;
+    @JsonProperty("updated_at")
+    private final Instant updatedAt;
+    @JsonProperty("closed_at")
+    private final Instant closedAt;
+    @JsonProperty("votes")
+    private final Integer votes;
+    @JsonProperty("author_id")
+    private final String authorId;
+    @JsonProperty("assignee_id")
+    private final String assigneeId;
+    @JsonProperty("comment_count")
+    private long commentCount;
+    @JsonProperty("last_comment_at")
+    private Instant lastCommentAt;
+    @JsonProperty("label_count")
+    private long labelCount;
+
+    public IssueSummary(String id, String title, String state, Instant createdAt, Instant updatedAt, Instant closedAt,
+                        Integer votes, String authorId, String assigneeId) {
+        this.id = id;
+        this.title = title;
+        this.state = state;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.closedAt = closedAt;
+        this.votes = votes;
+        this.authorId = authorId;
+        this.assigneeId = assigneeId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Instant getClosedAt() {
+        return closedAt;
+    }
+
+    public Integer getVotes() {
+        return votes;
+    }
+
+    public String getAuthorId() {
+        return authorId;
+    }
+
+    public String getAssigneeId() {
+        return assigneeId;
+    }
+
+    public long getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(long commentCount) {
+        this.commentCount = commentCount;
+    }
+
+    public Instant getLastCommentAt() {
+        return lastCommentAt;
+    }
+
+    public void setLastCommentAt(Instant lastCommentAt) {
+        this.lastCommentAt = lastCommentAt;
+    }
+
+    public long getLabelCount() {
+        return labelCount;
+    }
+
+    public void setLabelCount(long labelCount) {
+        this.labelCount = labelCount;
+    }
+}
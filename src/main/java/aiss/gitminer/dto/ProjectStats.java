@@ -0,0 +1,123 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Aggregates of GET /projects/{id}/stats, as of the change log sequence number seq
+public class ProjectStats {
+
+    @JsonProperty("project_id")
+    private final String projectId;
+    @JsonProperty("seq")
+    private final long seq;
+    @JsonProperty("commits")
+    private long commits;
+    @JsonProperty("authors")
+    private long authors;
+    // The most active authors only, see ProjectStatsService.stats
+    @JsonProperty("commits_by_author")
+    private final Map<String, Long> commitsByAuthor = new LinkedHashMap<>();
+    @JsonProperty("issues")
+    private long issues;
+    @JsonProperty("issues_by_state")
+    private final Map<String, Long> issuesByState = new LinkedHashMap<>();
+    @JsonProperty("votes")
+    private long votes;
+    @JsonProperty("voted_issues")
+    private long votedIssues;
+    @JsonProperty("comments")
+    private long comments;
+
+    public ProjectStats(String projectId, long seq) {
+        this.projectId = projectId;
+        this.seq = seq;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getCommits() {
+        return commits;
+    }
+
+    public void setCommits(long commits) {
+        this.commits = commits;
+    }
+
+    public long getAuthors() {
+        return authors;
+    }
+
+    public void setAuthors(long authors) {
+        this.authors = authors;
+    }
+
+    public Map<String, Long> getCommitsByAuthor() {
+        return commitsByAuthor;
+    }
+
+    public long getIssues() {
+        return issues;
+    }
+
+    public void setIssues(long issues) {
+        this.issues = issues;
+    }
+
+    public Map<String, Long> getIssuesByState() {
+        return issuesByState;
+    }
+
+    // Every state but closed counts as open: GitHub calls it open, GitLab opened
+    @JsonProperty("open_issues")
+    public long getOpenIssues() {
+        return issues - getClosedIssues();
+    }
+
+    @JsonProperty("closed_issues")
+    public long getClosedIssues() {
+        return issuesByState.getOrDefault("closed", 0L);
+    }
+
+    public long getVotes() {
+        return votes;
+    }
+
+    public void setVotes(long votes) {
+        this.votes = votes;
+    }
+
+    public long getVotedIssues() {
+        return votedIssues;
+    }
+
+    public void setVotedIssues(long votedIssues) {
+        this.votedIssues = votedIssues;
+    }
+
+    // Over the issues that have a vote count
+    @JsonProperty("average_votes")
+    public Double getAverageVotes() {
+        return votedIssues == 0 ? null : (double) votes / votedIssues;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    public void setComments(long comments) {
+        this.comments = comments;
+    }
+
+    @JsonProperty("comments_per_issue")
+    public double getCommentsPerIssue() {
+        return issues == 0 ? 0 : (double) comments / issues;
+    }
+}
@@ -0,0 +1,32 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Read-only projection of a project without its commits and issues
+public class ProjectSummary {
+
+    @JsonProperty("id")
+    private final String id;
+    @JsonProperty("name")
+    private final String name;
+    @JsonProperty("web_url")
+    private final String webUrl;
+
+    public ProjectSummary(String id, String name, String webUrl) {
+        this.id = id;
+        this.name = name;
+        this.webUrl = webUrl;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getWebUrl() {
+        return webUrl;
+    }
+}
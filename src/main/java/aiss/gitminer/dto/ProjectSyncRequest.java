@@ -0,0 +1,56 @@
+package aiss.gitminer.dto;
+
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.List;
+
+// New or changed entities of a project. Anything not listed is left untouched.
+public class ProjectSyncRequest {
+
+    @JsonProperty("name")
+    private String name;
+    @JsonProperty("web_url")
+    private String webUrl;
+    @JsonProperty("commits")
+    @Valid
+    private List<Commit> commits = new ArrayList<>();
+    @JsonProperty("issues")
+    @Valid
+    private List<Issue> issues = new ArrayList<>();
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getWebUrl() {
+        return webUrl;
+    }
+
+    public void setWebUrl(String webUrl) {
+        this.webUrl = webUrl;
+    }
+
+    public List<Commit> getCommits() {
+        return commits;
+    }
+
+    public void setCommits(List<Commit> commits) {
+        this.commits = commits == null ? new ArrayList<>() : commits;
+    }
+
+    public List<Issue> getIssues() {
+        return issues;
+    }
+
+    public void setIssues(List<Issue> issues) {
+        this.issues = issues == null ? new ArrayList<>() : issues;
+    }
+}
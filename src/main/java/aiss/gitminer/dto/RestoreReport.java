@@ -0,0 +1,40 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class RestoreReport {
+
+    @JsonProperty("rows")
+    private final Map<String, Long> rows = new LinkedHashMap<>();
+    @JsonProperty("elapsed_ms")
+    private long elapsedMillis;
+
+    public Map<String, Long> getRows() {
+        return rows;
+    }
+
+    public void addRows(String table, long count) {
+        rows.merge(table, count, Long::sum);
+    }
+
+    @JsonProperty("total_rows")
+    public long getTotalRows() {
+        return rows.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @JsonProperty("rows_per_second")
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? getTotalRows() * 1000.0 : getTotalRows() * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,46 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// One result of the full-text search: which commit, issue or comment matched, and how well
+public class SearchHit {
+
+    @JsonProperty("type")
+    private final String type;
+    @JsonProperty("id")
+    private final String id;
+    @JsonProperty("project_id")
+    private final String projectId;
+    @JsonProperty("title")
+    private final String title;
+    @JsonProperty("score")
+    private final float score;
+
+    public SearchHit(String type, String id, String projectId, String title, float score) {
+        this.type = type;
+        this.id = id;
+        this.projectId = projectId;
+        this.title = title;
+        this.score = score;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public float getScore() {
+        return score;
+    }
+}
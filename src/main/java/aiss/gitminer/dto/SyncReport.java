@@ -0,0 +1,59 @@
+package aiss.gitminer.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class SyncReport {
+
+    @JsonProperty("commits")
+    private final Counts commits = new Counts();
+    @JsonProperty("issues")
+    private final Counts issues = new Counts();
+    @JsonProperty("comments")
+    private final Counts comments = new Counts();
+
+    public Counts getCommits() {
+        return commits;
+    }
+
+    public Counts getIssues() {
+        return issues;
+    }
+
+    public Counts getComments() {
+        return comments;
+    }
+
+    public static class Counts {
+
+        @JsonProperty("inserted")
+        private long inserted;
+        @JsonProperty("updated")
+        private long updated;
+        @JsonProperty("unchanged")
+        private long unchanged;
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public void addInserted() {
+            inserted++;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public void addUpdated() {
+            updated++;
+        }
+
+        public long getUnchanged() {
+            return unchanged;
+        }
+
+        public void addUnchanged() {
+            unchanged++;
+        }
+    }
+}
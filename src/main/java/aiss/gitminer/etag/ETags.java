@@ -0,0 +1,53 @@
+package aiss.gitminer.etag;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+
+// Strong ETags built from the version stamps of VersionStampService
+public class ETags {
+
+    private static final String GZIP_SUFFIX = "-gzip";
+
+    private ETags() {
+    }
+
+    public static String of(String stamp) {
+        return "\"" + stamp + "\"";
+    }
+
+    public static String gzip(String stamp) {
+        return "\"" + stamp + GZIP_SUFFIX + "\"";
+    }
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    // Checked before anything is loaded. The If-None-Match header may list several tags (or be "*");
+    // the body could still be served under either encoding, so both tags of the stamp match.
+    public static Optional<String> matching(String ifNoneMatch, String stamp) {
+        if (ifNoneMatch == null) {
+            return Optional.empty();
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*")) {
+                return Optional.of(of(stamp));
+            }
+            if (tag.equals(of(stamp)) || tag.equals(gzip(stamp))) {
+                return Optional.of(tag);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static <T> Optional<ResponseEntity<T>> notModified(String ifNoneMatch, Optional<String> stamp) {
+        return stamp.flatMap(s -> matching(ifNoneMatch, s))
+                .map(tag -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).<T>build());
+    }
+}
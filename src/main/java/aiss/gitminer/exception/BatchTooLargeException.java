@@ -0,0 +1,8 @@
+package aiss.gitminer.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Too many IDs in one batch.")
+public class BatchTooLargeException extends Exception {
+}
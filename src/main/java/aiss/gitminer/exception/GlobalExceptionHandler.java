@@ -1,5 +1,6 @@
 package aiss.gitminer.exception;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -8,6 +9,8 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,4 +32,26 @@ public class GlobalExceptionHandler {
 
         return new ResponseEntity<>(res, HttpStatus.BAD_REQUEST);
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseBody
+    public ResponseEntity<Map<String, List<String>>> handleConstraintViolationException(ConstraintViolationException ex) {
+        List<String> errors = ex.getConstraintViolations().stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.toList());
+
+        Map<String, List<String>> res = new HashMap<>();
+        res.put("errors", errors);
+
+        return new ResponseEntity<>(res, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(JsonProcessingException.class)
+    @ResponseBody
+    public ResponseEntity<Map<String, List<String>>> handleJsonProcessingException(JsonProcessingException ex) {
+        Map<String, List<String>> res = new HashMap<>();
+        res.put("errors", List.of(ex.getOriginalMessage()));
+
+        return new ResponseEntity<>(res, HttpStatus.BAD_REQUEST);
+    }
+}
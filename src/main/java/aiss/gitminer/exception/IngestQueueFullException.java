@@ -0,0 +1,8 @@
+package aiss.gitminer.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.TOO_MANY_REQUESTS, reason = "Too many ingest jobs waiting, try again later.")
+public class IngestQueueFullException extends Exception {
+}
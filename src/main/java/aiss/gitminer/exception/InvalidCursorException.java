@@ -0,0 +1,8 @@
+package aiss.gitminer.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Invalid pagination cursor.")
+public class InvalidCursorException extends Exception {
+}
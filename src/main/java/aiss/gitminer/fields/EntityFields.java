@@ -0,0 +1,107 @@
+package aiss.gitminer.fields;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// What a sparse fieldset can select from each entity: its scalar properties, by JSON name and in the
+// order they are serialized, and the associations that can be embedded in it
+public final class EntityFields {
+
+    public enum Kind {
+        // A single entity referenced by a foreign key of the owner, like Issue.author
+        TO_ONE,
+        // A collection of values stored with the owner, like Issue.labels
+        ELEMENTS,
+        // The entities whose foreign key points at the owner, like the comments of an issue
+        CHILDREN
+    }
+
+    public static final EntityFields USER = new EntityFields("User", scalars(
+            "id", "id", "username", "username", "name", "name", "avatar_url", "avatarUrl", "web_url", "webUrl"));
+    public static final EntityFields COMMENT = new EntityFields("Comment", scalars(
+            "id", "id", "body", "body", "created_at", "createdAt", "updated_at", "updatedAt"))
+            .with("author", Kind.TO_ONE, "author", USER);
+    public static final EntityFields COMMIT = new EntityFields("Commit", scalars(
+            "id", "id", "title", "title", "message", "message", "author_name", "authorName", "author_email", "authorEmail",
+            "authored_date", "authoredDate", "web_url", "webUrl"));
+    public static final EntityFields ISSUE = new EntityFields("Issue", scalars(
+            "id", "id", "title", "title", "description", "description", "state", "state", "created_at", "createdAt",
+            "updated_at", "updatedAt", "closed_at", "closedAt", "votes", "votes"))
+            .with("labels", Kind.ELEMENTS, "labels", null)
+            .with("author", Kind.TO_ONE, "author", USER)
+            .with("assignee", Kind.TO_ONE, "assignee", USER)
+            .with("comments", Kind.CHILDREN, "issueId", COMMENT);
+    public static final EntityFields PROJECT = new EntityFields("Project", scalars(
+            "id", "id", "name", "name", "web_url", "webUrl"))
+            .with("commits", Kind.CHILDREN, "projectId", COMMIT)
+            .with("issues", Kind.CHILDREN, "projectId", ISSUE);
+
+    private final String entity;
+    private final Map<String, String> scalars;
+    private final Map<String, Association> associations = new LinkedHashMap<>();
+
+    private EntityFields(String entity, Map<String, String> scalars) {
+        this.entity = entity;
+        this.scalars = scalars;
+    }
+
+    private static Map<String, String> scalars(String... namesAndAttributes) {
+        Map<String, String> scalars = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndAttributes.length; i += 2) {
+            scalars.put(namesAndAttributes[i], namesAndAttributes[i + 1]);
+        }
+        return Collections.unmodifiableMap(scalars);
+    }
+
+    private EntityFields with(String name, Kind kind, String attribute, EntityFields target) {
+        associations.put(name, new Association(name, kind, attribute, target));
+        return this;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    // JSON name to entity attribute
+    public Map<String, String> getScalars() {
+        return scalars;
+    }
+
+    public Optional<Association> association(String name) {
+        return Optional.ofNullable(associations.get(name));
+    }
+
+    public static class Association {
+
+        private final String name;
+        private final Kind kind;
+        // The attribute of the owner (TO_ONE, ELEMENTS) or the foreign key of the target (CHILDREN)
+        private final String attribute;
+        private final EntityFields target;
+
+        Association(String name, Kind kind, String attribute, EntityFields target) {
+            this.name = name;
+            this.kind = kind;
+            this.attribute = attribute;
+            this.target = target;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getAttribute() {
+            return attribute;
+        }
+
+        public EntityFields getTarget() {
+            return target;
+        }
+    }
+}
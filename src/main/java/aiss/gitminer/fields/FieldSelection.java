@@ -0,0 +1,124 @@
+package aiss.gitminer.fields;
+
+import aiss.gitminer.exception.InvalidFieldsException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// A sparse fieldset, parsed from the fields and include parameters of a request.
+//   fields=id,title,author.username  the properties to return; dotted paths select inside embedded objects
+//   include=comments,comments.author the associations to embed; naming one in fields embeds it as well
+// The ID is always returned, an object without selected properties gets all of its scalar ones, and
+// associations that are not asked for are left out (and never read).
+public final class FieldSelection {
+
+    private final EntityFields type;
+    private final List<String> scalars;
+    private final Map<String, FieldSelection> includes;
+
+    private FieldSelection(EntityFields type, List<String> scalars, Map<String, FieldSelection> includes) {
+        this.type = type;
+        this.scalars = scalars;
+        this.includes = includes;
+    }
+
+    // Empty if the request asked for neither, so that it gets the full representation
+    public static Optional<FieldSelection> parse(EntityFields type, List<String> fields, List<String> include) throws InvalidFieldsException {
+        if (fields == null && include == null) {
+            return Optional.empty();
+        }
+        Builder root = new Builder(type);
+        for (String path : include == null ? List.<String>of() : include) {
+            if (!path.isBlank()) {
+                root.include(Arrays.asList(path.trim().split("\\.")));
+            }
+        }
+        for (String path : fields == null ? List.<String>of() : fields) {
+            if (!path.isBlank()) {
+                root.field(Arrays.asList(path.trim().split("\\.")));
+            }
+        }
+        return Optional.of(root.build());
+    }
+
+    public EntityFields getType() {
+        return type;
+    }
+
+    // JSON names, the ID first
+    public List<String> getScalars() {
+        return scalars;
+    }
+
+    public Map<String, FieldSelection> getIncludes() {
+        return includes;
+    }
+
+    private static class Builder {
+
+        private final EntityFields type;
+        private final Set<String> scalars = new LinkedHashSet<>();
+        private final Map<String, Builder> includes = new LinkedHashMap<>();
+
+        Builder(EntityFields type) {
+            this.type = type;
+        }
+
+        void include(List<String> path) throws InvalidFieldsException {
+            Builder child = child(path.get(0));
+            if (path.size() > 1) {
+                child.include(path.subList(1, path.size()));
+            }
+        }
+
+        void field(List<String> path) throws InvalidFieldsException {
+            if (type == null) {
+                // Values of an ELEMENTS association have no properties
+                throw new InvalidFieldsException();
+            }
+            if (path.size() == 1 && type.getScalars().containsKey(path.get(0))) {
+                scalars.add(path.get(0));
+            } else if (path.size() == 1) {
+                child(path.get(0));
+            } else {
+                child(path.get(0)).field(path.subList(1, path.size()));
+            }
+        }
+
+        private Builder child(String name) throws InvalidFieldsException {
+            if (type == null) {
+                throw new InvalidFieldsException();
+            }
+            EntityFields.Association association = type.association(name).orElseThrow(InvalidFieldsException::new);
+            Builder child = includes.get(name);
+            if (child == null) {
+                child = new Builder(association.getTarget());
+                includes.put(name, child);
+            }
+            return child;
+        }
+
+        FieldSelection build() {
+            List<String> selected = new ArrayList<>();
+            if (type != null) {
+                for (String name : type.getScalars().keySet()) {
+                    if (scalars.isEmpty() || scalars.contains(name) || name.equals("id")) {
+                        selected.add(name);
+                    }
+                }
+            }
+            Map<String, FieldSelection> built = new LinkedHashMap<>();
+            for (Map.Entry<String, Builder> include : includes.entrySet()) {
+                built.put(include.getKey(), include.getValue().build());
+            }
+            return new FieldSelection(type, Collections.unmodifiableList(selected), Collections.unmodifiableMap(built));
+        }
+    }
+}
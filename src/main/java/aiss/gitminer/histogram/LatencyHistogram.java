@@ -0,0 +1,98 @@
+package aiss.gitminer.histogram;
+
+import java.util.Arrays;
+
+// Counts of durations, in seconds, in logarithmic buckets: each bucket is a fixed ratio wider than the
+// one before, so every quantile is known within RELATIVE_ACCURACY of its true value at any scale, and
+// memory depends on the spread of the durations (a few hundred buckets from a second to decades), never
+// on how many there are. All histograms share the buckets, so they add up: the ones of several projects
+// or labels merge into one. Durations can be taken out again when the row they came from changes.
+public class LatencyHistogram {
+
+    public static final double RELATIVE_ACCURACY = 0.02;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // Bucket 0 holds durations under a second; bucket i > 0 holds [GAMMA^(i-1), GAMMA^i) seconds.
+    // Only the range of buckets in use is allocated, counts[0] is bucket offset.
+    private int[] counts = new int[0];
+    private int offset;
+    private long count;
+    private long sum;
+
+    static int bucket(long seconds) {
+        return seconds < 1 ? 0 : 1 + (int) Math.floor(Math.log(seconds) / LOG_GAMMA);
+    }
+
+    // The value whose relative error is the same towards both ends of the bucket
+    static double value(int bucket) {
+        return bucket == 0 ? 0 : 2 * Math.pow(GAMMA, bucket) / (1 + GAMMA);
+    }
+
+    public void add(long seconds) {
+        increment(bucket(seconds), 1);
+        count++;
+        sum += seconds;
+    }
+
+    // Must have been added before
+    public void remove(long seconds) {
+        increment(bucket(seconds), -1);
+        count--;
+        sum -= seconds;
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+                increment(other.offset + i, other.counts[i]);
+            }
+        }
+        count += other.count;
+        sum += other.sum;
+    }
+
+    private void increment(int bucket, int delta) {
+        if (counts.length == 0) {
+            counts = new int[1];
+            offset = bucket;
+        } else if (bucket < offset) {
+            int[] grown = new int[counts.length + offset - bucket];
+            System.arraycopy(counts, 0, grown, offset - bucket, counts.length);
+            counts = grown;
+            offset = bucket;
+        } else if (bucket >= offset + counts.length) {
+            counts = Arrays.copyOf(counts, bucket - offset + 1);
+        }
+        counts[bucket - offset] += delta;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    // Exact, the durations themselves are summed
+    public Double mean() {
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    // The duration, in whole seconds, below which the given fraction of the durations falls
+    public Long quantile(double fraction) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = (long) Math.floor(fraction * (count - 1));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return Math.round(value(offset + i));
+            }
+        }
+        return Math.round(value(offset + counts.length - 1));
+    }
+}
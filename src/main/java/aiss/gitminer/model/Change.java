@@ -0,0 +1,90 @@
+package aiss.gitminer.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+// One record of the change log: an entity that a committed write inserted or updated (upsert) or
+// deleted. Sequence numbers follow commit order, see ChangeLogService.
+@Entity
+@Table(name = "change_log")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Change {
+
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+    // Written after a snapshot was restored: everything read before it is stale
+    public static final String RESET = "reset";
+
+    @Id
+    @JsonProperty("seq")
+    private Long seq;
+    @JsonProperty("entity")
+    @Column(nullable = false, length = 16)
+    private String entity;
+    @JsonProperty("id")
+    @Column(name = "entity_id")
+    private String entityId;
+    @JsonProperty("op")
+    @Column(nullable = false, length = 8)
+    private String operation;
+    @JsonProperty("project_id")
+    private String projectId;
+    @JsonProperty("issue_id")
+    private String issueId;
+    @JsonProperty("changed_at")
+    @Column(nullable = false)
+    private Instant changedAt;
+
+    protected Change() {
+    }
+
+    public Change(String entity, String entityId, String operation, String projectId, String issueId) {
+        this.entity = entity;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.projectId = projectId;
+        this.issueId = issueId;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public String getIssueId() {
+        return issueId;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(Instant changedAt) {
+        this.changedAt = changedAt;
+    }
+}
@@ -0,0 +1,46 @@
+package aiss.gitminer.model;
+
+import aiss.gitminer.service.ChangeLogService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+// Reports every row Hibernate writes for a project, commit, issue or comment to the change log,
+// including the ones cascaded from their owner. Created by Spring through Hibernate's bean container,
+// like LabelConverter.
+public class ChangeCapture {
+
+    @Autowired
+    ObjectProvider<ChangeLogService> changeLogService;
+
+    @PostPersist
+    @PostUpdate
+    void upserted(Object entity) {
+        changeLogService.getObject().capture(change(entity, Change.UPSERT));
+    }
+
+    @PostRemove
+    void removed(Object entity) {
+        changeLogService.getObject().capture(change(entity, Change.DELETE));
+    }
+
+    private static Change change(Object entity, String operation) {
+        if (entity instanceof Commit) {
+            Commit commit = (Commit) entity;
+            return new Change("commit", commit.getId(), operation, commit.getProjectId(), null);
+        }
+        if (entity instanceof Issue) {
+            Issue issue = (Issue) entity;
+            return new Change("issue", issue.getId(), operation, issue.getProjectId(), null);
+        }
+        if (entity instanceof Comment) {
+            Comment comment = (Comment) entity;
+            return new Change("comment", comment.getId(), operation, null, comment.getIssueId());
+        }
+        Project project = (Project) entity;
+        return new Change("project", project.getId(), operation, project.getId(), null);
+    }
+}
@@ -0,0 +1,29 @@
+package aiss.gitminer.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Sequence number of the last record of the change log, in a single row (id 1) that every append
+// locks until its transaction ends. Only written through JDBC, see ChangeLogService.
+@Entity
+@Table(name = "change_log_seq")
+public class ChangeLogSeq {
+
+    @Id
+    private Integer id;
+    @Column(nullable = false)
+    private Long seq;
+
+    protected ChangeLogSeq() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+}
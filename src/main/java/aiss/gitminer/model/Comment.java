@@ -1,14 +1,21 @@
 package aiss.gitminer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
 
 @Entity
-@Table(name = "Comment")
-public class Comment {
+@EntityListeners(ChangeCapture.class)
+@Table(name = "Comment", indexes = {
+        @Index(name = "idx_comment_created_at", columnList = "createdAt, id"),
+        @Index(name = "idx_comment_issue_created_at", columnList = "issueId, createdAt, id")
+})
+public class Comment implements Persistable<String> {
 
     @Id
     @JsonProperty("id")
@@ -24,10 +31,21 @@ public class Comment {
     @OneToOne(cascade=CascadeType.ALL)
     private User author;
     @JsonProperty("created_at")
-    @NotEmpty(message = "The field created_at of the comment cannot be empty.")
-    private String createdAt;
+    @NotNull(message = "The field created_at of the comment cannot be empty.")
+    private Instant createdAt;
     @JsonProperty("updated_at")
-    private String updatedAt;
+    private Instant updatedAt;
+    // Same column as Issue.comments' join column, written directly by the bulk ingest path
+    @JsonIgnore
+    @Column(name = "issueId", updatable = false)
+    private String issueId;
+
+    // Fingerprint of the serialized fields, compared on re-ingest to skip unchanged rows
+    @JsonIgnore
+    private Long contentHash;
+    @Transient
+    @JsonIgnore
+    private boolean newEntity;
 
     public String getId() {
         return id;
@@ -53,22 +71,60 @@ public class Comment {
         this.author = author;
     }
 
-    public String getCreatedAt() {
+    public Instant getCreatedAt() {
         return createdAt;
     }
 
-    public void setCreatedAt(String createdAt) {
+    public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
 
-    public String getUpdatedAt() {
+    public Instant getUpdatedAt() {
         return updatedAt;
     }
 
-    public void setUpdatedAt(String updatedAt) {
+    public void setUpdatedAt(Instant updatedAt) {
         this.updatedAt = updatedAt;
     }
 
+    public String getIssueId() {
+        return issueId;
+    }
+
+    public void setIssueId(String issueId) {
+        this.issueId = issueId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    public void markNew() {
+        this.newEntity = true;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+
+    public Long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(Long contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateContentHash() {
+        this.contentHash = ContentHash.of(this);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -1,16 +1,32 @@
 package aiss.gitminer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.time.Instant;
 
 @Entity
-@Table(name = "Commit")
-public class Commit {
+@EntityListeners(ChangeCapture.class)
+// Time-range listings are keyset scans over (authored date, id), globally or within a project
+@Table(name = "Commit", indexes = {
+        @Index(name = "idx_commit_authored_date", columnList = "authoredDate, id"),
+        @Index(name = "idx_commit_project_authored_date", columnList = "projectId, authoredDate, id")
+})
+public class Commit implements Persistable<String> {
 
     @Id
     @JsonProperty("id")
@@ -27,12 +43,23 @@ public class Commit {
     @JsonProperty("author_email")
     private String authorEmail;
     @JsonProperty("authored_date")
-    @NotEmpty(message = "The author date cannot be empty.")
-    private String authoredDate;
+    @NotNull(message = "The author date cannot be empty.")
+    private Instant authoredDate;
     @JsonProperty("web_url")
     @NotEmpty(message = "The URL cannot be empty." + "")
 
     private String webUrl;
+    // Same column as Project.commits' join column, written directly by the bulk ingest path
+    @JsonIgnore
+    @Column(name = "projectId", updatable = false)
+    private String projectId;
+
+    // Fingerprint of the serialized fields, compared on re-ingest to skip unchanged rows
+    @JsonIgnore
+    private Long contentHash;
+    @Transient
+    @JsonIgnore
+    private boolean newEntity;
 
     public String getId() {
         return id;
@@ -74,11 +101,11 @@ public class Commit {
         this.authorEmail = authorEmail;
     }
 
-    public String getAuthoredDate() {
+    public Instant getAuthoredDate() {
         return authoredDate;
     }
 
-    public void setAuthoredDate(String authoredDate) {
+    public void setAuthoredDate(Instant authoredDate) {
         this.authoredDate = authoredDate;
     }
 
@@ -90,6 +117,44 @@ public class Commit {
         this.webUrl = webUrl;
     }
 
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    public void markNew() {
+        this.newEntity = true;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+
+    public Long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(Long contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateContentHash() {
+        this.contentHash = ContentHash.of(this);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,98 @@
+package aiss.gitminer.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.List;
+
+// 64-bit fingerprint of the serialized fields of an entity, used to skip rewriting unchanged rows.
+// Child collections (the comments of an issue) are not part of their parent's hash.
+public final class ContentHash {
+
+    private final MessageDigest digest;
+
+    private ContentHash() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static long of(Commit commit) {
+        return new ContentHash()
+                .add(commit.getTitle())
+                .add(commit.getMessage())
+                .add(commit.getAuthorName())
+                .add(commit.getAuthorEmail())
+                .add(commit.getAuthoredDate())
+                .add(commit.getWebUrl())
+                .value();
+    }
+
+    public static long of(Issue issue) {
+        return new ContentHash()
+                .add(issue.getTitle())
+                .add(issue.getDescription())
+                .add(issue.getState())
+                .add(issue.getCreatedAt())
+                .add(issue.getUpdatedAt())
+                .add(issue.getClosedAt())
+                .add(issue.getLabels())
+                .add(issue.getAuthor())
+                .add(issue.getAssignee())
+                .add(issue.getVotes() == null ? null : issue.getVotes().toString())
+                .value();
+    }
+
+    public static long of(Comment comment) {
+        return new ContentHash()
+                .add(comment.getBody())
+                .add(comment.getAuthor())
+                .add(comment.getCreatedAt())
+                .add(comment.getUpdatedAt())
+                .value();
+    }
+
+    // Every value is length-prefixed so that ("ab", "c") and ("a", "bc") hash differently
+    private ContentHash add(String value) {
+        if (value == null) {
+            digest.update(ByteBuffer.allocate(4).putInt(-1).array());
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+            digest.update(bytes);
+        }
+        return this;
+    }
+
+    private ContentHash add(Instant value) {
+        return add(value == null ? null : value.toString());
+    }
+
+    private ContentHash add(List<String> values) {
+        if (values == null) {
+            return add((String) null);
+        }
+        digest.update(ByteBuffer.allocate(4).putInt(values.size()).array());
+        values.forEach(this::add);
+        return this;
+    }
+
+    private ContentHash add(User user) {
+        if (user == null) {
+            return add((String) null);
+        }
+        return add(user.getId())
+                .add(user.getUsername())
+                .add(user.getName())
+                .add(user.getAvatarUrl())
+                .add(user.getWebUrl());
+    }
+
+    private long value() {
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+}
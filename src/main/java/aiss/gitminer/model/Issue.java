@@ -1,15 +1,37 @@
 package aiss.gitminer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
 import java.util.List;
 
 @Entity
-@Table(name = "Issue")
-public class Issue {
+@EntityListeners(ChangeCapture.class)
+// Time-range listings are keyset scans over (timestamp, id); the others serve the common
+// combinations of the issue search
+@Table(name = "Issue", indexes = {
+        @Index(name = "idx_issue_created_at", columnList = "createdAt, id"),
+        @Index(name = "idx_issue_updated_at", columnList = "updatedAt, id"),
+        @Index(name = "idx_issue_project_state", columnList = "projectId, state, createdAt"),
+        @Index(name = "idx_issue_author_state", columnList = "author_id, state, createdAt"),
+        @Index(name = "idx_issue_state_created_at", columnList = "state, createdAt, id")
+})
+// Fetch plans: labels and comments are bags, so they are loaded by separate queries
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "Issue.users",
+                attributeNodes = { @NamedAttributeNode("author"), @NamedAttributeNode("assignee") }),
+        @NamedEntityGraph(name = "Issue.labels", attributeNodes = @NamedAttributeNode("labels")),
+        @NamedEntityGraph(name = "Issue.comments",
+                attributeNodes = @NamedAttributeNode(value = "comments", subgraph = "comment.author"),
+                subgraphs = @NamedSubgraph(name = "comment.author", attributeNodes = @NamedAttributeNode("author")))
+})
+public class Issue implements Persistable<String> {
 
     @Id
     @JsonProperty("id")
@@ -24,14 +46,16 @@ public class Issue {
     @JsonProperty("state")
     private String state;
     @JsonProperty("created_at")
-    @NotEmpty(message = "The field created_at of the issue cannot be empty.")
-    private String createdAt;
+    @NotNull(message = "The field created_at of the issue cannot be empty.")
+    private Instant createdAt;
     @JsonProperty("updated_at")
-    private String updatedAt;
+    private Instant updatedAt;
     @JsonProperty("closed_at")
-    private String closedAt;
+    private Instant closedAt;
     @JsonProperty("labels")
     @ElementCollection
+    @Column(name = "label_id")
+    @Convert(converter = LabelConverter.class)
     private List<String> labels;
     @JsonProperty("author")
     @NotNull(message = "The author of the issue cannot be empty")
@@ -48,6 +72,17 @@ public class Issue {
     @OneToMany(cascade = CascadeType.ALL)
     @JoinColumn(name = "issueId")
     private List<Comment> comments;
+    // Same column as Project.issues' join column, written directly by the bulk ingest path
+    @JsonIgnore
+    @Column(name = "projectId", updatable = false)
+    private String projectId;
+
+    // Fingerprint of the serialized fields, compared on re-ingest to skip unchanged rows
+    @JsonIgnore
+    private Long contentHash;
+    @Transient
+    @JsonIgnore
+    private boolean newEntity;
 
     public String getId() {
         return id;
@@ -85,27 +120,27 @@ public class Issue {
         this.state = state;
     }
 
-    public String getCreatedAt() {
+    public Instant getCreatedAt() {
         return createdAt;
     }
 
-    public void setCreatedAt(String createdAt) {
+    public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
 
-    public String getUpdatedAt() {
+    public Instant getUpdatedAt() {
         return updatedAt;
     }
 
-    public void setUpdatedAt(String updatedAt) {
+    public void setUpdatedAt(Instant updatedAt) {
         this.updatedAt = updatedAt;
     }
 
-    public String getClosedAt() {
+    public Instant getClosedAt() {
         return closedAt;
     }
 
-    public void setClosedAt(String closedAt) {
+    public void setClosedAt(Instant closedAt) {
         this.closedAt = closedAt;
     }
 
@@ -147,6 +182,45 @@ public class Issue {
         this.comments = comments;
     }
 
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    public void markNew() {
+        this.newEntity = true;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+
+    public Long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(Long contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    // Lazy labels must not be loaded during a flush; an unknown hash just makes the next sync rewrite the row
+    @PrePersist
+    @PreUpdate
+    void updateContentHash() {
+        this.contentHash = Hibernate.isInitialized(labels) ? ContentHash.of(this) : null;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,35 @@
+package aiss.gitminer.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Label dictionary: every distinct label text is stored once, and issues refer to it by ID (see LabelConverter)
+@Entity
+@Table(name = "Label")
+public class Label {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    @Column(nullable = false, unique = true)
+    private String name;
+
+    protected Label() {
+    }
+
+    public Label(String name) {
+        this.name = name;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
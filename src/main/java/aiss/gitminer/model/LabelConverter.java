@@ -0,0 +1,28 @@
+package aiss.gitminer.model;
+
+import aiss.gitminer.service.LabelDictionary;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+// Stores each label of an issue as the ID of its text in the Label dictionary, which must already
+// hold it (see LabelDictionary.internAll). Created by Spring through Hibernate's bean container; the
+// dictionary is looked up lazily because this converter is built before the repositories exist.
+@Converter
+public class LabelConverter implements AttributeConverter<String, Integer> {
+
+    @Autowired
+    ObjectProvider<LabelDictionary> labelDictionary;
+
+    @Override
+    public Integer convertToDatabaseColumn(String label) {
+        return label == null ? null : labelDictionary.getObject().id(label);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : labelDictionary.getObject().name(id);
+    }
+}
@@ -1,6 +1,8 @@
 package aiss.gitminer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -9,8 +11,17 @@ import java.util.List;
 
 
 @Entity
+@EntityListeners(ChangeCapture.class)
 @Table(name = "Project")
-public class Project {
+// Fetch plans: the two bags cannot be join fetched together, so each one is loaded by its own query
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "Project.commits", attributeNodes = @NamedAttributeNode("commits")),
+        @NamedEntityGraph(name = "Project.issues",
+                attributeNodes = @NamedAttributeNode(value = "issues", subgraph = "issue.users"),
+                subgraphs = @NamedSubgraph(name = "issue.users",
+                        attributeNodes = { @NamedAttributeNode("author"), @NamedAttributeNode("assignee") }))
+})
+public class Project implements Persistable<String> {
 
     @Id
     @JsonProperty("id")
@@ -30,6 +41,18 @@ public class Project {
     @OneToMany(cascade = CascadeType.ALL)
     @JoinColumn(name = "projectId")
     private List<Issue> issues;
+    // Changes on every write that alters the JSON of the project or of anything nested in it,
+    // including users shared with other projects; it is the ETag of the project and its children
+    @JsonIgnore
+    private long revision;
+
+    // IDs are assigned by the miners, so Spring Data takes every entity for a stored one and save()
+    // merges it, reading each row first. ProjectService marks the rows it knows are not stored yet
+    // (a project posted for the first time, the rows a sync finds missing and users seen for the first
+    // time) so that they are persisted instead. Commit, Issue, Comment and User carry the same flag.
+    @Transient
+    @JsonIgnore
+    private boolean newEntity;
 
     public Project() {
         commits = new ArrayList<>();
@@ -84,6 +107,30 @@ public class Project {
         this.issues = issues;
     }
 
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    public void markNew() {
+        this.newEntity = true;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,72 @@
+package aiss.gitminer.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+
+// One counter of the statistics of a project: commits, issues, votes, voted_issues and comments
+// with an empty name, or the commits of the author or the issues of the state it names. Counters
+// that drop to zero are deleted. Only written through JDBC, see ProjectStatsService.
+@Entity
+@Table(name = "project_stats")
+@IdClass(ProjectStatsCount.Key.class)
+public class ProjectStatsCount {
+
+    @Id
+    @Column(name = "project_id")
+    private String projectId;
+    @Id
+    @Column(length = 16)
+    private String kind;
+    @Id
+    private String name;
+    @Column(nullable = false)
+    private Long total;
+
+    protected ProjectStatsCount() {
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public static class Key implements Serializable {
+
+        private String projectId;
+        private String kind;
+        private String name;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(projectId, key.projectId) && Objects.equals(kind, key.kind) && Objects.equals(name, key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(projectId, kind, name);
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package aiss.gitminer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.validation.constraints.NotEmpty;
 
 @Entity
 @Table(name = "GMUser")
-public class User {
+public class User implements Persistable<String> {
 
     @Id
     @JsonProperty("id")
@@ -26,6 +31,10 @@ public class User {
     @NotEmpty(message = "The URL of the user cannot be empty.")
     private String webUrl;
 
+    @Transient
+    @JsonIgnore
+    private boolean newEntity;
+
     public String getId() {
         return id;
     }
@@ -66,6 +75,22 @@ public class User {
         this.webUrl = webUrl;
     }
 
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    public void markNew() {
+        this.newEntity = true;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
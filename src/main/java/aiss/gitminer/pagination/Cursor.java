@@ -0,0 +1,38 @@
+package aiss.gitminer.pagination;
+
+import aiss.gitminer.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque keyset cursor: the sort key(s) of the last row of a page, base64url encoded
+public final class Cursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private Cursor() {
+    }
+
+    public static String encode(String... keys) {
+        String raw = String.join(SEPARATOR, keys);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int keyCount) throws InvalidCursorException {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+        String[] keys = raw.split(SEPARATOR, -1);
+        if (keys.length != keyCount || keys[keys.length - 1].isEmpty()) {
+            throw new InvalidCursorException();
+        }
+        return keys;
+    }
+
+    public static String decodeId(String cursor) throws InvalidCursorException {
+        return decode(cursor, 1)[0];
+    }
+}
@@ -0,0 +1,93 @@
+package aiss.gitminer.pagination;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Function;
+
+// One page of a keyset-paginated listing plus the cursor of the following page, if any
+public class KeysetPage<T> {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    private final List<T> items;
+    private final int limit;
+    private final String nextCursor;
+
+    private KeysetPage(List<T> items, int limit, String nextCursor) {
+        this.items = items;
+        this.limit = limit;
+        this.nextCursor = nextCursor;
+    }
+
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    // Always reads one row more than requested so we know whether a next page exists
+    public static Pageable request(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, limit, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new KeysetPage<>(items, limit, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    public static <T> KeysetPage<T> byId(List<T> rows, int limit, Function<T, String> idOf) {
+        return of(rows, limit, row -> Cursor.encode(idOf.apply(row)));
+    }
+
+    public static <T> KeysetPage<T> byTime(List<T> rows, int limit, Function<T, Instant> timeOf, Function<T, String> idOf) {
+        return of(rows, limit, row -> TimeRange.cursor(timeOf.apply(row), idOf.apply(row)));
+    }
+
+    // The same page with other items, like the rows the keys of a listing stand for
+    public <R> KeysetPage<R> map(Function<List<T>, List<R>> mapper) {
+        return new KeysetPage<>(mapper.apply(items), limit, nextCursor);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public ResponseEntity<List<T>> toResponseEntity() {
+        return ResponseEntity.ok().headers(headers()).body(items);
+    }
+
+    // For listings that know the size of the whole result without counting it
+    public ResponseEntity<List<T>> toResponseEntity(long totalCount) {
+        HttpHeaders headers = headers();
+        headers.add(TOTAL_COUNT_HEADER, String.valueOf(totalCount));
+        return ResponseEntity.ok().headers(headers).body(items);
+    }
+
+    private HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextCursor != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("limit", limit)
+                    .replaceQueryParam("after", nextCursor)
+                    .build()
+                    .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            headers.add(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return headers;
+    }
+}
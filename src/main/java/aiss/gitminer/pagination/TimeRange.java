@@ -0,0 +1,55 @@
+package aiss.gitminer.pagination;
+
+import aiss.gitminer.exception.InvalidCursorException;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+// Half-open [from, to) window of a listing sorted by a timestamp and then by ID. Missing ends are
+// replaced by bounds every stored timestamp lies within, so each page is one index range scan
+// starting at the (timestamp, id) of the previous page's last row.
+public final class TimeRange {
+
+    static final Instant MIN = Instant.parse("1900-01-01T00:00:00Z");
+    static final Instant MAX = Instant.parse("9999-12-31T23:59:59Z");
+
+    private final Instant afterTime;
+    private final String afterId;
+    private final Instant to;
+
+    private TimeRange(Instant afterTime, String afterId, Instant to) {
+        this.afterTime = afterTime;
+        this.afterId = afterId;
+        this.to = to;
+    }
+
+    // The first page starts at (from, ""), which every row at or after from sorts after
+    public static TimeRange of(Instant from, Instant to, String after) throws InvalidCursorException {
+        Instant end = to == null ? MAX : to;
+        if (after == null) {
+            return new TimeRange(from == null ? MIN : from, "", end);
+        }
+        String[] keys = Cursor.decode(after, 2);
+        try {
+            return new TimeRange(Instant.parse(keys[0]), keys[1], end);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    public static String cursor(Instant time, String id) {
+        return Cursor.encode(time.toString(), id);
+    }
+
+    public Instant getAfterTime() {
+        return afterTime;
+    }
+
+    public String getAfterId() {
+        return afterId;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+}
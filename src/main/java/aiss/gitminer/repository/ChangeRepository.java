@@ -0,0 +1,20 @@
+package aiss.gitminer.repository;
+
+import aiss.gitminer.model.Change;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChangeRepository extends JpaRepository<Change, Long> {
+
+    // Keyset pagination on the sequence number
+    List<Change> findBySeqGreaterThanOrderBySeqAsc(long seq, Pageable pageable);
+
+    @Query("select max(c.seq) from Change c")
+    Optional<Long> findMaxSeq();
+}
@@ -0,0 +1,10 @@
+package aiss.gitminer.repository;
+
+import java.time.Instant;
+
+// Number of comments of an issue and when the latest of them was created
+public interface CommentCountView {
+    String getIssueId();
+    Long getCount();
+    Instant getLastCreatedAt();
+}
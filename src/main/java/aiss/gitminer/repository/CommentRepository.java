@@ -1,13 +1,100 @@
 package aiss.gitminer.repository;
 
 import aiss.gitminer.model.Comment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, String> {
+    @EntityGraph(attributePaths = "author")
     Optional<List<Comment>> findByAuthor_Id(String authorId);
+    @EntityGraph(attributePaths = "author")
+    List<Comment> findByIssueId(String issueId);
+    @EntityGraph(attributePaths = "author")
+    List<Comment> findByIdIn(Collection<String> ids);
+
+    // Keyset pagination on the primary key
+    @EntityGraph(attributePaths = "author")
+    List<Comment> findAllByOrderByIdAsc(Pageable pageable);
+    @EntityGraph(attributePaths = "author")
+    List<Comment> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+
+    // Keyset pagination over a time range, see TimeRange
+    @EntityGraph(attributePaths = "author")
+    @Query("select c from Comment c where c.createdAt >= :afterTime and (c.createdAt > :afterTime or c.id > :afterId) " +
+            "and c.createdAt < :to order by c.createdAt, c.id")
+    List<Comment> findCreatedInRange(@Param("afterTime") Instant afterTime, @Param("afterId") String afterId,
+                                     @Param("to") Instant to, Pageable pageable);
+
+    // Keyset pagination over the comments of an issue, see TimeRange
+    @EntityGraph(attributePaths = "author")
+    @Query("select c from Comment c where c.issueId = :issueId and c.createdAt >= :afterTime " +
+            "and (c.createdAt > :afterTime or c.id > :afterId) and c.createdAt < :to order by c.createdAt, c.id")
+    List<Comment> findByIssueCreatedInRange(@Param("issueId") String issueId, @Param("afterTime") Instant afterTime,
+                                            @Param("afterId") String afterId, @Param("to") Instant to, Pageable pageable);
+
+    // Issues without comments have no row
+    @Query("select c.issueId as issueId, count(c) as count, max(c.createdAt) as lastCreatedAt from Comment c " +
+            "where c.issueId in :issueIds group by c.issueId")
+    List<CommentCountView> countByIssueIds(@Param("issueIds") Collection<String> issueIds);
+
+    @Query("select c.id from Comment c where c.id in :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
+
+    @Query("select c.id as id, c.contentHash as contentHash, c.issueId as ownerId from Comment c where c.id in :ids")
+    List<ContentHashView> findContentHashes(@Param("ids") Collection<String> ids);
+
+    @Query("select c.id from Comment c where c.issueId in :issueIds")
+    List<String> findIdsByIssueIdIn(@Param("issueIds") Collection<String> issueIds);
+
+    @Query("select distinct i.projectId from Comment c, Issue i where i.id = c.issueId and c.id in :ids and i.projectId is not null")
+    List<String> findProjectIds(@Param("ids") Collection<String> ids);
+
+    @Query("select distinct i.projectId from Comment c, Issue i where i.id = c.issueId and c.author.id in :userIds and i.projectId is not null")
+    List<String> findProjectIdsByUserIds(@Param("userIds") Collection<String> userIds);
+
+    // Revision of the owning project: no row if the comment does not exist, a null one if it has no project
+    @Query("select p.revision from Comment c left join Issue i on i.id = c.issueId left join Project p on p.id = i.projectId where c.id = :id")
+    List<Long> findProjectRevision(@Param("id") String id);
+
+    @Modifying
+    @Query("update Comment c set c.issueId = null where c.id in :ids")
+    int unlinkFromIssue(@Param("ids") Collection<String> ids);
+
+    // Flushed first: the new owner may have been inserted by the same write
+    @Modifying(flushAutomatically = true)
+    @Query("update Comment c set c.issueId = :issueId where c.id in :ids")
+    int moveToIssue(@Param("ids") Collection<String> ids, @Param("issueId") String issueId);
+
+    // Rows of the full-text index, titled after their issue, see SearchIndexService
+    @Query("select c.id as id, i.title as title, c.body as text, i.projectId as projectId from Comment c left join Issue i on i.id = c.issueId")
+    List<SearchDocumentView> findSearchDocuments();
+    @Query("select c.id as id, i.title as title, c.body as text, i.projectId as projectId from Comment c left join Issue i on i.id = c.issueId " +
+            "where c.id in :ids")
+    List<SearchDocumentView> findSearchDocumentsByIds(@Param("ids") Collection<String> ids);
+    @Query("select c.id as id, i.title as title, c.body as text, i.projectId as projectId from Comment c left join Issue i on i.id = c.issueId " +
+            "where c.issueId in :issueIds")
+    List<SearchDocumentView> findSearchDocumentsByIssueIds(@Param("issueIds") Collection<String> issueIds);
+
+    // Issues of the comments, see IssueLatencyService
+    @Query("select c.id as id, c.issueId as issueId from Comment c where c.id in :ids")
+    List<CommentStatsView> findStatsRowsByIds(@Param("ids") Collection<String> ids);
+
+    // Earliest comments of every issue, more than one when they were created at the same time
+    @Query("select c.issueId as issueId, c.id as id, c.createdAt as createdAt from Comment c " +
+            "where c.createdAt = (select min(f.createdAt) from Comment f where f.issueId = c.issueId)")
+    List<FirstCommentView> findFirstComments();
+    @Query("select c.issueId as issueId, c.id as id, c.createdAt as createdAt from Comment c where c.issueId in :issueIds " +
+            "and c.createdAt = (select min(f.createdAt) from Comment f where f.issueId = c.issueId)")
+    List<FirstCommentView> findFirstCommentsByIssueIds(@Param("issueIds") Collection<String> issueIds);
 }
@@ -0,0 +1,7 @@
+package aiss.gitminer.repository;
+
+// The issue a comment belongs to
+public interface CommentStatsView {
+    String getId();
+    String getIssueId();
+}
@@ -1,9 +1,68 @@
 package aiss.gitminer.repository;
 
 import aiss.gitminer.model.Commit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CommitRepository extends JpaRepository<Commit, String> {
+
+    // Keyset pagination on the primary key
+    List<Commit> findAllByOrderByIdAsc(Pageable pageable);
+    List<Commit> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+
+    // Keyset pagination over a time range, see TimeRange
+    @Query("select c from Commit c where c.authoredDate >= :afterTime and (c.authoredDate > :afterTime or c.id > :afterId) " +
+            "and c.authoredDate < :to order by c.authoredDate, c.id")
+    List<Commit> findAuthoredInRange(@Param("afterTime") Instant afterTime, @Param("afterId") String afterId,
+                                     @Param("to") Instant to, Pageable pageable);
+    @Query("select c from Commit c where c.projectId = :projectId and c.authoredDate >= :afterTime " +
+            "and (c.authoredDate > :afterTime or c.id > :afterId) and c.authoredDate < :to order by c.authoredDate, c.id")
+    List<Commit> findByProjectAuthoredInRange(@Param("projectId") String projectId, @Param("afterTime") Instant afterTime,
+                                              @Param("afterId") String afterId, @Param("to") Instant to, Pageable pageable);
+
+    @Query("select c.id from Commit c")
+    List<String> findAllIds();
+
+    @Query("select c from Commit c where c.id in :ids")
+    List<Commit> findByIdIn(@Param("ids") Collection<String> ids);
+
+    @Query("select c.id from Commit c where c.id in :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
+
+    @Query("select c.id as id, c.contentHash as contentHash, c.projectId as ownerId from Commit c where c.id in :ids")
+    List<ContentHashView> findContentHashes(@Param("ids") Collection<String> ids);
+
+    @Query("select c.id from Commit c where c.projectId = :projectId")
+    List<String> findIdsByProjectId(@Param("projectId") String projectId);
+
+    @Query("select distinct c.projectId from Commit c where c.id in :ids and c.projectId is not null")
+    List<String> findProjectIds(@Param("ids") Collection<String> ids);
+
+    // Revision of the owning project: no row if the commit does not exist, a null one if it has no project
+    @Query("select p.revision from Commit c left join Project p on p.id = c.projectId where c.id = :id")
+    List<Long> findProjectRevision(@Param("id") String id);
+
+    @Modifying
+    @Query("update Commit c set c.projectId = null where c.id in :ids")
+    int unlinkFromProject(@Param("ids") Collection<String> ids);
+
+    // Flushed first: the new owner may have been inserted by the same write
+    @Modifying(flushAutomatically = true)
+    @Query("update Commit c set c.projectId = :projectId where c.id in :ids")
+    int moveToProject(@Param("ids") Collection<String> ids, @Param("projectId") String projectId);
+
+    // Rows of the full-text index, see SearchIndexService
+    @Query("select c.id as id, c.title as title, c.message as text, c.projectId as projectId from Commit c")
+    List<SearchDocumentView> findSearchDocuments();
+    @Query("select c.id as id, c.title as title, c.message as text, c.projectId as projectId from Commit c where c.id in :ids")
+    List<SearchDocumentView> findSearchDocumentsByIds(@Param("ids") Collection<String> ids);
 }
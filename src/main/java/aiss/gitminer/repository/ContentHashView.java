@@ -0,0 +1,9 @@
+package aiss.gitminer.repository;
+
+// Id, stored content hash and owner (project of a commit or issue, issue of a comment) of a commit,
+// issue or comment
+public interface ContentHashView {
+    String getId();
+    Long getContentHash();
+    String getOwnerId();
+}
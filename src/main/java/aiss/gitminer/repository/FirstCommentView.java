@@ -0,0 +1,10 @@
+package aiss.gitminer.repository;
+
+import java.time.Instant;
+
+// The earliest comment of an issue
+public interface FirstCommentView {
+    String getIssueId();
+    String getId();
+    Instant getCreatedAt();
+}
@@ -0,0 +1,12 @@
+package aiss.gitminer.repository;
+
+import java.time.Instant;
+
+// One label of an issue, with what its latencies are measured from
+public interface IssueLatencyView {
+    String getId();
+    String getProjectId();
+    Instant getCreatedAt();
+    Instant getClosedAt();
+    String getLabel();
+}
@@ -1,14 +1,124 @@
 package aiss.gitminer.repository;
 
+import aiss.gitminer.dto.IssueSummary;
 import aiss.gitminer.model.Issue;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface IssueRepository extends JpaRepository<Issue, String> {
+public interface IssueRepository extends JpaRepository<Issue, String>, IssueSearchRepository {
+    @EntityGraph("Issue.users")
     Optional<List<Issue>> findByState(String state);
+    @EntityGraph("Issue.users")
     Optional<List<Issue>> findByAuthor_Id(String authorId);
+
+    // Keyset pagination on the primary key
+    @EntityGraph("Issue.users")
+    List<Issue> findAllByOrderByIdAsc(Pageable pageable);
+    @EntityGraph("Issue.users")
+    List<Issue> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+
+    @Query("select new aiss.gitminer.dto.IssueSummary(i.id, i.title, i.state, i.createdAt, i.updatedAt, i.closedAt, i.votes, a.id, s.id) " +
+            "from Issue i left join i.author a left join i.assignee s where i.id > :after order by i.id")
+    List<IssueSummary> findSummaries(@Param("after") String after, Pageable pageable);
+
+    // Keyset pagination over a time range, see TimeRange
+    @EntityGraph("Issue.users")
+    @Query("select i from Issue i where i.createdAt >= :afterTime and (i.createdAt > :afterTime or i.id > :afterId) " +
+            "and i.createdAt < :to order by i.createdAt, i.id")
+    List<Issue> findCreatedInRange(@Param("afterTime") Instant afterTime, @Param("afterId") String afterId,
+                                   @Param("to") Instant to, Pageable pageable);
+    @EntityGraph("Issue.users")
+    @Query("select i from Issue i where i.updatedAt >= :afterTime and (i.updatedAt > :afterTime or i.id > :afterId) " +
+            "and i.updatedAt < :to order by i.updatedAt, i.id")
+    List<Issue> findUpdatedInRange(@Param("afterTime") Instant afterTime, @Param("afterId") String afterId,
+                                   @Param("to") Instant to, Pageable pageable);
+
+    @Query("select new aiss.gitminer.dto.IssueSummary(i.id, i.title, i.state, i.createdAt, i.updatedAt, i.closedAt, i.votes, a.id, s.id) " +
+            "from Issue i left join i.author a left join i.assignee s where i.createdAt >= :afterTime " +
+            "and (i.createdAt > :afterTime or i.id > :afterId) and i.createdAt < :to order by i.createdAt, i.id")
+    List<IssueSummary> findSummariesCreatedInRange(@Param("afterTime") Instant afterTime, @Param("afterId") String afterId,
+                                                   @Param("to") Instant to, Pageable pageable);
+    @Query("select new aiss.gitminer.dto.IssueSummary(i.id, i.title, i.state, i.createdAt, i.updatedAt, i.closedAt, i.votes, a.id, s.id) " +
+            "from Issue i left join i.author a left join i.assignee s where i.updatedAt >= :afterTime " +
+            "and (i.updatedAt > :afterTime or i.id > :afterId) and i.updatedAt < :to order by i.updatedAt, i.id")
+    List<IssueSummary> findSummariesUpdatedInRange(@Param("afterTime") Instant afterTime, @Param("afterId") String afterId,
+                                                   @Param("to") Instant to, Pageable pageable);
+
+    // Issues without labels have no row
+    @Query("select i.id as id, count(l) as count from Issue i join i.labels l where i.id in :ids group by i.id")
+    List<LabelCountView> countLabels(@Param("ids") Collection<String> ids);
+
+    // Fetch plans: initialize one collection of already selected issues with a single query
+    @EntityGraph("Issue.labels")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("select distinct i from Issue i where i.id in :ids")
+    List<Issue> fetchLabels(@Param("ids") Collection<String> ids);
+
+    @EntityGraph("Issue.comments")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("select distinct i from Issue i where i.id in :ids")
+    List<Issue> fetchComments(@Param("ids") Collection<String> ids);
+
+    @EntityGraph("Issue.users")
+    List<Issue> findByIdInOrderByIdAsc(Collection<String> ids);
+
+    // Rows of the label bitmap index: one per label of each issue, or one with a null label if it has none
+    @Query("select i.id as id, i.state as state, i.projectId as projectId, l as label from Issue i left join i.labels l order by i.id")
+    List<LabelIndexView> findLabelIndexRows();
+    @Query("select i.id as id, i.state as state, i.projectId as projectId, l as label from Issue i left join i.labels l where i.id in :ids")
+    List<LabelIndexView> findLabelIndexRowsByIds(@Param("ids") Collection<String> ids);
+
+    // Rows of the full-text index, see SearchIndexService
+    @Query("select i.id as id, i.title as title, i.description as text, i.projectId as projectId from Issue i")
+    List<SearchDocumentView> findSearchDocuments();
+    @Query("select i.id as id, i.title as title, i.description as text, i.projectId as projectId from Issue i where i.id in :ids")
+    List<SearchDocumentView> findSearchDocumentsByIds(@Param("ids") Collection<String> ids);
+
+    @Query("select i.id from Issue i where i.id in :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
+
+    @Query("select i.id as id, i.contentHash as contentHash, i.projectId as ownerId from Issue i where i.id in :ids")
+    List<ContentHashView> findContentHashes(@Param("ids") Collection<String> ids);
+
+    @Query("select i.id from Issue i where i.projectId = :projectId")
+    List<String> findIdsByProjectId(@Param("projectId") String projectId);
+
+    @Query("select distinct i.projectId from Issue i where i.id in :ids and i.projectId is not null")
+    List<String> findProjectIds(@Param("ids") Collection<String> ids);
+
+    @Query("select distinct i.projectId from Issue i where (i.author.id in :userIds or i.assignee.id in :userIds) and i.projectId is not null")
+    List<String> findProjectIdsByUserIds(@Param("userIds") Collection<String> userIds);
+
+    // Revision of the owning project: no row if the issue does not exist, a null one if it has no project
+    @Query("select p.revision from Issue i left join Project p on p.id = i.projectId where i.id = :id")
+    List<Long> findProjectRevision(@Param("id") String id);
+
+    @Modifying
+    @Query("update Issue i set i.projectId = null where i.id in :ids")
+    int unlinkFromProject(@Param("ids") Collection<String> ids);
+
+    // Flushed first: the new owner may have been inserted by the same write
+    @Modifying(flushAutomatically = true)
+    @Query("update Issue i set i.projectId = :projectId where i.id in :ids")
+    int moveToProject(@Param("ids") Collection<String> ids, @Param("projectId") String projectId);
+
+    // Rows of the latency histograms, see IssueLatencyService: one per label of each issue, or one
+    // with a null label if it has none
+    @Query("select i.id as id, i.projectId as projectId, i.createdAt as createdAt, i.closedAt as closedAt, l as label from Issue i left join i.labels l")
+    List<IssueLatencyView> findLatencyRows();
+    @Query("select i.id as id, i.projectId as projectId, i.createdAt as createdAt, i.closedAt as closedAt, l as label from Issue i left join i.labels l where i.id in :ids")
+    List<IssueLatencyView> findLatencyRowsByIds(@Param("ids") Collection<String> ids);
 }
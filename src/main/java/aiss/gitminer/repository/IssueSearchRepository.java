@@ -0,0 +1,16 @@
+package aiss.gitminer.repository;
+
+import aiss.gitminer.dto.IssueSearch;
+import aiss.gitminer.dto.IssueSummary;
+import aiss.gitminer.model.Issue;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+// Issue search built as a single query from whichever criteria are set, see IssueSearchRepositoryImpl
+public interface IssueSearchRepository {
+
+    List<Issue> search(IssueSearch search, Pageable pageable);
+
+    List<IssueSummary> searchSummaries(IssueSearch search, Pageable pageable);
+}
@@ -0,0 +1,144 @@
+package aiss.gitminer.repository;
+
+import aiss.gitminer.dto.IssueSearch;
+import aiss.gitminer.dto.IssueSort;
+import aiss.gitminer.dto.IssueSummary;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.User;
+import org.springframework.data.domain.Pageable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.AbstractQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Only the criteria that are set become predicates, so the database can pick the composite index
+// matching the combination (see the indexes of Issue) instead of evaluating "param is null or ..."
+public class IssueSearchRepositoryImpl implements IssueSearchRepository {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    public List<Issue> search(IssueSearch search, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Issue> query = cb.createQuery(Issue.class);
+        Root<Issue> issue = query.from(Issue.class);
+        query.select(issue)
+                .where(predicates(search, query, issue, cb))
+                .orderBy(order(search, issue, cb));
+        return entityManager.createQuery(query)
+                .setHint(org.hibernate.jpa.QueryHints.HINT_FETCHGRAPH, entityManager.getEntityGraph("Issue.users"))
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    @Override
+    public List<IssueSummary> searchSummaries(IssueSearch search, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<IssueSummary> query = cb.createQuery(IssueSummary.class);
+        Root<Issue> issue = query.from(Issue.class);
+        Join<Issue, User> author = issue.join("author", JoinType.LEFT);
+        Join<Issue, User> assignee = issue.join("assignee", JoinType.LEFT);
+        query.select(cb.construct(IssueSummary.class, issue.get("id"), issue.get("title"), issue.get("state"),
+                        issue.get("createdAt"), issue.get("updatedAt"), issue.get("closedAt"), issue.get("votes"),
+                        author.get("id"), assignee.get("id")))
+                .where(predicates(search, query, issue, cb))
+                .orderBy(order(search, issue, cb));
+        return entityManager.createQuery(query)
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    private static Predicate[] predicates(IssueSearch search, AbstractQuery<?> query, Root<Issue> issue, CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (search.getProjectId() != null) {
+            predicates.add(cb.equal(issue.get("projectId"), search.getProjectId()));
+        }
+        if (search.getState() != null) {
+            predicates.add(cb.equal(issue.get("state"), search.getState()));
+        }
+        // The foreign key columns are compared directly, without joining the user table
+        if (search.getAuthorId() != null) {
+            predicates.add(cb.equal(issue.get("author").get("id"), search.getAuthorId()));
+        }
+        if (search.getAssigneeId() != null) {
+            predicates.add(cb.equal(issue.get("assignee").get("id"), search.getAssigneeId()));
+        }
+        if (search.getMinVotes() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(issue.get("votes"), search.getMinVotes()));
+        }
+        addRange(predicates, issue.get("createdAt"), search.getCreatedAfter(), search.getCreatedBefore(), cb);
+        addRange(predicates, issue.get("updatedAt"), search.getUpdatedAfter(), search.getUpdatedBefore(), cb);
+        // Labels already resolved by the bitmap index replace the label subqueries
+        if (search.getIssueIds() != null) {
+            predicates.add(search.getIssueIds().isEmpty() ? cb.disjunction() : issue.get("id").in(search.getIssueIds()));
+        } else {
+            for (String label : search.getLabels()) {
+                Subquery<String> labelled = query.subquery(String.class);
+                Root<Issue> correlated = labelled.correlate(issue);
+                Join<Issue, String> labels = correlated.join("labels");
+                labelled.select(labels).where(cb.equal(labels, label));
+                predicates.add(cb.exists(labelled));
+            }
+        }
+        if (search.getAfterId() != null) {
+            predicates.add(after(search, issue, cb));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    private static void addRange(List<Predicate> predicates, Expression<Instant> time, Instant from, Instant to, CriteriaBuilder cb) {
+        if (from != null) {
+            predicates.add(cb.greaterThanOrEqualTo(time, from));
+        }
+        if (to != null) {
+            predicates.add(cb.lessThan(time, to));
+        }
+    }
+
+    // (key, id) strictly past the cursor in the direction of the sort
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static Predicate after(IssueSearch search, Root<Issue> issue, CriteriaBuilder cb) {
+        Expression key = sortKey(search.getSort(), issue, cb);
+        Comparable afterKey = search.getAfterKey();
+        Expression<String> id = issue.get("id");
+        if (search.isDescending()) {
+            return cb.or(cb.lessThan(key, afterKey), cb.and(cb.equal(key, afterKey), cb.lessThan(id, search.getAfterId())));
+        }
+        return cb.or(cb.greaterThan(key, afterKey), cb.and(cb.equal(key, afterKey), cb.greaterThan(id, search.getAfterId())));
+    }
+
+    private static List<Order> order(IssueSearch search, Root<Issue> issue, CriteriaBuilder cb) {
+        Expression<?> key = sortKey(search.getSort(), issue, cb);
+        if (search.isDescending()) {
+            return List.of(cb.desc(key), cb.desc(issue.get("id")));
+        }
+        return List.of(cb.asc(key), cb.asc(issue.get("id")));
+    }
+
+    // Must match IssueSort.keyOf, which builds the cursor from the last row of a page
+    private static Expression<?> sortKey(IssueSort sort, Root<Issue> issue, CriteriaBuilder cb) {
+        switch (sort) {
+            case CREATED_AT:
+                return issue.get("createdAt");
+            case UPDATED_AT:
+                return cb.coalesce(issue.<Instant>get("updatedAt"), issue.<Instant>get("createdAt"));
+            case VOTES:
+                return cb.coalesce(issue.<Integer>get("votes"), 0);
+            default:
+                return issue.get("id");
+        }
+    }
+}
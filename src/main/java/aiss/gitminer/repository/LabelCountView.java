@@ -0,0 +1,7 @@
+package aiss.gitminer.repository;
+
+// Number of labels of an issue
+public interface LabelCountView {
+    String getId();
+    Long getCount();
+}
@@ -0,0 +1,9 @@
+package aiss.gitminer.repository;
+
+// One label of an issue, with the state and project the label index filters on
+public interface LabelIndexView {
+    String getId();
+    String getState();
+    String getProjectId();
+    String getLabel();
+}
@@ -0,0 +1,13 @@
+package aiss.gitminer.repository;
+
+import aiss.gitminer.model.Label;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface LabelRepository extends JpaRepository<Label, Integer> {
+
+    Optional<Label> findByName(String name);
+}
@@ -1,12 +1,56 @@
 package aiss.gitminer.repository;
 
+import aiss.gitminer.dto.ProjectSummary;
 import aiss.gitminer.model.Project;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, String> {
     Optional<Project> findByName(String name);
+
+    // Keyset pagination on the primary key
+    List<Project> findAllByOrderByIdAsc(Pageable pageable);
+    List<Project> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+
+    @Query("select new aiss.gitminer.dto.ProjectSummary(p.id, p.name, p.webUrl) from Project p where p.id > :after order by p.id")
+    List<ProjectSummary> findSummaries(@Param("after") String after, Pageable pageable);
+
+    // Fetch plans: initialize one collection of already selected projects with a single query
+    @EntityGraph("Project.commits")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("select distinct p from Project p where p.id in :ids")
+    List<Project> fetchCommits(@Param("ids") Collection<String> ids);
+
+    @EntityGraph("Project.issues")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("select distinct p from Project p where p.id in :ids")
+    List<Project> fetchIssues(@Param("ids") Collection<String> ids);
+
+    @Query("select p.revision from Project p where p.id = :id")
+    Optional<Long> findRevision(@Param("id") String id);
+
+    @Modifying
+    @Query("update Project p set p.revision = :revision where p.id in :ids")
+    int setRevision(@Param("ids") Collection<String> ids, @Param("revision") long revision);
+
+    @Query("select max(p.revision) from Project p")
+    Optional<Long> findMaxRevision();
+
+    // Forward-only scroll over every project, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "64"))
+    @Query("select p from Project p order by p.id")
+    Stream<Project> streamAllByOrderByIdAsc();
 }
@@ -0,0 +1,9 @@
+package aiss.gitminer.repository;
+
+// The searchable text of a commit, issue or comment and the project it is filed under
+public interface SearchDocumentView {
+    String getId();
+    String getTitle();
+    String getText();
+    String getProjectId();
+}
@@ -0,0 +1,81 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.BatchResult;
+import aiss.gitminer.exception.BatchTooLargeException;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.User;
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Multi-get by ID: the distinct IDs are read with one IN query per chunk (issues with their whole
+// graph, see FetchPlanService) and the entities are put back in the order they were asked for.
+// Chunks are small, see IdChunks.LOOKUP_CHUNK_SIZE.
+@Service
+@Transactional(readOnly = true)
+public class BatchLookupService {
+
+    public static final int MAX_IDS = 5000;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    FetchPlanService fetchPlanService;
+
+    public BatchResult<Commit> findCommits(List<String> ids) throws BatchTooLargeException {
+        return lookup(ids, commitRepository::findByIdIn, Commit::getId);
+    }
+
+    public BatchResult<Issue> findIssues(List<String> ids) throws BatchTooLargeException {
+        return lookup(ids, fetchPlanService::findIssuesByIds, Issue::getId);
+    }
+
+    public BatchResult<Comment> findComments(List<String> ids) throws BatchTooLargeException {
+        return lookup(ids, commentRepository::findByIdIn, Comment::getId);
+    }
+
+    public BatchResult<User> findUsers(List<String> ids) throws BatchTooLargeException {
+        return lookup(ids, userRepository::findAllById, User::getId);
+    }
+
+    private static <T> BatchResult<T> lookup(List<String> ids, Function<List<String>, List<T>> loadChunk, Function<T, String> idOf)
+            throws BatchTooLargeException {
+        if (ids.size() > MAX_IDS) {
+            throw new BatchTooLargeException();
+        }
+        List<String> distinct = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<String, T> found = new HashMap<>();
+        IdChunks.query(distinct, IdChunks.LOOKUP_CHUNK_SIZE, loadChunk).forEach(entity -> found.put(idOf.apply(entity), entity));
+
+        List<T> items = new ArrayList<>(ids.size());
+        List<String> notFound = new ArrayList<>();
+        for (String id : ids) {
+            T entity = found.get(id);
+            items.add(entity);
+            if (entity == null) {
+                notFound.add(id);
+            }
+        }
+        return new BatchResult<>(items, notFound);
+    }
+}
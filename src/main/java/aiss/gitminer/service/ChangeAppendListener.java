@@ -0,0 +1,14 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.model.Change;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+
+// Work done by every append to the change log, in the writing transaction once its records are
+// inserted, with the append lock and the change_log_seq row held (see ChangeLogService)
+public interface ChangeAppendListener {
+
+    void appended(Connection connection, Collection<Change> changes) throws SQLException;
+}
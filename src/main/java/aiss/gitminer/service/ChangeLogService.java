@@ -0,0 +1,193 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.model.Change;
+import aiss.gitminer.repository.ChangeRepository;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ordered log of the committed writes to projects, commits, issues and comments. The rows a
+// transaction writes are collected per Hibernate session (see ChangeCapture) and appended to the
+// change_log table in the same transaction, after its last flush. Appends hold a lock until the
+// commit is over, so sequence numbers are handed out in commit order: a reader that has seen one
+// never misses a smaller one committed later. Numbers are taken from the change_log_seq row, which
+// each append locks until it commits; the row lock orders the appends of other processes writing
+// to the same database, and the lock in this class keeps the threads of this one from queueing
+// inside the database. Whatever has to be updated in step with the log does it there as well, see
+// ChangeAppendListener.
+//
+// Writing transactions are serialised for that last step only: the inserts of their records and the
+// commit itself, about a millisecond for a project of a dozen rows against some 30 ms for the whole
+// write (see ChangeLogBenchmarkTests). Numbers taken from a database sequence when the records are
+// written would shorten the lock to the reservation, but could then commit out of order, so every
+// reader would have to stop below the oldest reservation still open, and a rollback would leave the
+// followers behind until the next write. Revisit if the benchmark shows writers queueing on the lock.
+@Service
+public class ChangeLogService {
+
+    private static final int BATCH_SIZE = 500;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    ChangeRepository changeRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    List<ChangeAppendListener> appendListeners;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Map<SessionImplementor, Pending> pending = new ConcurrentHashMap<>();
+
+    // Must be called inside the transaction that writes the row
+    public void capture(Change change) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        pending.computeIfAbsent(session, this::register).add(change);
+    }
+
+    public List<Change> findAfter(long seq, Pageable pageable) {
+        return changeRepository.findBySeqGreaterThanOrderBySeqAsc(seq, pageable);
+    }
+
+    // Sequence number of the last committed change, 0 while the log is empty
+    public long lastSeq() {
+        return changeRepository.findMaxSeq().orElse(0L);
+    }
+
+    // Ordered after every cache and index, so a client that reads the reset reads the restored data
+    @Order(3)
+    @EventListener
+    public void onDatasetRestored(DatasetRestoredEvent event) {
+        List<Change> reset = List.of(new Change("dataset", null, Change.RESET, null, null));
+        long seq;
+        appendLock.lock();
+        try {
+            seq = new TransactionTemplate(transactionManager).execute(status ->
+                    jdbcTemplate.execute((ConnectionCallback<Long>) connection -> append(connection, reset)));
+        } finally {
+            appendLock.unlock();
+        }
+        eventPublisher.publishEvent(new ChangesAppendedEvent(seq));
+    }
+
+    private Pending register(SessionImplementor session) {
+        Pending changes = new Pending();
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> {
+            appendLock.lock();
+            changes.locked = true;
+            s.doWork(connection -> changes.lastSeq = append(connection, changes.byEntity.values()));
+        });
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> {
+            pending.remove(session, changes);
+            if (!changes.locked) {
+                return;
+            }
+            appendLock.unlock();
+            if (success) {
+                eventPublisher.publishEvent(new ChangesAppendedEvent(changes.lastSeq));
+            }
+        });
+        return changes;
+    }
+
+    // Called with the append lock held, inside the transaction that writes the changes; returns the
+    // sequence number of the last record
+    private long append(Connection connection, Collection<Change> changes) throws SQLException {
+        long seq = lockSeq(connection);
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
+        try (PreparedStatement insert = connection.prepareStatement("insert into change_log " +
+                "(seq, entity, entity_id, operation, project_id, issue_id, changed_at) values (?, ?, ?, ?, ?, ?, ?)")) {
+            int batched = 0;
+            for (Change change : changes) {
+                insert.setLong(1, ++seq);
+                insert.setString(2, change.getEntity());
+                insert.setString(3, change.getEntityId());
+                insert.setString(4, change.getOperation());
+                insert.setString(5, change.getProjectId());
+                insert.setString(6, change.getIssueId());
+                insert.setObject(7, now);
+                insert.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement update = connection.prepareStatement("update change_log_seq set seq = ? where id = 1")) {
+            update.setLong(1, seq);
+            update.executeUpdate();
+        }
+        for (ChangeAppendListener listener : appendListeners) {
+            listener.appended(connection, changes);
+        }
+        return seq;
+    }
+
+    // The row is created by the first append to a database without it, from the records already there
+    private static long lockSeq(Connection connection) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("select seq from change_log_seq where id = 1 for update");
+             ResultSet rs = select.executeQuery()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into change_log_seq (id, seq) select 1, coalesce(max(seq), 0) from change_log")) {
+            insert.executeUpdate();
+        }
+        return lockSeq(connection);
+    }
+
+    // Changes of one transaction, one per entity: the last operation wins. Entity events of merged rows
+    // do not know their new owner, so an upsert keeps the owner an earlier one of the row named.
+    private static class Pending {
+        final Map<String, Change> byEntity = new LinkedHashMap<>();
+        boolean locked;
+        long lastSeq;
+
+        void add(Change change) {
+            String key = change.getEntity() + ':' + change.getEntityId();
+            Change earlier = byEntity.remove(key);
+            if (earlier != null && change.getOperation().equals(Change.UPSERT) && earlier.getOperation().equals(Change.UPSERT)
+                    && change.getProjectId() == null && change.getIssueId() == null) {
+                change = earlier;
+            }
+            byEntity.put(key, change);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.model.Change;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Live tail of the change log as Server-Sent Events. Every subscriber first gets the records after
+// the sequence number it asked for, then the new ones as they are committed. Each event carries its
+// sequence number as id, so a client that reconnects with Last-Event-ID resumes where it left off.
+// A single thread sends everything, in order, and reads the log once per commit, not per record.
+@Service
+public class ChangeStreamService {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    private final Duration timeout;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Set while a round over every subscription is waiting to run, so commits in between share it
+    private final AtomicBoolean queued = new AtomicBoolean();
+
+    public ChangeStreamService(@Value("${gitminer.changes.stream-timeout:30m}") Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+    }
+
+    public SseEmitter subscribe(long after) {
+        Subscription subscription = new Subscription(new SseEmitter(timeout.toMillis()), after);
+        subscription.emitter.onCompletion(() -> subscriptions.remove(subscription));
+        subscription.emitter.onTimeout(subscription.emitter::complete);
+        subscription.emitter.onError(error -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+        sender.execute(() -> send(subscription));
+        return subscription.emitter;
+    }
+
+    @EventListener
+    public void onChangesAppended(ChangesAppendedEvent event) {
+        if (!subscriptions.isEmpty() && queued.compareAndSet(false, true)) {
+            sender.execute(() -> {
+                queued.set(false);
+                subscriptions.forEach(this::send);
+            });
+        }
+    }
+
+    private void send(Subscription subscription) {
+        try {
+            List<Change> changes;
+            do {
+                changes = changeLogService.findAfter(subscription.lastSeq, PageRequest.of(0, BATCH_SIZE));
+                for (Change change : changes) {
+                    subscription.emitter.send(SseEmitter.event()
+                            .id(String.valueOf(change.getSeq()))
+                            .name("change")
+                            .data(change));
+                    subscription.lastSeq = change.getSeq();
+                }
+            } while (changes.size() == BATCH_SIZE);
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the emitter already completed
+            subscriptions.remove(subscription);
+            subscription.emitter.completeWithError(e);
+        }
+    }
+
+    private static class Subscription {
+        final SseEmitter emitter;
+        // Only read and written by the sender thread
+        long lastSeq;
+
+        Subscription(SseEmitter emitter, long lastSeq) {
+            this.emitter = emitter;
+            this.lastSeq = lastSeq;
+        }
+    }
+}
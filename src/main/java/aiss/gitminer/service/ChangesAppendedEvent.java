@@ -0,0 +1,15 @@
+package aiss.gitminer.service;
+
+// Published once records of the change log are committed, up to and including lastSeq
+public class ChangesAppendedEvent {
+
+    private final long lastSeq;
+
+    public ChangesAppendedEvent(long lastSeq) {
+        this.lastSeq = lastSeq;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+}
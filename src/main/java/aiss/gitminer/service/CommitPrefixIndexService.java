@@ -0,0 +1,84 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.CommitResolution;
+import aiss.gitminer.repository.CommitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+// Every commit ID in a sorted set, so the IDs starting with an abbreviation are found by seeking to
+// it and reading on while they match. Built at startup and refreshed after every committed write.
+@Service
+public class CommitPrefixIndexService {
+
+    // Shortest abbreviation git itself accepts
+    public static final int MIN_PREFIX_LENGTH = 4;
+    public static final int MAX_CANDIDATES = 10;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    private final NavigableSet<String> ids = new ConcurrentSkipListSet<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        ids.clear();
+        ids.addAll(commitRepository.findAllIds());
+    }
+
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProjectWritten(ProjectWrittenEvent event) {
+        Set<String> commitIds = event.getCommitIds().stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<String> stored = new HashSet<>(IdChunks.query(commitIds, commitRepository::findExistingIds));
+        for (String id : commitIds) {
+            if (stored.contains(id)) {
+                ids.add(id);
+            } else {
+                ids.remove(id);
+            }
+        }
+    }
+
+    @Order(1)
+    @EventListener
+    public void onDatasetRestored(DatasetRestoredEvent event) {
+        rebuild();
+    }
+
+    // A full ID resolves to itself even if it also starts other IDs, as in git. A null, as sent in a
+    // JSON list, resolves to nothing.
+    public CommitResolution resolve(String prefix) {
+        if (prefix == null) {
+            return new CommitResolution(null, null, false, List.of());
+        }
+        if (ids.contains(prefix)) {
+            return new CommitResolution(prefix, prefix, false, List.of(prefix));
+        }
+        if (prefix.length() < MIN_PREFIX_LENGTH) {
+            return new CommitResolution(prefix, null, false, List.of());
+        }
+        List<String> candidates = new ArrayList<>();
+        for (String id : ids.tailSet(prefix, true)) {
+            if (!id.startsWith(prefix) || candidates.size() == MAX_CANDIDATES) {
+                break;
+            }
+            candidates.add(id);
+        }
+        return candidates.size() == 1
+                ? new CommitResolution(prefix, candidates.get(0), false, candidates)
+                : new CommitResolution(prefix, null, candidates.size() > 1, candidates);
+    }
+}
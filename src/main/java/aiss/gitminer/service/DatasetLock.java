@@ -0,0 +1,56 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.exception.RestoreInProgressException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Writes share the dataset, a restore replaces it. Every write holds the shared side of the lock and
+// a restore the exclusive one: it waits for the writes in flight, and the writes that start
+// meanwhile are refused rather than queued, so none of them sits on a connection the restore needs.
+@Component
+public class DatasetLock {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Held until the current transaction completes, its after-commit listeners included
+    public void lockForTransaction() throws RestoreInProgressException {
+        lockWrites();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlockWrites();
+            }
+        });
+    }
+
+    // For writes that span several transactions, released by unlockWrites()
+    public void lockWrites() throws RestoreInProgressException {
+        boolean locked;
+        try {
+            // Unlike tryLock(), a timed attempt does not overtake a restore waiting for the lock
+            locked = lock.readLock().tryLock(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+        if (!locked) {
+            throw new RestoreInProgressException();
+        }
+    }
+
+    public void unlockWrites() {
+        lock.readLock().unlock();
+    }
+
+    public void lockRestore() {
+        lock.writeLock().lock();
+    }
+
+    public void unlockRestore() {
+        lock.writeLock().unlock();
+    }
+}
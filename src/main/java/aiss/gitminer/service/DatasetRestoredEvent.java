@@ -0,0 +1,6 @@
+package aiss.gitminer.service;
+
+// Published once a restore has replaced every row of the database. Nothing read from it before is
+// valid any more, so whatever keeps such state in memory drops or rebuilds all of it.
+public class DatasetRestoredEvent {
+}
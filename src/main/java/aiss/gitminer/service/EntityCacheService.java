@@ -0,0 +1,183 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.CacheStatistics;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommitRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Read-through cache of the by-ID lookups. Cached graphs are fully loaded (see FetchPlanService),
+// so they can be serialized by any request after the session that loaded them is closed.
+// Entries are dropped once a write to their project commits; missing ids are never cached.
+@Service
+public class EntityCacheService {
+
+    @Autowired
+    FetchPlanService fetchPlanService;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    @Autowired
+    VersionStampService versionStampService;
+
+    private final long projectsSize;
+    private final long entitiesSize;
+    private final Cache<String, Stamped<Project>> projects;
+    private final Cache<String, Stamped<Issue>> issues;
+    private final Cache<String, Stamped<Commit>> commits;
+    private final Cache<String, Stamped<Comment>> comments;
+    // Bumped before every eviction pass, so a value loaded before a write is not kept after it
+    private final AtomicLong writes = new AtomicLong();
+
+    // Whole projects are much larger than single entities, so they get their own bound
+    public EntityCacheService(@Value("${gitminer.cache.projects.maximum-size:200}") long projectsSize,
+                              @Value("${gitminer.cache.maximum-size:10000}") long entitiesSize,
+                              @Value("${gitminer.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.projectsSize = projectsSize;
+        this.entitiesSize = entitiesSize;
+        this.projects = build(projectsSize, expireAfterWrite);
+        this.issues = build(entitiesSize, expireAfterWrite);
+        this.commits = build(entitiesSize, expireAfterWrite);
+        this.comments = build(entitiesSize, expireAfterWrite);
+    }
+
+    private static <T> Cache<String, T> build(long maximumSize, Duration expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    // The project row carries its own revision, which is read before its collections
+    public Optional<Stamped<Project>> findProject(String id) {
+        return lookup(projects, id, () -> fetchPlanService.findProject(id)
+                .map(project -> new Stamped<>(String.valueOf(project.getRevision()), project)));
+    }
+
+    public Optional<Stamped<Issue>> findIssue(String id) {
+        return lookup(issues, id, () -> load(versionStampService.issueStamp(id), id, fetchPlanService::findIssue));
+    }
+
+    public Optional<Stamped<Commit>> findCommit(String id) {
+        return lookup(commits, id, () -> load(versionStampService.commitStamp(id), id, commitRepository::findById));
+    }
+
+    public Optional<Stamped<Comment>> findComment(String id) {
+        return lookup(comments, id, () -> load(versionStampService.commentStamp(id), id, commentRepository::findById));
+    }
+
+    // Stamps of a cached entity come from the entry, so they always match the value that is served;
+    // otherwise they are read from the database without loading anything
+    public Optional<String> projectStamp(String id) {
+        return stamp(projects, id, () -> versionStampService.projectStamp(id));
+    }
+
+    public Optional<String> issueStamp(String id) {
+        return stamp(issues, id, () -> versionStampService.issueStamp(id));
+    }
+
+    public Optional<String> commitStamp(String id) {
+        return stamp(commits, id, () -> versionStampService.commitStamp(id));
+    }
+
+    public Optional<String> commentStamp(String id) {
+        return stamp(comments, id, () -> versionStampService.commentStamp(id));
+    }
+
+    private static <T> Optional<String> stamp(Cache<String, Stamped<T>> cache, String id, Supplier<Optional<String>> stored) {
+        Stamped<T> cached = cache.policy().getIfPresentQuietly(id);
+        return cached != null ? Optional.of(cached.getStamp()) : stored.get();
+    }
+
+    private static <T> Optional<Stamped<T>> load(Optional<String> stamp, String id, Function<String, Optional<T>> loader) {
+        return stamp.flatMap(s -> loader.apply(id).map(value -> new Stamped<>(s, value)));
+    }
+
+    private <T> Optional<Stamped<T>> lookup(Cache<String, Stamped<T>> cache, String id, Supplier<Optional<Stamped<T>>> loader) {
+        Stamped<T> cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long writesBefore = writes.get();
+        Optional<Stamped<T>> loaded = loader.get();
+        if (loaded.isPresent()) {
+            cache.put(id, loaded.get());
+            // An eviction pass started while loading may have missed the new entry
+            if (writes.get() != writesBefore) {
+                cache.asMap().remove(id, loaded.get());
+            }
+        }
+        return loaded;
+    }
+
+    // Runs after the writing transaction commits (or right away for writes outside one), so a
+    // concurrent read cannot cache the old rows again between the eviction and the commit
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectWritten(ProjectWrittenEvent event) {
+        writes.incrementAndGet();
+        Set<String> projectIds = event.getProjectIds();
+        Set<String> userIds = event.getUserIds();
+        projects.invalidateAll(projectIds);
+        commits.asMap().values().removeIf(commit -> projectIds.contains(commit.getValue().getProjectId()));
+
+        Set<String> issueIds = new HashSet<>(event.getIssueIds());
+        issues.asMap().values().stream()
+                .map(Stamped::getValue)
+                .filter(issue -> projectIds.contains(issue.getProjectId())
+                        || references(userIds, issue.getAuthor()) || references(userIds, issue.getAssignee()))
+                .forEach(issue -> issueIds.add(issue.getId()));
+        issues.invalidateAll(issueIds);
+        comments.asMap().values().removeIf(comment -> issueIds.contains(comment.getValue().getIssueId())
+                || references(userIds, comment.getValue().getAuthor()));
+    }
+
+    @Order(0)
+    @EventListener
+    public void onDatasetRestored(DatasetRestoredEvent event) {
+        writes.incrementAndGet();
+        projects.invalidateAll();
+        issues.invalidateAll();
+        commits.invalidateAll();
+        comments.invalidateAll();
+    }
+
+    private static boolean references(Set<String> userIds, User user) {
+        return user != null && userIds.contains(user.getId());
+    }
+
+    public Map<String, CacheStatistics> statistics() {
+        Map<String, CacheStatistics> statistics = new LinkedHashMap<>();
+        statistics.put("projects", new CacheStatistics(projects.estimatedSize(), projectsSize, projects.stats()));
+        statistics.put("issues", new CacheStatistics(issues.estimatedSize(), entitiesSize, issues.stats()));
+        statistics.put("commits", new CacheStatistics(commits.estimatedSize(), entitiesSize, commits.stats()));
+        statistics.put("comments", new CacheStatistics(comments.estimatedSize(), entitiesSize, comments.stats()));
+        return statistics;
+    }
+}
@@ -0,0 +1,145 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.IssueSearch;
+import aiss.gitminer.dto.IssueSummary;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.pagination.TimeRange;
+import aiss.gitminer.repository.CommentCountView;
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.repository.LabelCountView;
+import aiss.gitminer.repository.ProjectRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Loads complete project and issue graphs with a fixed number of queries per collection level
+// (one per chunk of ids), instead of one lazy load per association while serializing
+@Service
+@Transactional(readOnly = true)
+public class FetchPlanService {
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    public Optional<Project> findProject(String id) {
+        Optional<Project> project = projectRepository.findById(id);
+        project.ifPresent(p -> loadProjects(List.of(p)));
+        return project;
+    }
+
+    public Optional<Project> findProjectByName(String name) {
+        Optional<Project> project = projectRepository.findByName(name);
+        project.ifPresent(p -> loadProjects(List.of(p)));
+        return project;
+    }
+
+    // One more row than the page size is returned, see KeysetPage
+    public List<Project> findProjectPage(String after, int limit) {
+        List<Project> projects = after == null
+                ? projectRepository.findAllByOrderByIdAsc(KeysetPage.request(limit))
+                : projectRepository.findByIdGreaterThanOrderByIdAsc(after, KeysetPage.request(limit));
+        return loadProjects(projects);
+    }
+
+    public Optional<Issue> findIssue(String id) {
+        Optional<Issue> issue = issueRepository.findById(id);
+        issue.ifPresent(i -> loadIssues(List.of(i)));
+        return issue;
+    }
+
+    public List<Issue> findIssuePage(String after, int limit) {
+        List<Issue> issues = after == null
+                ? issueRepository.findAllByOrderByIdAsc(KeysetPage.request(limit))
+                : issueRepository.findByIdGreaterThanOrderByIdAsc(after, KeysetPage.request(limit));
+        return loadIssues(issues);
+    }
+
+    public List<Issue> findIssuesCreatedInRange(TimeRange range, int limit) {
+        return loadIssues(issueRepository.findCreatedInRange(range.getAfterTime(), range.getAfterId(), range.getTo(), KeysetPage.request(limit)));
+    }
+
+    public List<Issue> findIssuesUpdatedInRange(TimeRange range, int limit) {
+        return loadIssues(issueRepository.findUpdatedInRange(range.getAfterTime(), range.getAfterId(), range.getTo(), KeysetPage.request(limit)));
+    }
+
+    public List<Issue> findIssuesByIds(List<String> ids) {
+        return loadIssues(IdChunks.query(ids, issueRepository::findByIdInOrderByIdAsc));
+    }
+
+    public List<Issue> searchIssues(IssueSearch search, int limit) {
+        return loadIssues(issueRepository.search(search, KeysetPage.request(limit)));
+    }
+
+    public Optional<List<Issue>> findIssuesByState(String state) {
+        return issueRepository.findByState(state).map(this::loadIssues);
+    }
+
+    public Optional<List<Issue>> findIssuesByAuthor(String authorId) {
+        return issueRepository.findByAuthor_Id(authorId).map(this::loadIssues);
+    }
+
+    public List<IssueSummary> findIssueSummaryPage(String after, int limit) {
+        return addCounts(issueRepository.findSummaries(after == null ? "" : after, KeysetPage.request(limit)));
+    }
+
+    public List<IssueSummary> findIssueSummariesCreatedInRange(TimeRange range, int limit) {
+        return addCounts(issueRepository.findSummariesCreatedInRange(range.getAfterTime(), range.getAfterId(), range.getTo(), KeysetPage.request(limit)));
+    }
+
+    public List<IssueSummary> findIssueSummariesUpdatedInRange(TimeRange range, int limit) {
+        return addCounts(issueRepository.findSummariesUpdatedInRange(range.getAfterTime(), range.getAfterId(), range.getTo(), KeysetPage.request(limit)));
+    }
+
+    public List<IssueSummary> searchIssueSummaries(IssueSearch search, int limit) {
+        return addCounts(issueRepository.searchSummaries(search, KeysetPage.request(limit)));
+    }
+
+    // Comment and label counts of the whole page with two grouped queries per chunk of ids, answered
+    // from the (issueId, createdAt) index and the label table; no comment or label row is loaded
+    List<IssueSummary> addCounts(List<IssueSummary> summaries) {
+        List<String> ids = summaries.stream().map(IssueSummary::getId).collect(Collectors.toList());
+        Map<String, CommentCountView> comments = IdChunks.query(ids, commentRepository::countByIssueIds).stream()
+                .collect(Collectors.toMap(CommentCountView::getIssueId, count -> count));
+        Map<String, Long> labels = IdChunks.query(ids, issueRepository::countLabels).stream()
+                .collect(Collectors.toMap(LabelCountView::getId, LabelCountView::getCount));
+        for (IssueSummary summary : summaries) {
+            CommentCountView count = comments.get(summary.getId());
+            if (count != null) {
+                summary.setCommentCount(count.getCount());
+                summary.setLastCommentAt(count.getLastCreatedAt());
+            }
+            summary.setLabelCount(labels.getOrDefault(summary.getId(), 0L));
+        }
+        return summaries;
+    }
+
+    // Commits, issues (with their users), then labels and comments (with their authors) of those issues
+    List<Project> loadProjects(List<Project> projects) {
+        List<String> ids = projects.stream().map(Project::getId).collect(Collectors.toList());
+        IdChunks.forEach(ids, projectRepository::fetchCommits);
+        IdChunks.forEach(ids, projectRepository::fetchIssues);
+        loadIssues(projects.stream().flatMap(project -> project.getIssues().stream()).collect(Collectors.toList()));
+        return projects;
+    }
+
+    List<Issue> loadIssues(List<Issue> issues) {
+        List<String> ids = issues.stream().map(Issue::getId).collect(Collectors.toList());
+        IdChunks.forEach(ids, issueRepository::fetchLabels);
+        IdChunks.forEach(ids, issueRepository::fetchComments);
+        return issues;
+    }
+}
@@ -0,0 +1,39 @@
+package aiss.gitminer.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Splits large id lists so that IN (...) queries stay within a reasonable number of bind parameters
+final class IdChunks {
+
+    static final int CHUNK_SIZE = 1000;
+    // For primary key lookups of many rows: H2 evaluates an IN list in more than linear time, and
+    // around this size (that of hibernate.default_batch_fetch_size) the total is lowest
+    static final int LOOKUP_CHUNK_SIZE = 100;
+
+    private IdChunks() {
+    }
+
+    static <R> List<R> query(Collection<String> ids, Function<List<String>, List<R>> query) {
+        return query(ids, CHUNK_SIZE, query);
+    }
+
+    static <R> List<R> query(Collection<String> ids, int chunkSize, Function<List<String>, List<R>> query) {
+        List<String> all = new ArrayList<>(ids);
+        List<R> results = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            results.addAll(query.apply(all.subList(from, Math.min(from + chunkSize, all.size()))));
+        }
+        return results;
+    }
+
+    static void forEach(Collection<String> ids, Consumer<List<String>> action) {
+        List<String> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            action.accept(all.subList(from, Math.min(from + CHUNK_SIZE, all.size())));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.IngestJob;
+import aiss.gitminer.dto.IngestReport;
+import aiss.gitminer.exception.IngestQueueFullException;
+import aiss.gitminer.exception.ProjectAlreadyExistsException;
+import aiss.gitminer.exception.ProjectNotFoundException;
+import aiss.gitminer.exception.RestoreInProgressException;
+import aiss.gitminer.model.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Asynchronous ingest: the request body is spooled to a temporary file and its envelope checked
+// while the client waits, then a fixed pool of workers writes it with ProjectIngestService.ingestInChunks.
+// Waiting jobs are bounded, so a burst of ingests is turned away instead of taking every connection
+// and database thread from the reads.
+@Service
+public class IngestJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestJobService.class);
+
+    @Autowired
+    ProjectIngestService projectIngestService;
+
+    @Autowired
+    ProjectService projectService;
+
+    private final ThreadPoolExecutor workers;
+    private final Path spoolDir;
+    private final Duration retention;
+    private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+
+    public IngestJobService(@Value("${gitminer.ingest.jobs.workers:2}") int workerCount,
+                            @Value("${gitminer.ingest.jobs.queue-capacity:8}") int queueCapacity,
+                            @Value("${gitminer.ingest.jobs.spool-dir:}") String spoolDir,
+                            @Value("${gitminer.ingest.jobs.retention:1h}") Duration retention) {
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "ingest-worker-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.spoolDir = spoolDir.isBlank() ? Paths.get(System.getProperty("java.io.tmpdir")) : Paths.get(spoolDir);
+        this.retention = retention;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public IngestJob submit(InputStream in) throws IOException, ProjectAlreadyExistsException, IngestQueueFullException {
+        // Turned away before reading the body when no worker or queue slot is free
+        if (workers.getQueue().remainingCapacity() == 0) {
+            throw new IngestQueueFullException();
+        }
+        forgetFinishedJobs();
+        Path file = Files.createTempFile(Files.createDirectories(spoolDir), "ingest-", ".json");
+        try {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            Project header;
+            try (InputStream spooled = Files.newInputStream(file)) {
+                header = projectIngestService.readHeader(spooled);
+            }
+            IngestJob job = new IngestJob(UUID.randomUUID().toString(), header.getId());
+            jobs.put(job.getId(), job);
+            try {
+                workers.execute(() -> run(job, file));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getId());
+                throw new IngestQueueFullException();
+            }
+            return job;
+        } catch (IOException | RuntimeException | ProjectAlreadyExistsException | IngestQueueFullException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    public Optional<IngestJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(IngestJob job, Path file) {
+        job.start();
+        try (InputStream in = Files.newInputStream(file)) {
+            IngestReport report = projectIngestService.ingestInChunks(in, job::progress);
+            job.succeed(report);
+        } catch (Exception e) {
+            log.warn("Ingest job {} of project {} failed", job.getId(), job.getProjectId(), e);
+            String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            job.fail(error + discard(job));
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete {}", file, e);
+            }
+        }
+    }
+
+    // Chunks committed before a failure are deleted again, so the project can be sent once more.
+    // Nothing was committed if no progress was reported, and then the project may not even be ours.
+    private String discard(IngestJob job) {
+        if (job.getEntities() == 0) {
+            return "";
+        }
+        try {
+            projectService.delete(job.getProjectId());
+            return " (the rows written before were deleted)";
+        } catch (ProjectNotFoundException e) {
+            return "";
+        } catch (RestoreInProgressException | RuntimeException e) {
+            log.warn("Could not delete the partial project {}", job.getProjectId(), e);
+            return " (the rows written before were kept)";
+        }
+    }
+
+    private void forgetFinishedJobs() {
+        Instant oldest = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(oldest));
+    }
+}
@@ -0,0 +1,299 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.IssueLatency;
+import aiss.gitminer.histogram.LatencyHistogram;
+import aiss.gitminer.model.Change;
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommentStatsView;
+import aiss.gitminer.repository.FirstCommentView;
+import aiss.gitminer.repository.IssueLatencyView;
+import aiss.gitminer.repository.IssueRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Histograms of the time to close and the time to first comment of issues, per project and per label
+// of each project (see LatencyHistogram). Followed through the change log (see ChangeLogService):
+// every write reads again only the issues it names and the issues of the comments it names, and moves
+// their old durations out of the histograms and the new ones in. Built at startup and after a restore.
+@Service
+public class IssueLatencyService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    @Autowired
+    LabelDictionary labelDictionary;
+
+    private final Map<String, ProjectLatencies> projects = new HashMap<>();
+    // The durations every counted issue added, so that a refresh can take them out again. Issues
+    // without a project or without anything to measure are not kept.
+    private final Map<String, IssueRow> issues = new HashMap<>();
+    // Counted issues by the ID of their first comment: the only comment whose change can move a
+    // time to first comment other than through the issue it belongs to now
+    private final Map<String, IssueRow> byFirstComment = new HashMap<>();
+    // Last change applied
+    private long seq;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        // Changes committed during the scan are applied once more below, which is harmless: issues
+        // are always read again by id
+        long last = changeLogService.lastSeq();
+        List<IssueLatencyView> rows = issueRepository.findLatencyRows();
+        List<FirstCommentView> firstComments = commentRepository.findFirstComments();
+        synchronized (projects) {
+            projects.clear();
+            issues.clear();
+            byFirstComment.clear();
+            refresh(Set.of(), rows, firstComments);
+            seq = last;
+        }
+        catchUp();
+    }
+
+    // Ordered before VersionStampService, so a client that sees the new list stamp also sees the
+    // new histograms
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProjectWritten(ProjectWrittenEvent event) {
+        catchUp();
+    }
+
+    @Order(1)
+    @EventListener
+    public synchronized void onDatasetRestored(DatasetRestoredEvent event) {
+        rebuild();
+    }
+
+    private void catchUp() {
+        List<Change> changes;
+        do {
+            changes = changeLogService.findAfter(seq, PageRequest.of(0, BATCH_SIZE));
+            apply(changes);
+        } while (changes.size() == BATCH_SIZE);
+    }
+
+    private void apply(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Set<String> issueIds = new HashSet<>();
+        Set<String> commentIds = new HashSet<>();
+        for (Change change : changes) {
+            if (change.getEntity().equals("issue")) {
+                issueIds.add(change.getEntityId());
+            } else if (change.getEntity().equals("comment")) {
+                commentIds.add(change.getEntityId());
+                if (change.getIssueId() != null) {
+                    issueIds.add(change.getIssueId());
+                }
+            }
+        }
+        // A comment moves the first comment of the issue it is in now and of the issue it was the
+        // first comment of
+        for (CommentStatsView comment : IdChunks.query(commentIds, commentRepository::findStatsRowsByIds)) {
+            if (comment.getIssueId() != null) {
+                issueIds.add(comment.getIssueId());
+            }
+        }
+        for (String commentId : commentIds) {
+            IssueRow issue = byFirstComment.get(commentId);
+            if (issue != null) {
+                issueIds.add(issue.id);
+            }
+        }
+        List<IssueLatencyView> rows = IdChunks.query(issueIds, issueRepository::findLatencyRowsByIds);
+        List<FirstCommentView> firstComments = IdChunks.query(issueIds, commentRepository::findFirstCommentsByIssueIds);
+        synchronized (projects) {
+            refresh(issueIds, rows, firstComments);
+            seq = changes.get(changes.size() - 1).getSeq();
+        }
+    }
+
+    // Takes the issues out of the histograms and puts back the ones that are still stored, as read.
+    // Issues only in the rows are new.
+    private void refresh(Collection<String> issueIds, List<IssueLatencyView> rows, List<FirstCommentView> firstComments) {
+        Map<String, LoadedIssue> loaded = new HashMap<>();
+        for (IssueLatencyView row : rows) {
+            LoadedIssue issue = loaded.computeIfAbsent(row.getId(), id -> new LoadedIssue(row));
+            if (row.getLabel() != null) {
+                issue.labelIds.add(labelDictionary.id(row.getLabel()));
+            }
+        }
+        Map<String, FirstCommentView> firstCommentOf = new HashMap<>();
+        for (FirstCommentView comment : firstComments) {
+            // Ties are broken by id, so every refresh picks the same one
+            firstCommentOf.merge(comment.getIssueId(), comment, (a, b) -> a.getId().compareTo(b.getId()) <= 0 ? a : b);
+        }
+
+        for (String id : issueIds) {
+            IssueRow old = issues.remove(id);
+            if (old != null) {
+                subtract(old);
+                if (old.firstCommentId != null) {
+                    byFirstComment.remove(old.firstCommentId);
+                }
+            }
+        }
+        loaded.forEach((id, issue) -> {
+            if (issue.projectId == null) {
+                return;
+            }
+            FirstCommentView firstComment = firstCommentOf.get(id);
+            IssueRow row = new IssueRow(id, issue.labelIds.stream().mapToInt(Integer::intValue).toArray(),
+                    issue.closedAt == null ? -1 : seconds(issue.createdAt, issue.closedAt),
+                    firstComment == null ? null : firstComment.getId(),
+                    firstComment == null ? -1 : seconds(issue.createdAt, firstComment.getCreatedAt()));
+            if (row.toClose < 0 && row.toFirstComment < 0) {
+                return;
+            }
+            row.project = projects.computeIfAbsent(issue.projectId, ProjectLatencies::new);
+            issues.put(id, row);
+            if (row.firstCommentId != null) {
+                byFirstComment.put(row.firstCommentId, row);
+            }
+            add(row);
+        });
+    }
+
+    // Dates out of order count as no time at all
+    private static long seconds(Instant from, Instant to) {
+        return Math.max(0, Duration.between(from, to).getSeconds());
+    }
+
+    private void add(IssueRow issue) {
+        issue.project.all.add(issue);
+        for (int labelId : issue.labelIds) {
+            issue.project.byLabel.computeIfAbsent(labelId, id -> new Latencies()).add(issue);
+        }
+    }
+
+    private void subtract(IssueRow issue) {
+        ProjectLatencies project = issue.project;
+        project.all.remove(issue);
+        for (int labelId : issue.labelIds) {
+            Latencies latencies = project.byLabel.get(labelId);
+            latencies.remove(issue);
+            if (latencies.isEmpty()) {
+                project.byLabel.remove(labelId);
+            }
+        }
+        if (project.all.isEmpty()) {
+            projects.remove(project.projectId);
+        }
+    }
+
+    // Histograms of one project, or of all of them merged when projectId is null; only of the issues
+    // with the label, if given. Unknown labels match nothing.
+    public IssueLatency latency(String projectId, String label) {
+        Optional<Integer> labelId = label == null ? Optional.empty() : labelDictionary.find(label);
+        Latencies merged = new Latencies();
+        synchronized (projects) {
+            ProjectLatencies one = projectId == null ? null : projects.get(projectId);
+            Collection<ProjectLatencies> selected = projectId == null ? projects.values() : one == null ? List.of() : List.of(one);
+            for (ProjectLatencies project : selected) {
+                Latencies latencies = label == null ? project.all : labelId.map(project.byLabel::get).orElse(null);
+                if (latencies != null) {
+                    merged.toClose.merge(latencies.toClose);
+                    merged.toFirstComment.merge(latencies.toFirstComment);
+                }
+            }
+            return new IssueLatency(projectId, label, seq, merged.toClose, merged.toFirstComment);
+        }
+    }
+
+    private static class ProjectLatencies {
+
+        private final String projectId;
+        private final Latencies all = new Latencies();
+        private final Map<Integer, Latencies> byLabel = new HashMap<>();
+
+        ProjectLatencies(String projectId) {
+            this.projectId = projectId;
+        }
+    }
+
+    private static class Latencies {
+
+        private final LatencyHistogram toClose = new LatencyHistogram();
+        private final LatencyHistogram toFirstComment = new LatencyHistogram();
+
+        void add(IssueRow issue) {
+            if (issue.toClose >= 0) {
+                toClose.add(issue.toClose);
+            }
+            if (issue.toFirstComment >= 0) {
+                toFirstComment.add(issue.toFirstComment);
+            }
+        }
+
+        void remove(IssueRow issue) {
+            if (issue.toClose >= 0) {
+                toClose.remove(issue.toClose);
+            }
+            if (issue.toFirstComment >= 0) {
+                toFirstComment.remove(issue.toFirstComment);
+            }
+        }
+
+        boolean isEmpty() {
+            return toClose.isEmpty() && toFirstComment.isEmpty();
+        }
+    }
+
+    // Durations in seconds, -1 when there is none
+    private static class IssueRow {
+
+        private final String id;
+        private final int[] labelIds;
+        private final long toClose;
+        private final String firstCommentId;
+        private final long toFirstComment;
+        private ProjectLatencies project;
+
+        IssueRow(String id, int[] labelIds, long toClose, String firstCommentId, long toFirstComment) {
+            this.id = id;
+            this.labelIds = labelIds;
+            this.toClose = toClose;
+            this.firstCommentId = firstCommentId;
+            this.toFirstComment = toFirstComment;
+        }
+    }
+
+    private static class LoadedIssue {
+
+        private final String projectId;
+        private final Instant createdAt;
+        private final Instant closedAt;
+        private final Set<Integer> labelIds = new HashSet<>();
+
+        LoadedIssue(IssueLatencyView row) {
+            this.projectId = row.getProjectId();
+            this.createdAt = row.getCreatedAt();
+            this.closedAt = row.getClosedAt();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.repository.LabelRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// In-memory copy of the Label table. The table only ever grows, so both directions can be cached
+// for good; it is read once on first use rather than at startup, since LabelConverter already
+// needs it while Hibernate is starting. Writers intern the labels of their issues before saving
+// them, because the converter runs inside a flush and cannot write to the table itself.
+@Service
+public class LabelDictionary {
+
+    @Autowired
+    LabelRepository labelRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public Optional<Integer> find(String name) {
+        load();
+        Integer id = ids.get(name);
+        Added added = added(false);
+        if (id == null && added != null) {
+            id = added.ids.get(name);
+        }
+        return Optional.ofNullable(id);
+    }
+
+    public int id(String name) {
+        return find(name).orElseThrow(() -> new IllegalStateException("Label not interned: " + name));
+    }
+
+    public String name(int id) {
+        load();
+        String name = names.get(id);
+        Added added = added(false);
+        if (name == null && added != null) {
+            name = added.names.get(id);
+        }
+        if (name == null) {
+            // Committed by another process writing to the same database
+            List<String> stored = jdbcTemplate.queryForList("select name from label where id = ?", String.class, id);
+            if (!stored.isEmpty()) {
+                name = stored.get(0);
+                add(name, id);
+            }
+        }
+        if (name == null) {
+            throw new IllegalStateException("Unknown label id " + id);
+        }
+        return name;
+    }
+
+    // New labels are inserted in the caller's transaction, so a writer needs no second connection,
+    // and only cached once it commits, so the cached IDs never point at rows that were rolled back.
+    // Until then they are only seen by that transaction. Two writers adding the same label both insert
+    // it: the second waits for the first to commit and then uses its row.
+    public void internAll(Collection<Issue> issues) {
+        if (issues == null) {
+            return;
+        }
+        Set<String> missing = issues.stream()
+                .filter(issue -> issue.getLabels() != null)
+                .flatMap(issue -> issue.getLabels().stream())
+                .filter(name -> name != null && find(name).isEmpty())
+                .collect(Collectors.toSet());
+        for (String name : missing) {
+            List<Integer> stored = selectId(name);
+            if (!stored.isEmpty()) {
+                add(name, stored.get(0));
+            } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                added(true).add(name, insert(name));
+            } else {
+                add(name, insert(name));
+            }
+        }
+    }
+
+    // A restore brings back the label IDs of its snapshot and drops labels created since, so the
+    // table is read again. Right away and not on first use, which may be the converter inside a query;
+    // ordered before the label index, which is rebuilt from it.
+    @Order(0)
+    @EventListener
+    public synchronized void onDatasetRestored(DatasetRestoredEvent event) {
+        ids.clear();
+        names.clear();
+        loaded = false;
+        load();
+    }
+
+    private void load() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    labelRepository.findAll().forEach(label -> add(label.getName(), label.getId()));
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    private void add(String name, int id) {
+        ids.put(name, id);
+        names.put(id, name);
+    }
+
+    private List<Integer> selectId(String name) {
+        return jdbcTemplate.queryForList("select id from label where name = ?", Integer.class, name);
+    }
+
+    // A failed statement leaves the rest of an H2 transaction as it was, so the row of the writer
+    // that got there first can still be read
+    private int insert(String name) {
+        KeyHolder key = new GeneratedKeyHolder();
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement insert = connection.prepareStatement("insert into label (name) values (?)", Statement.RETURN_GENERATED_KEYS);
+                insert.setString(1, name);
+                return insert;
+            }, key);
+            return key.getKey().intValue();
+        } catch (DuplicateKeyException e) {
+            return selectId(name).get(0);
+        }
+    }
+
+    // Labels inserted by the transaction in progress, published to the cache when it commits
+    private Added added(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Added added = (Added) TransactionSynchronizationManager.getResource(this);
+        if (added == null && create) {
+            added = new Added();
+            TransactionSynchronizationManager.bindResource(this, added);
+            TransactionSynchronizationManager.registerSynchronization(added);
+        }
+        return added;
+    }
+
+    private class Added implements TransactionSynchronization {
+        final Map<String, Integer> ids = new HashMap<>();
+        final Map<Integer, String> names = new HashMap<>();
+
+        void add(String name, int id) {
+            ids.put(name, id);
+            names.put(id, name);
+        }
+
+        @Override
+        public void afterCommit() {
+            ids.forEach(LabelDictionary.this::add);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(LabelDictionary.this);
+        }
+    }
+}
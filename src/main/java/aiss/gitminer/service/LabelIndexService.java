@@ -0,0 +1,302 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.IssueSearch;
+import aiss.gitminer.exception.InvalidCursorException;
+import aiss.gitminer.model.Change;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.repository.LabelIndexView;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// In-memory bitmap index of issue labels. Every issue gets a small ordinal, and every label ID (see
+// LabelDictionary), state and project keeps a compressed bitmap of the ordinals of its issues, so
+// label filters are ANDs/ORs of bitmaps and label counts are intersection cardinalities.
+// Built at startup and refreshed through the change log after every committed write.
+@Service
+public class LabelIndexService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    LabelDictionary labelDictionary;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Ordinals are never reused, an issue that is deleted and comes back gets its old one again
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> issueIds = new ArrayList<>();
+    private final Map<Integer, RoaringBitmap> byLabel = new HashMap<>();
+    private final Map<String, RoaringBitmap> byState = new HashMap<>();
+    private final Map<String, RoaringBitmap> byProject = new HashMap<>();
+    // What each indexed ordinal is filed under, so that a refresh can take it out again
+    private final Map<Integer, IndexedIssue> indexed = new HashMap<>();
+    // Last change applied
+    private long seq;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        // Changes committed during the scan are applied once more below, which is harmless: issues
+        // are always read again by id
+        long last = changeLogService.lastSeq();
+        apply(issueRepository.findLabelIndexRows(), Set.of());
+        seq = last;
+        catchUp();
+    }
+
+    // Ordered before VersionStampService, so a client that sees the new list stamp also sees the
+    // refreshed index. Follows the change log like IssueLatencyService, so only the issues a write
+    // names are read again, whatever the size of their project.
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProjectWritten(ProjectWrittenEvent event) {
+        catchUp();
+    }
+
+    @Order(1)
+    @EventListener
+    public synchronized void onDatasetRestored(DatasetRestoredEvent event) {
+        lock.writeLock().lock();
+        try {
+            indexed.clear();
+            byLabel.clear();
+            byState.clear();
+            byProject.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuild();
+    }
+
+    private void catchUp() {
+        List<Change> changes;
+        do {
+            changes = changeLogService.findAfter(seq, PageRequest.of(0, BATCH_SIZE));
+            if (!changes.isEmpty()) {
+                // Issues that left their project, or were deleted, are dropped from their bitmaps
+                Set<String> refreshed = changes.stream()
+                        .filter(change -> change.getEntity().equals("issue"))
+                        .map(Change::getEntityId)
+                        .collect(Collectors.toSet());
+                apply(IdChunks.query(refreshed, issueRepository::findLabelIndexRowsByIds), refreshed);
+                seq = changes.get(changes.size() - 1).getSeq();
+            }
+        } while (changes.size() == BATCH_SIZE);
+    }
+
+    private void apply(List<LabelIndexView> rows, Set<String> refreshed) {
+        // In the order read, so that a rebuild hands out ordinals by ID
+        Map<String, IndexedIssue> loaded = new LinkedHashMap<>();
+        for (LabelIndexView row : rows) {
+            IndexedIssue issue = loaded.computeIfAbsent(row.getId(), id -> new IndexedIssue(row.getState(), row.getProjectId()));
+            if (row.getLabel() != null) {
+                issue.labelIds.add(labelDictionary.id(row.getLabel()));
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            refreshed.forEach(this::remove);
+            loaded.keySet().forEach(this::remove);
+            loaded.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String issueId) {
+        Integer ordinal = ordinals.get(issueId);
+        IndexedIssue issue = ordinal == null ? null : indexed.remove(ordinal);
+        if (issue == null) {
+            return;
+        }
+        issue.labelIds.forEach(labelId -> clear(byLabel, labelId, ordinal));
+        clear(byState, issue.state, ordinal);
+        clear(byProject, issue.projectId, ordinal);
+    }
+
+    private void add(String issueId, IndexedIssue issue) {
+        int ordinal = ordinals.computeIfAbsent(issueId, id -> {
+            issueIds.add(id);
+            return issueIds.size() - 1;
+        });
+        indexed.put(ordinal, issue);
+        issue.labelIds.forEach(labelId -> byLabel.computeIfAbsent(labelId, id -> new RoaringBitmap()).add(ordinal));
+        if (issue.state != null) {
+            byState.computeIfAbsent(issue.state, state -> new RoaringBitmap()).add(ordinal);
+        }
+        if (issue.projectId != null) {
+            byProject.computeIfAbsent(issue.projectId, id -> new RoaringBitmap()).add(ordinal);
+        }
+    }
+
+    private static <K> void clear(Map<K, RoaringBitmap> bitmaps, K key, int ordinal) {
+        RoaringBitmap bitmap = key == null ? null : bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    // A page of the issues with all of the labels (or at least one, when any is set) and, if given, the
+    // state and project, in the order of their ordinals: by ID for the issues stored at startup, then
+    // in the order they were first written. Only the page is turned into IDs. Unknown labels match
+    // nothing.
+    public Matches findIssueIds(Collection<String> labels, boolean any, String state, String projectId,
+                                String afterId, int limit) throws InvalidCursorException {
+        List<String> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = matches(labels, any, state, projectId);
+            PeekableIntIterator it = matches.getIntIterator();
+            if (afterId != null) {
+                Integer after = ordinals.get(afterId);
+                if (after == null) {
+                    throw new InvalidCursorException();
+                }
+                it.advanceIfNeeded(after + 1);
+            }
+            while (it.hasNext() && ids.size() <= limit) {
+                ids.add(issueIds.get(it.next()));
+            }
+            return new Matches(ids, matches.getLongCardinality());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RoaringBitmap matches(Collection<String> labels, boolean any, String state, String projectId) {
+        RoaringBitmap matches = any ? anyOf(labels) : allOf(labels);
+        if (state != null) {
+            matches.and(byState.getOrDefault(state, new RoaringBitmap()));
+        }
+        if (projectId != null) {
+            matches.and(byProject.getOrDefault(projectId, new RoaringBitmap()));
+        }
+        return matches;
+    }
+
+    // Both return a new bitmap, the caller narrows it further in place
+    private RoaringBitmap allOf(Collection<String> labels) {
+        RoaringBitmap matches = null;
+        for (String label : labels) {
+            Optional<RoaringBitmap> bitmap = labelDictionary.find(label).map(byLabel::get);
+            if (bitmap.isEmpty()) {
+                return new RoaringBitmap();
+            }
+            if (matches == null) {
+                matches = bitmap.get().clone();
+            } else {
+                matches.and(bitmap.get());
+            }
+        }
+        return matches == null ? new RoaringBitmap() : matches;
+    }
+
+    private RoaringBitmap anyOf(Collection<String> labels) {
+        RoaringBitmap matches = new RoaringBitmap();
+        labels.forEach(label -> labelDictionary.find(label).map(byLabel::get).ifPresent(matches::or));
+        return matches;
+    }
+
+    // Number of issues of the project (in the state, if given) per label, most used first
+    public Map<String, Integer> labelCounts(String projectId, String state) {
+        Map<String, Integer> counts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap issues = byProject.get(projectId);
+            if (issues != null && state != null) {
+                issues = RoaringBitmap.and(issues, byState.getOrDefault(state, new RoaringBitmap()));
+            }
+            if (issues != null && !issues.isEmpty()) {
+                for (Map.Entry<Integer, RoaringBitmap> label : byLabel.entrySet()) {
+                    int count = RoaringBitmap.andCardinality(issues, label.getValue());
+                    if (count > 0) {
+                        counts.put(labelDictionary.name(label.getKey()), count);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    // Label criteria of a search with few enough matches become an ID list the query can look up by
+    // primary key; broader ones are left to the query's label subqueries, and are never turned into IDs
+    public void narrow(IssueSearch search) {
+        if (search.getLabels().isEmpty()) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = matches(search.getLabels(), false, search.getState(), search.getProjectId());
+            if (matches.getLongCardinality() <= IdChunks.CHUNK_SIZE) {
+                List<String> ids = new ArrayList<>();
+                matches.forEach((int ordinal) -> ids.add(issueIds.get(ordinal)));
+                search.setIssueIds(ids);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Up to limit + 1 IDs, so the caller knows whether a next page exists, and the number of matches
+    public static class Matches {
+
+        private final List<String> issueIds;
+        private final long count;
+
+        Matches(List<String> issueIds, long count) {
+            this.issueIds = issueIds;
+            this.count = count;
+        }
+
+        public List<String> getIssueIds() {
+            return issueIds;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    private static class IndexedIssue {
+
+        private final String state;
+        private final String projectId;
+        private final Set<Integer> labelIds = new HashSet<>();
+
+        IndexedIssue(String state, String projectId) {
+            this.state = state;
+            this.projectId = projectId;
+        }
+    }
+}
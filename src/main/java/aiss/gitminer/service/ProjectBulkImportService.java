@@ -0,0 +1,147 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.BulkImportReport;
+import aiss.gitminer.dto.BulkImportReport.ProjectResult;
+import aiss.gitminer.exception.RestoreInProgressException;
+import aiss.gitminer.model.Project;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Imports many projects at once, each in its own transaction through ProjectService.create, on a
+// fixed pool of workers shared by all bulk requests. Projects are read one at a time from a JSON
+// array or an NDJSON stream and handed out as workers free up, so memory stays bounded by the pool.
+// Projects only meet on shared rows, users above all: when two of them insert the same user at the
+// same time, the one that loses fails on the primary key and is simply retried, and then finds the
+// user stored. Every worker holds a pooled connection for as long as it writes, so the pool bounds
+// the throughput of bulk imports: workers are capped at its size less the connections left to the
+// reads and the other writes.
+@Service
+public class ProjectBulkImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectBulkImportService.class);
+    static final int MAX_ATTEMPTS = 3;
+    static final int RESERVED_CONNECTIONS = 2;
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    Validator validator;
+
+    private final ExecutorService workers;
+    private final int workerCount;
+
+    public ProjectBulkImportService(@Value("${gitminer.bulk.workers:0}") int workerCount,
+                                    @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        int requested = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        this.workerCount = Math.max(1, Math.min(requested, poolSize - RESERVED_CONNECTIONS));
+        if (this.workerCount < requested) {
+            log.info("Bulk import limited to {} workers by a pool of {} connections", this.workerCount, poolSize);
+        }
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-import-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Malformed JSON ends the read: the projects before it are still imported, and the failure is
+    // reported at the index where it occurred
+    public BulkImportReport importAll(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        BulkImportReport report = new BulkImportReport();
+        List<CompletableFuture<Void>> imports = new ArrayList<>();
+        // At most one project waits for each busy worker
+        Semaphore slots = new Semaphore(workerCount * 2);
+        try (MappingIterator<Project> projects = objectMapper.readerFor(Project.class).readValues(in)) {
+            while (true) {
+                Project project;
+                try {
+                    if (!projects.hasNextValue()) {
+                        break;
+                    }
+                    project = projects.nextValue();
+                } catch (JsonProcessingException e) {
+                    ProjectResult result = new ProjectResult(report.getProjects().size(), null);
+                    result.fail(0, e.getOriginalMessage());
+                    report.getProjects().add(result);
+                    break;
+                }
+                ProjectResult result = new ProjectResult(report.getProjects().size(), project.getId());
+                report.getProjects().add(result);
+                slots.acquireUninterruptibly();
+                imports.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        importOne(project, result);
+                    } finally {
+                        slots.release();
+                    }
+                }, workers));
+            }
+        } finally {
+            CompletableFuture.allOf(imports.toArray(new CompletableFuture[0])).join();
+        }
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    private void importOne(Project project, ProjectResult result) {
+        Set<ConstraintViolation<Project>> violations = validator.validate(project);
+        if (!violations.isEmpty()) {
+            result.fail(0, violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                projectService.create(project);
+                result.succeed(attempt);
+                return;
+            } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+                // Most likely a row another project inserted meanwhile, which the next attempt reads
+                if (attempt == MAX_ATTEMPTS) {
+                    result.fail(attempt, e.getMostSpecificCause().getMessage());
+                    return;
+                }
+            } catch (RestoreInProgressException e) {
+                result.fail(attempt, "A snapshot is being restored");
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Bulk import of project {} failed", project.getId(), e);
+                result.fail(attempt, e.getMessage());
+                return;
+            }
+        }
+    }
+}
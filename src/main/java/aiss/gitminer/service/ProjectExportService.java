@@ -0,0 +1,59 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.model.Project;
+import aiss.gitminer.repository.ProjectRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class ProjectExportService {
+
+    // Number of projects written between two flushes of the response
+    private static final int FLUSH_INTERVAL = 16;
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    // Writes every project with its commits, issues and comments as one JSON document per line.
+    // Rows are read through a forward-only cursor and the persistence context is cleared once each
+    // project is written, users and anything batch-fetched along with it included, so heap use does
+    // not grow with the size of the database.
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream out) throws IOException {
+        long written = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             Stream<Project> projects = projectRepository.streamAllByOrderByIdAsc()) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<Project> it = projects.iterator();
+            while (it.hasNext()) {
+                Project project = it.next();
+                generator.writeObject(project);
+                generator.writeRaw('\n');
+                entityManager.clear();
+
+                if (++written % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,320 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.IngestReport;
+import aiss.gitminer.exception.ProjectAlreadyExistsException;
+import aiss.gitminer.exception.RestoreInProgressException;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.repository.ProjectRepository;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Streaming ingest of a single project document. Commits, issues and comments are parsed one at a
+// time, validated, and written in JDBC batches; the persistence context is cleared after every chunk
+// so memory does not depend on the size of the payload. The whole document is written in one
+// transaction, or, for ingest jobs, in one transaction per chunk.
+@Service
+public class ProjectIngestService {
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    Validator validator;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    RevisionClock revisionClock;
+
+    @Autowired
+    LabelDictionary labelDictionary;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    DatasetLock datasetLock;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Value("${gitminer.ingest.chunk-size:500}")
+    int chunkSize;
+
+    // Chunks are flushed as they are written, so a malformed or truncated document (a checked
+    // exception) must roll them back as well
+    @Transactional(rollbackFor = Exception.class)
+    public IngestReport ingest(InputStream in) throws IOException, ProjectAlreadyExistsException, RestoreInProgressException {
+        datasetLock.lockForTransaction();
+        long start = System.nanoTime();
+        IngestRun run = new IngestRun();
+        read(in, run);
+        run.endChunk();
+        // Only new rows are written and stored users are left as they are
+        eventPublisher.publishEvent(new ProjectWrittenEvent(Set.of(run.header.getId()), Set.of(), run.commitIds, Set.of()));
+
+        run.report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return run.report;
+    }
+
+    // Commits every chunk as soon as it is written, so no transaction (or HTTP request) has to last as
+    // long as the whole document. The project is readable while it is written; its revision moves again
+    // once it is complete, so nothing cached in between keeps its stamp. The report is passed to
+    // progress after every commit. A failure keeps the chunks committed before it. No restore starts
+    // before the last chunk is written.
+    public IngestReport ingestInChunks(InputStream in, Consumer<IngestReport> progress)
+            throws IOException, ProjectAlreadyExistsException, RestoreInProgressException {
+        long start = System.nanoTime();
+        IngestRun run = new IngestRun();
+        run.progress = progress;
+        datasetLock.lockWrites();
+        try {
+            run.transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+            try {
+                read(in, run);
+                run.endChunk();
+                projectRepository.setRevision(Set.of(run.header.getId()), revisionClock.next());
+                eventPublisher.publishEvent(new ProjectWrittenEvent(Set.of(run.header.getId()), Set.of(), run.commitIds, Set.of()));
+                transactionManager.commit(run.transaction);
+            } finally {
+                if (!run.transaction.isCompleted()) {
+                    transactionManager.rollback(run.transaction);
+                }
+            }
+        } finally {
+            datasetLock.unlockWrites();
+        }
+        run.report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return run.report;
+    }
+
+    // Reads the document up to its end without writing anything: id, name and web_url are validated
+    // where the first commit or issue would be written, and the rest is only checked to be well-formed
+    public Project readHeader(InputStream in) throws IOException, ProjectAlreadyExistsException {
+        Project header = new Project();
+        boolean checked = false;
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a project object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (!checked && (field.equals("commits") || field.equals("issues"))) {
+                    checkHeader(header);
+                    checked = true;
+                }
+                switch (field) {
+                    case "id":
+                        header.setId(parser.getValueAsString());
+                        break;
+                    case "name":
+                        header.setName(parser.getValueAsString());
+                        break;
+                    case "web_url":
+                        header.setWebUrl(parser.getValueAsString());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        if (!checked) {
+            checkHeader(header);
+        }
+        return header;
+    }
+
+    private void checkHeader(Project header) throws ProjectAlreadyExistsException {
+        validate(header);
+        if (projectRepository.existsById(header.getId())) {
+            throw new ProjectAlreadyExistsException();
+        }
+    }
+
+    private void read(InputStream in, IngestRun run) throws IOException, ProjectAlreadyExistsException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a project object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id":
+                        run.header.setId(parser.getValueAsString());
+                        break;
+                    case "name":
+                        run.header.setName(parser.getValueAsString());
+                        break;
+                    case "web_url":
+                        run.header.setWebUrl(parser.getValueAsString());
+                        break;
+                    case "commits":
+                        run.writeHeader();
+                        readArray(parser, Commit.class, run::writeCommit);
+                        break;
+                    case "issues":
+                        run.writeHeader();
+                        readArray(parser, Issue.class, run::writeIssue);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            run.writeHeader();
+        }
+    }
+
+    private <T> void readArray(JsonParser parser, Class<T> type, EntityWriter<T> writer) throws IOException, ProjectAlreadyExistsException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Expected an array of " + type.getSimpleName());
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            writer.write(objectMapper.readValue(parser, type));
+        }
+    }
+
+    private <T> void validate(T entity) {
+        Set<ConstraintViolation<T>> violations = validator.validate(entity);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntityWriter<T> {
+        void write(T entity) throws ProjectAlreadyExistsException;
+    }
+
+    // State of one ingest call
+    private class IngestRun {
+        final Project header = new Project();
+        final IngestReport report = new IngestReport();
+        // Users already written or found by this run, so later references need no lookup
+        final Set<String> knownUsers = new HashSet<>();
+        final Set<String> commitIds = new HashSet<>();
+        boolean headerWritten;
+        int pending;
+        // Only set for ingest jobs, which commit every chunk
+        TransactionStatus transaction;
+        Consumer<IngestReport> progress;
+
+        // The project row must exist before its children, so id, name and web_url have to precede them
+        void writeHeader() throws ProjectAlreadyExistsException {
+            if (headerWritten) {
+                return;
+            }
+            checkHeader(header);
+            header.setRevision(revisionClock.next());
+            entityManager.persist(header);
+            report.setProjectId(header.getId());
+            headerWritten = true;
+            written();
+        }
+
+        void writeCommit(Commit commit) {
+            validate(commit);
+            commit.setProjectId(header.getId());
+            entityManager.persist(commit);
+            commitIds.add(commit.getId());
+            report.addCommit();
+            written();
+        }
+
+        void writeIssue(Issue issue) {
+            validate(issue);
+            List<Comment> comments = issue.getComments() == null ? List.of() : issue.getComments();
+            comments.forEach(ProjectIngestService.this::validate);
+
+            issue.setProjectId(header.getId());
+            labelDictionary.internAll(List.of(issue));
+            issue.setAuthor(resolve(issue.getAuthor()));
+            issue.setAssignee(resolve(issue.getAssignee()));
+            // Comments carry their own issueId, leaving the collection empty avoids one UPDATE per comment
+            issue.setComments(new ArrayList<>());
+            entityManager.persist(issue);
+            report.addIssue();
+            written();
+
+            for (Comment comment : comments) {
+                comment.setIssueId(issue.getId());
+                comment.setAuthor(resolve(comment.getAuthor()));
+                entityManager.persist(comment);
+                report.addComment();
+                written();
+            }
+        }
+
+        User resolve(User user) {
+            if (user == null) {
+                return null;
+            }
+            if (knownUsers.contains(user.getId())) {
+                return entityManager.getReference(User.class, user.getId());
+            }
+            validate(user);
+            knownUsers.add(user.getId());
+            User existing = entityManager.find(User.class, user.getId());
+            if (existing != null) {
+                return existing;
+            }
+            // Counted in the chunk but never ends it: the caller still has to persist the owner
+            entityManager.persist(user);
+            report.addUser();
+            pending++;
+            return user;
+        }
+
+        void written() {
+            if (++pending >= chunkSize) {
+                endChunk();
+            }
+        }
+
+        void endChunk() {
+            entityManager.flush();
+            entityManager.clear();
+            pending = 0;
+            if (transaction != null) {
+                transactionManager.commit(transaction);
+                progress.accept(report);
+                transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+            }
+        }
+    }
+}
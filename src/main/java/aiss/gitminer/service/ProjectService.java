@@ -0,0 +1,558 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.ProjectSyncRequest;
+import aiss.gitminer.dto.SyncReport;
+import aiss.gitminer.exception.ProjectNotFoundException;
+import aiss.gitminer.exception.RestoreInProgressException;
+import aiss.gitminer.model.Change;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.ContentHash;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.repository.ContentHashView;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.repository.ProjectRepository;
+import aiss.gitminer.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class ProjectService {
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    FetchPlanService fetchPlanService;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    RevisionClock revisionClock;
+
+    @Autowired
+    LabelDictionary labelDictionary;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    @Autowired
+    DatasetLock datasetLock;
+
+    @Autowired
+    ProjectStatsService projectStatsService;
+
+    // Projects seen for the first time are inserted directly. Since every entity has an assigned id,
+    // save() would otherwise merge and issue one SELECT per row before each INSERT. Re-posting a
+    // project that is already stored keeps the upsert semantics, but only rewrites changed rows.
+    @Transactional
+    public Project create(Project project) throws RestoreInProgressException {
+        datasetLock.lockForTransaction();
+        Project newProject = new Project(project.getName(), project.getWebUrl());
+        newProject.setId(project.getId());
+
+        if (project.getCommits() != null) {
+            newProject.setCommits(project.getCommits());
+        }
+        if (project.getIssues() != null) {
+            newProject.setIssues(project.getIssues());
+        }
+
+        labelDictionary.internAll(newProject.getIssues());
+        if (projectRepository.existsById(newProject.getId())) {
+            return refresh(newProject);
+        }
+        Set<String> projectIds = owners(newProject.getId(), newProject.getCommits(), newProject.getIssues());
+        Users users = storedUsers(newProject.getIssues());
+        if (isFirstIngest(newProject)) {
+            prepareInsert(newProject, users);
+        } else {
+            projectStatsService.writing(Set.of(), ids(newProject.getCommits(), Commit::getId), ids(newProject.getIssues(), Issue::getId),
+                    commentIds(newProject.getIssues()));
+            // Merged by save() below, which refreshes the stored users as well
+            users.refreshAll(newProject.getIssues());
+            merged(newProject.getId(), newProject.getCommits(), newProject.getIssues());
+        }
+        Project saved = projectRepository.save(newProject);
+        written(projectIds, ids(newProject.getIssues(), Issue::getId), ids(newProject.getCommits(), Commit::getId), users);
+        return saved;
+    }
+
+    // Full re-post of a stored project: upserts by content hash like sync(), then detaches the
+    // commits, issues and comments that are no longer part of it, as replacing the collections did
+    private Project refresh(Project project) throws RestoreInProgressException {
+        // The rows it sends are named by sync()
+        projectStatsService.writing(Set.of(project.getId()), Set.of(), Set.of(), Set.of());
+        ProjectSyncRequest delta = new ProjectSyncRequest();
+        delta.setName(project.getName());
+        delta.setWebUrl(project.getWebUrl());
+        delta.setCommits(project.getCommits());
+        delta.setIssues(project.getIssues());
+
+        Set<String> issueIds = ids(project.getIssues(), Issue::getId);
+        Set<String> commentIds = commentIds(project.getIssues());
+        List<String> storedCommentIds = IdChunks.query(issueIds, commentRepository::findIdsByIssueIdIn);
+
+        try {
+            sync(project.getId(), delta);
+        } catch (ProjectNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        List<String> storedIssueIds = issueRepository.findIdsByProjectId(project.getId());
+        unlink("commit", commitRepository.findIdsByProjectId(project.getId()), ids(project.getCommits(), Commit::getId), commitRepository::unlinkFromProject);
+        unlink("issue", storedIssueIds, issueIds, issueRepository::unlinkFromProject);
+        unlink("comment", storedCommentIds, commentIds, commentRepository::unlinkFromIssue);
+        // sync() has already reported the rows and users it wrote
+        written(new HashSet<>(Set.of(project.getId())), new HashSet<>(storedIssueIds), Set.of(), new Users());
+        return fetchPlanService.findProject(project.getId()).orElseThrow();
+    }
+
+    private void unlink(String entity, List<String> storedIds, Set<String> keptIds, Function<List<String>, Integer> unlink) {
+        List<String> removed = detached(entity, storedIds, keptIds);
+        IdChunks.forEach(removed, unlink::apply);
+    }
+
+    // Rows that a write leaves without an owner are not written through Hibernate's entity events,
+    // so their change is logged here
+    private List<String> detached(String entity, Collection<String> storedIds, Set<String> keptIds) {
+        List<String> removed = storedIds.stream().filter(id -> !keptIds.contains(id)).collect(Collectors.toList());
+        removed.forEach(id -> changeLogService.capture(new Change(entity, id, Change.UPSERT, null, null)));
+        return removed;
+    }
+
+    // A merge moves stored children to their new owner, and detaches the stored comments of the issues
+    // that are not sent again, through the join columns alone. That raises no entity event for them,
+    // so every child it writes is logged here. Must be called before the merge.
+    private void merged(String projectId, List<Commit> commits, List<Issue> issues) {
+        detached("comment", IdChunks.query(ids(issues, Issue::getId), commentRepository::findIdsByIssueIdIn), commentIds(issues));
+        commits.forEach(commit -> changeLogService.capture(new Change("commit", commit.getId(), Change.UPSERT, projectId, null)));
+        for (Issue issue : issues) {
+            changeLogService.capture(new Change("issue", issue.getId(), Change.UPSERT, projectId, null));
+            if (issue.getComments() != null) {
+                issue.getComments().forEach(comment -> changeLogService.capture(new Change("comment", comment.getId(), Change.UPSERT, null, issue.getId())));
+            }
+        }
+    }
+
+    // A project can only take the insert path if neither it nor any of its children is stored yet
+    // (commits, for instance, are shared between forks)
+    private boolean isFirstIngest(Project project) {
+        if (projectRepository.existsById(project.getId())) {
+            return false;
+        }
+        List<Issue> issues = project.getIssues();
+        Set<String> commentIds = commentIds(issues);
+
+        return noneStored(ids(project.getCommits(), Commit::getId), commitRepository::findExistingIds)
+                && noneStored(ids(issues, Issue::getId), issueRepository::findExistingIds)
+                && noneStored(commentIds, commentRepository::findExistingIds);
+    }
+
+    private static <T> Set<String> ids(List<T> entities, Function<T, String> idOf) {
+        return entities.stream().map(idOf).collect(Collectors.toSet());
+    }
+
+    private static Set<String> commentIds(List<Issue> issues) {
+        return issues.stream()
+                .filter(issue -> issue.getComments() != null)
+                .flatMap(issue -> issue.getComments().stream())
+                .map(Comment::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private static boolean noneStored(Collection<String> ids, Function<List<String>, List<String>> findExistingIds) {
+        return ids.isEmpty() || IdChunks.query(ids, findExistingIds).isEmpty();
+    }
+
+    // The owner columns are set on the children as well, so their entity events (see ChangeCapture)
+    // already know them; the join columns write the same values
+    private void prepareInsert(Project project, Users users) {
+        project.markNew();
+        for (Commit commit : project.getCommits()) {
+            commit.markNew();
+            commit.setProjectId(project.getId());
+        }
+
+        for (Issue issue : project.getIssues()) {
+            issue.markNew();
+            issue.setProjectId(project.getId());
+            issue.setAuthor(users.canonical(issue.getAuthor()));
+            issue.setAssignee(users.canonical(issue.getAssignee()));
+            if (issue.getComments() != null) {
+                for (Comment comment : issue.getComments()) {
+                    comment.markNew();
+                    comment.setIssueId(issue.getId());
+                    comment.setAuthor(users.canonical(comment.getAuthor()));
+                }
+            }
+        }
+    }
+
+    // Applies only the commits, issues and comments sent by the miner: new ones are inserted, stored
+    // ones are updated in place when their content differs, and the rest of the project is not read
+    @Transactional
+    public SyncReport sync(String projectId, ProjectSyncRequest delta) throws ProjectNotFoundException, RestoreInProgressException {
+        datasetLock.lockForTransaction();
+        Project project = projectRepository.findById(projectId).orElseThrow(ProjectNotFoundException::new);
+        if (delta.getName() != null) {
+            project.setName(delta.getName());
+        }
+        if (delta.getWebUrl() != null) {
+            project.setWebUrl(delta.getWebUrl());
+        }
+
+        labelDictionary.internAll(delta.getIssues());
+        projectStatsService.writing(Set.of(), ids(delta.getCommits(), Commit::getId), ids(delta.getIssues(), Issue::getId), commentIds(delta.getIssues()));
+        Set<String> projectIds = owners(projectId, delta.getCommits(), delta.getIssues());
+        Users users = storedUsers(delta.getIssues());
+        SyncReport report = new SyncReport();
+        syncCommits(projectId, delta.getCommits(), report.getCommits());
+        syncIssues(projectId, delta.getIssues(), users, report);
+        written(projectIds, ids(delta.getIssues(), Issue::getId), ids(delta.getCommits(), Commit::getId), users);
+        return report;
+    }
+
+    // Replaces the project through merge, as PUT always did
+    @Transactional
+    public void update(String projectId, Project updatedProject) throws ProjectNotFoundException, RestoreInProgressException {
+        datasetLock.lockForTransaction();
+        Project project = projectRepository.findById(projectId).orElseThrow(ProjectNotFoundException::new);
+        List<Commit> commits = updatedProject.getCommits() == null ? List.of() : updatedProject.getCommits();
+        List<Issue> issues = updatedProject.getIssues() == null ? List.of() : updatedProject.getIssues();
+        labelDictionary.internAll(issues);
+        projectStatsService.writing(Set.of(projectId), ids(commits, Commit::getId), ids(issues, Issue::getId), commentIds(issues));
+        Set<String> projectIds = owners(projectId, commits, issues);
+        List<String> storedIssueIds = issueRepository.findIdsByProjectId(projectId);
+        Set<String> issueIds = new HashSet<>(storedIssueIds);
+        issueIds.addAll(ids(issues, Issue::getId));
+        Users users = storedUsers(issues);
+        users.refreshAll(issues);
+        // Replacing the collections detaches the stored children that are not sent again
+        detached("commit", commitRepository.findIdsByProjectId(projectId), ids(commits, Commit::getId));
+        detached("issue", storedIssueIds, ids(issues, Issue::getId));
+        merged(projectId, commits, issues);
+
+        project.setId(updatedProject.getId());
+        project.setName(updatedProject.getName());
+        project.setWebUrl(updatedProject.getWebUrl());
+        project.setCommits(updatedProject.getCommits());
+        project.setIssues(updatedProject.getIssues());
+        projectRepository.save(project);
+        written(projectIds, issueIds, ids(commits, Commit::getId), users);
+    }
+
+    @Transactional
+    public void delete(String projectId) throws ProjectNotFoundException, RestoreInProgressException {
+        datasetLock.lockForTransaction();
+        if (!projectRepository.existsById(projectId)) {
+            throw new ProjectNotFoundException();
+        }
+        projectStatsService.writing(Set.of(projectId), Set.of(), Set.of(), Set.of());
+        Set<String> issueIds = new HashSet<>(issueRepository.findIdsByProjectId(projectId));
+        Set<String> commitIds = new HashSet<>(commitRepository.findIdsByProjectId(projectId));
+        projectRepository.deleteById(projectId);
+        eventPublisher.publishEvent(new ProjectWrittenEvent(Set.of(projectId), issueIds, commitIds, Set.of()));
+    }
+
+    // Projects whose JSON a write of these commits and issues may change: the written one and the
+    // current owners of the stored rows, which keep their project when another one sends them.
+    // Must be called before the write.
+    private Set<String> owners(String projectId, List<Commit> commits, List<Issue> issues) {
+        Set<String> commentIds = commentIds(issues);
+        Set<String> projectIds = new HashSet<>();
+        projectIds.add(projectId);
+        projectIds.addAll(IdChunks.query(ids(commits, Commit::getId), commitRepository::findProjectIds));
+        projectIds.addAll(IdChunks.query(ids(issues, Issue::getId), issueRepository::findProjectIds));
+        projectIds.addAll(IdChunks.query(commentIds, commentRepository::findProjectIds));
+        return projectIds;
+    }
+
+    // Gives every touched project a new revision, adding the projects that embed a refreshed user,
+    // and publishes the write so that cached copies are dropped once it commits
+    private void written(Set<String> projectIds, Set<String> issueIds, Set<String> commitIds, Users users) {
+        if (!users.refreshed.isEmpty()) {
+            projectIds.addAll(IdChunks.query(users.refreshed, issueRepository::findProjectIdsByUserIds));
+            projectIds.addAll(IdChunks.query(users.refreshed, commentRepository::findProjectIdsByUserIds));
+        }
+        long revision = revisionClock.next();
+        IdChunks.forEach(projectIds, ids -> projectRepository.setRevision(ids, revision));
+        eventPublisher.publishEvent(new ProjectWrittenEvent(projectIds, issueIds, commitIds, users.refreshed));
+    }
+
+    // Stored content hashes and owners are read in bulk and only the rows whose hash differs are
+    // loaded and rewritten, so re-posting an unchanged entity costs no write at all. Stored rows sent
+    // with another owner than theirs (or without one, detached by an earlier re-post) are moved to it
+    // through the join column alone.
+    private void syncCommits(String projectId, List<Commit> commits, SyncReport.Counts counts) {
+        Map<String, ContentHashView> stored = contentHashes(ids(commits, Commit::getId), commitRepository::findContentHashes);
+        Map<String, Commit> changed = new HashMap<>();
+        List<String> moved = new ArrayList<>();
+        for (Commit commit : commits) {
+            long hash = ContentHash.of(commit);
+            ContentHashView row = stored.get(commit.getId());
+            if (row == null) {
+                commit.setProjectId(projectId);
+                commit.markNew();
+                commitRepository.save(commit);
+                counts.addInserted();
+                continue;
+            }
+            boolean move = !Objects.equals(row.getOwnerId(), projectId);
+            if (move) {
+                moved.add(commit.getId());
+            }
+            if (!Objects.equals(row.getContentHash(), hash)) {
+                commit.setContentHash(hash);
+                changed.put(commit.getId(), commit);
+            } else if (move) {
+                counts.addUpdated();
+            } else {
+                counts.addUnchanged();
+            }
+        }
+
+        for (Commit current : IdChunks.query(changed.keySet(), commitRepository::findAllById)) {
+            Commit commit = changed.get(current.getId());
+            // Not written by the update (see moved()), only logged with it
+            current.setProjectId(projectId);
+            current.setTitle(commit.getTitle());
+            current.setMessage(commit.getMessage());
+            current.setAuthorName(commit.getAuthorName());
+            current.setAuthorEmail(commit.getAuthorEmail());
+            current.setAuthoredDate(commit.getAuthoredDate());
+            current.setWebUrl(commit.getWebUrl());
+            current.setContentHash(commit.getContentHash());
+            counts.addUpdated();
+        }
+        moved("commit", moved, ids -> commitRepository.moveToProject(ids, projectId), projectId, null);
+    }
+
+    private void syncIssues(String projectId, List<Issue> issues, Users users, SyncReport report) {
+        Map<String, ContentHashView> stored = contentHashes(ids(issues, Issue::getId), issueRepository::findContentHashes);
+        Map<String, Issue> changed = new HashMap<>();
+        List<String> moved = new ArrayList<>();
+        List<Comment> comments = new ArrayList<>();
+
+        for (Issue issue : issues) {
+            long hash = ContentHash.of(issue);
+            issue.setAuthor(users.canonical(issue.getAuthor()));
+            issue.setAssignee(users.canonical(issue.getAssignee()));
+            if (issue.getComments() != null) {
+                for (Comment comment : issue.getComments()) {
+                    comment.setIssueId(issue.getId());
+                    comments.add(comment);
+                }
+            }
+
+            ContentHashView row = stored.get(issue.getId());
+            if (row == null) {
+                issue.setProjectId(projectId);
+                // Comments are upserted on their own below, with their issueId already set
+                issue.setComments(new ArrayList<>());
+                issue.markNew();
+                issueRepository.save(issue);
+                report.getIssues().addInserted();
+                continue;
+            }
+            boolean move = !Objects.equals(row.getOwnerId(), projectId);
+            if (move) {
+                moved.add(issue.getId());
+            }
+            if (!Objects.equals(row.getContentHash(), hash)) {
+                issue.setContentHash(hash);
+                changed.put(issue.getId(), issue);
+            } else if (move) {
+                report.getIssues().addUpdated();
+            } else {
+                report.getIssues().addUnchanged();
+            }
+        }
+
+        for (Issue current : IdChunks.query(changed.keySet(), issueRepository::findAllById)) {
+            Issue issue = changed.get(current.getId());
+            current.setProjectId(projectId);
+            current.setTitle(issue.getTitle());
+            current.setDescription(issue.getDescription());
+            current.setState(issue.getState());
+            current.setCreatedAt(issue.getCreatedAt());
+            current.setUpdatedAt(issue.getUpdatedAt());
+            current.setClosedAt(issue.getClosedAt());
+            current.setLabels(issue.getLabels());
+            current.setVotes(issue.getVotes());
+            current.setAuthor(issue.getAuthor());
+            current.setAssignee(issue.getAssignee());
+            current.setContentHash(issue.getContentHash());
+            report.getIssues().addUpdated();
+        }
+        moved("issue", moved, ids -> issueRepository.moveToProject(ids, projectId), projectId, null);
+        syncComments(comments, users, report.getComments());
+    }
+
+    private void syncComments(List<Comment> comments, Users users, SyncReport.Counts counts) {
+        Map<String, ContentHashView> stored = contentHashes(ids(comments, Comment::getId), commentRepository::findContentHashes);
+        Map<String, Comment> changed = new HashMap<>();
+        Map<String, List<String>> movedByIssue = new HashMap<>();
+        for (Comment comment : comments) {
+            long hash = ContentHash.of(comment);
+            comment.setAuthor(users.canonical(comment.getAuthor()));
+            ContentHashView row = stored.get(comment.getId());
+            if (row == null) {
+                comment.markNew();
+                commentRepository.save(comment);
+                counts.addInserted();
+                continue;
+            }
+            boolean move = !Objects.equals(row.getOwnerId(), comment.getIssueId());
+            if (move) {
+                movedByIssue.computeIfAbsent(comment.getIssueId(), id -> new ArrayList<>()).add(comment.getId());
+            }
+            if (!Objects.equals(row.getContentHash(), hash)) {
+                comment.setContentHash(hash);
+                changed.put(comment.getId(), comment);
+            } else if (move) {
+                counts.addUpdated();
+            } else {
+                counts.addUnchanged();
+            }
+        }
+
+        for (Comment current : IdChunks.query(changed.keySet(), commentRepository::findAllById)) {
+            Comment comment = changed.get(current.getId());
+            current.setIssueId(comment.getIssueId());
+            current.setBody(comment.getBody());
+            current.setCreatedAt(comment.getCreatedAt());
+            current.setUpdatedAt(comment.getUpdatedAt());
+            current.setAuthor(comment.getAuthor());
+            current.setContentHash(comment.getContentHash());
+            counts.addUpdated();
+        }
+        movedByIssue.forEach((issueId, commentIds) -> moved("comment", commentIds, ids -> commentRepository.moveToIssue(ids, issueId), null, issueId));
+    }
+
+    private static Map<String, ContentHashView> contentHashes(Collection<String> ids, Function<List<String>, List<ContentHashView>> query) {
+        Map<String, ContentHashView> rows = new HashMap<>();
+        IdChunks.query(ids, query).forEach(view -> rows.put(view.getId(), view));
+        return rows;
+    }
+
+    // The owner columns are not updatable through the entities, so stored rows change hands in bulk.
+    // That raises no entity event for the rows that were otherwise unchanged, so they are logged here.
+    private void moved(String entity, List<String> ids, Consumer<List<String>> move, String projectId, String issueId) {
+        IdChunks.forEach(ids, move);
+        ids.forEach(id -> changeLogService.capture(new Change(entity, id, Change.UPSERT, projectId, issueId)));
+    }
+
+    // Users are shared by issues and comments, possibly of other projects: every reference is later
+    // replaced through Users.canonical() by a single instance, either the stored user or a new one
+    private Users storedUsers(List<Issue> issues) {
+        Set<String> userIds = userIds(issues);
+        Users users = new Users();
+        if (!userIds.isEmpty()) {
+            IdChunks.query(userIds, userRepository::findAllById).forEach(user -> users.byId.put(user.getId(), user));
+        }
+        return users;
+    }
+
+    private static Set<String> userIds(List<Issue> issues) {
+        Set<String> userIds = new HashSet<>();
+        for (Issue issue : issues) {
+            addUserId(userIds, issue.getAuthor());
+            addUserId(userIds, issue.getAssignee());
+            if (issue.getComments() != null) {
+                issue.getComments().forEach(comment -> addUserId(userIds, comment.getAuthor()));
+            }
+        }
+        return userIds;
+    }
+
+    private static void addUserId(Set<String> userIds, User user) {
+        if (user != null) {
+            userIds.add(user.getId());
+        }
+    }
+
+    // The users referenced by one write
+    private static class Users {
+        final Map<String, User> byId = new HashMap<>();
+        // Stored users whose fields the write changed
+        final Set<String> refreshed = new HashSet<>();
+
+        User canonical(User user) {
+            if (user == null) {
+                return null;
+            }
+            User existing = byId.get(user.getId());
+            if (existing == null) {
+                user.markNew();
+                byId.put(user.getId(), user);
+                return user;
+            }
+            if (existing != user && !existing.isNew() && !sameFields(existing, user)) {
+                // Stored user: refresh it with the incoming data, as merge would have done
+                existing.setUsername(user.getUsername());
+                existing.setName(user.getName());
+                existing.setAvatarUrl(user.getAvatarUrl());
+                existing.setWebUrl(user.getWebUrl());
+                refreshed.add(existing.getId());
+            }
+            return existing;
+        }
+
+        // For writes that merge the whole graph: only records which stored users the merge will change
+        void refreshAll(List<Issue> issues) {
+            for (Issue issue : issues) {
+                record(issue.getAuthor());
+                record(issue.getAssignee());
+                if (issue.getComments() != null) {
+                    issue.getComments().forEach(comment -> record(comment.getAuthor()));
+                }
+            }
+        }
+
+        private void record(User user) {
+            User existing = user == null ? null : byId.get(user.getId());
+            if (existing != null && existing != user && !sameFields(existing, user)) {
+                refreshed.add(existing.getId());
+            }
+        }
+
+        private static boolean sameFields(User stored, User user) {
+            return Objects.equals(stored.getUsername(), user.getUsername())
+                    && Objects.equals(stored.getName(), user.getName())
+                    && Objects.equals(stored.getAvatarUrl(), user.getAvatarUrl())
+                    && Objects.equals(stored.getWebUrl(), user.getWebUrl());
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.ProjectStats;
+import aiss.gitminer.model.Change;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Per-project aggregates: commits per author, issues per state, votes and comments, kept as counters
+// in the project_stats table (see ProjectStatsCount). A write that changes stored rows names them
+// first (see writing()), and what they count for is read before it touches them. When the write
+// appends to the change log, the rows it named or wrote are read again and only the difference is
+// added to the counters, in the same transaction; the append lock keeps concurrent writers from
+// updating the same counters at once. Neither a write nor a read costs more for a bigger project,
+// and nothing is kept per row. Rebuilt from the tables after a restore only.
+@Service
+public class ProjectStatsService implements ChangeAppendListener {
+
+    private static final String COMMITS = "commits";
+    private static final String AUTHOR = "author";
+    private static final String ISSUES = "issues";
+    private static final String STATE = "state";
+    private static final String VOTES = "votes";
+    private static final String VOTED_ISSUES = "voted_issues";
+    private static final String COMMENTS = "comments";
+
+    // The statements of V4__project_stats.sql
+    private static final List<String> REBUILD = List.of(
+            "insert into project_stats (project_id, kind, name, total) " +
+                    "select project_id, 'commits', '', count(*) from commit where project_id is not null group by project_id",
+            "insert into project_stats (project_id, kind, name, total) " +
+                    "select project_id, 'author', author_name, count(*) from commit where project_id is not null and author_name is not null group by project_id, author_name",
+            "insert into project_stats (project_id, kind, name, total) " +
+                    "select project_id, 'issues', '', count(*) from issue where project_id is not null group by project_id",
+            "insert into project_stats (project_id, kind, name, total) " +
+                    "select project_id, 'state', state, count(*) from issue where project_id is not null and state is not null group by project_id, state",
+            "insert into project_stats (project_id, kind, name, total) " +
+                    "select project_id, 'votes', '', sum(votes) from issue where project_id is not null and votes is not null group by project_id having sum(votes) <> 0",
+            "insert into project_stats (project_id, kind, name, total) " +
+                    "select project_id, 'voted_issues', '', count(*) from issue where project_id is not null and votes is not null group by project_id",
+            "insert into project_stats (project_id, kind, name, total) " +
+                    "select i.project_id, 'comments', '', count(*) from comment c join issue i on i.id = c.issue_id where i.project_id is not null group by i.project_id");
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // Must be called inside the writing transaction, before it changes any stored row. The rows of the
+    // given projects and the given rows, with the comments of their issues, are all the stored rows it
+    // may change; rows it inserts need not be named.
+    public void writing(Collection<String> projectIds, Collection<String> commitIds, Collection<String> issueIds, Collection<String> commentIds) {
+        entityManager.flush();
+        Contributions before = before();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            before.commits(connection, "project_id", projectIds);
+            before.commits(connection, "id", commitIds);
+            List<String> issues = before.issues(connection, "project_id", projectIds);
+            issues.addAll(before.issues(connection, "id", issueIds));
+            before.comments(connection, "c.id", commentIds);
+            // An issue that changes project takes its comments along
+            before.comments(connection, "c.issue_id", issues);
+            return null;
+        });
+    }
+
+    // What the rows named so far by the transaction in progress counted for before it wrote them
+    private Contributions before() {
+        Contributions before = (Contributions) TransactionSynchronizationManager.getResource(this);
+        if (before == null) {
+            before = new Contributions();
+            TransactionSynchronizationManager.bindResource(this, before);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(ProjectStatsService.this);
+                }
+            });
+        }
+        return before;
+    }
+
+    @Override
+    public void appended(Connection connection, Collection<Change> changes) throws SQLException {
+        Contributions before = (Contributions) TransactionSynchronizationManager.getResource(this);
+        if (before == null) {
+            // Nothing named: the write only inserted rows
+            before = new Contributions();
+        }
+        Set<String> commitIds = new HashSet<>(before.commits);
+        Set<String> issueIds = new HashSet<>(before.issues);
+        Set<String> commentIds = new HashSet<>(before.comments);
+        for (Change change : changes) {
+            switch (change.getEntity()) {
+                case "commit":
+                    commitIds.add(change.getEntityId());
+                    break;
+                case "issue":
+                    issueIds.add(change.getEntityId());
+                    break;
+                case "comment":
+                    commentIds.add(change.getEntityId());
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (commitIds.isEmpty() && issueIds.isEmpty() && commentIds.isEmpty()) {
+            return;
+        }
+        Contributions after = new Contributions();
+        after.commits(connection, "id", commitIds);
+        after.issues(connection, "id", issueIds);
+        after.comments(connection, "c.id", commentIds);
+        add(connection, after.minus(before));
+    }
+
+    // Counters are updated in key order, and one that reaches zero is deleted
+    private static void add(Connection connection, Map<Counter, Long> deltas) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(
+                     "update project_stats set total = total + ? where project_id = ? and kind = ? and name = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                     "insert into project_stats (project_id, kind, name, total) values (?, ?, ?, ?)");
+             PreparedStatement delete = connection.prepareStatement(
+                     "delete from project_stats where project_id = ? and kind = ? and name = ? and total = 0")) {
+            for (Map.Entry<Counter, Long> delta : deltas.entrySet()) {
+                Counter counter = delta.getKey();
+                update.setLong(1, delta.getValue());
+                counter.bind(update, 2);
+                if (update.executeUpdate() == 0) {
+                    counter.bind(insert, 1);
+                    insert.setLong(4, delta.getValue());
+                    insert.executeUpdate();
+                } else if (delta.getValue() < 0) {
+                    counter.bind(delete, 1);
+                    delete.executeUpdate();
+                }
+            }
+        }
+    }
+
+    // Ordered before VersionStampService, so a client that sees the new list stamp also sees the
+    // new figures
+    @Order(1)
+    @EventListener
+    public void onDatasetRestored(DatasetRestoredEvent event) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from project_stats");
+            REBUILD.forEach(jdbcTemplate::update);
+        });
+    }
+
+    // Figures of the project with its most active authors only, at most the given number of them.
+    // Read in a single statement, so they are those of the change log sequence number they come with.
+    public ProjectStats stats(String projectId, int authors) {
+        long[] seq = new long[1];
+        Map<String, Long> totals = new HashMap<>();
+        Map<String, Long> commitsByAuthor = new HashMap<>();
+        Map<String, Long> issuesByState = new TreeMap<>();
+        jdbcTemplate.query("select q.seq, s.kind, s.name, s.total from change_log_seq q " +
+                "left join project_stats s on s.project_id = ? where q.id = 1", (RowCallbackHandler) rs -> {
+            seq[0] = rs.getLong(1);
+            String kind = rs.getString(2);
+            if (AUTHOR.equals(kind)) {
+                commitsByAuthor.put(rs.getString(3), rs.getLong(4));
+            } else if (STATE.equals(kind)) {
+                issuesByState.put(rs.getString(3), rs.getLong(4));
+            } else if (kind != null) {
+                totals.put(kind, rs.getLong(4));
+            }
+        }, projectId);
+
+        ProjectStats stats = new ProjectStats(projectId, seq[0]);
+        stats.setCommits(totals.getOrDefault(COMMITS, 0L));
+        stats.setAuthors(commitsByAuthor.size());
+        commitsByAuthor.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(authors)
+                .forEach(author -> stats.getCommitsByAuthor().put(author.getKey(), author.getValue()));
+        stats.setIssues(totals.getOrDefault(ISSUES, 0L));
+        stats.getIssuesByState().putAll(issuesByState);
+        stats.setVotes(totals.getOrDefault(VOTES, 0L));
+        stats.setVotedIssues(totals.getOrDefault(VOTED_ISSUES, 0L));
+        stats.setComments(totals.getOrDefault(COMMENTS, 0L));
+        return stats;
+    }
+
+    // What a set of rows counts for, each row once: commits and issues under their project, comments
+    // under the project of their issue. Rows without a project count for nothing.
+    private static class Contributions {
+        final Map<Counter, Long> counts = new HashMap<>();
+        final Set<String> commits = new HashSet<>();
+        final Set<String> issues = new HashSet<>();
+        final Set<String> comments = new HashSet<>();
+
+        void commits(Connection connection, String column, Collection<String> ids) throws SQLException {
+            select(connection, "select id, project_id, author_name from commit where " + column, ids, rs -> {
+                String projectId = rs.getString(2);
+                if (commits.add(rs.getString(1)) && projectId != null) {
+                    add(projectId, COMMITS, "", 1);
+                    if (rs.getString(3) != null) {
+                        add(projectId, AUTHOR, rs.getString(3), 1);
+                    }
+                }
+            });
+        }
+
+        // Returns the issues that were not counted yet
+        List<String> issues(Connection connection, String column, Collection<String> ids) throws SQLException {
+            List<String> added = new ArrayList<>();
+            select(connection, "select id, project_id, state, votes from issue where " + column, ids, rs -> {
+                String projectId = rs.getString(2);
+                if (!issues.add(rs.getString(1))) {
+                    return;
+                }
+                added.add(rs.getString(1));
+                if (projectId != null) {
+                    add(projectId, ISSUES, "", 1);
+                    if (rs.getString(3) != null) {
+                        add(projectId, STATE, rs.getString(3), 1);
+                    }
+                    int votes = rs.getInt(4);
+                    if (!rs.wasNull()) {
+                        add(projectId, VOTES, "", votes);
+                        add(projectId, VOTED_ISSUES, "", 1);
+                    }
+                }
+            });
+            return added;
+        }
+
+        void comments(Connection connection, String column, Collection<String> ids) throws SQLException {
+            select(connection, "select c.id, i.project_id from comment c left join issue i on i.id = c.issue_id where " + column, ids, rs -> {
+                String projectId = rs.getString(2);
+                if (comments.add(rs.getString(1)) && projectId != null) {
+                    add(projectId, COMMENTS, "", 1);
+                }
+            });
+        }
+
+        void add(String projectId, String kind, String name, long count) {
+            counts.merge(new Counter(projectId, kind, name), count, Long::sum);
+        }
+
+        // The changes from the given contributions to these ones, in key order and without zeros
+        Map<Counter, Long> minus(Contributions before) {
+            Map<Counter, Long> deltas = new TreeMap<>(counts);
+            before.counts.forEach((counter, count) -> deltas.merge(counter, -count, Long::sum));
+            deltas.values().removeIf(delta -> delta == 0);
+            return deltas;
+        }
+
+        private static void select(Connection connection, String sql, Collection<String> ids, RowReader reader) throws SQLException {
+            List<String> all = new ArrayList<>(ids);
+            for (int from = 0; from < all.size(); from += IdChunks.LOOKUP_CHUNK_SIZE) {
+                List<String> chunk = all.subList(from, Math.min(from + IdChunks.LOOKUP_CHUNK_SIZE, all.size()));
+                try (PreparedStatement select = connection.prepareStatement(
+                        sql + " in (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        select.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            reader.read(rs);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+        void read(ResultSet rs) throws SQLException;
+    }
+
+    private static final class Counter implements Comparable<Counter> {
+
+        private static final Comparator<Counter> ORDER = Comparator.<Counter, String>comparing(counter -> counter.projectId)
+                .thenComparing(counter -> counter.kind)
+                .thenComparing(counter -> counter.name);
+
+        private final String projectId;
+        private final String kind;
+        private final String name;
+
+        Counter(String projectId, String kind, String name) {
+            this.projectId = projectId;
+            this.kind = kind;
+            this.name = name;
+        }
+
+        void bind(PreparedStatement statement, int from) throws SQLException {
+            statement.setString(from, projectId);
+            statement.setString(from + 1, kind);
+            statement.setString(from + 2, name);
+        }
+
+        @Override
+        public int compareTo(Counter other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Counter)) {
+                return false;
+            }
+            Counter counter = (Counter) o;
+            return projectId.equals(counter.projectId) && kind.equals(counter.kind) && name.equals(counter.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(projectId, kind, name);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package aiss.gitminer.service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// Published by every write to a project. It names every project whose revision the write bumped
+// (the written one, the owners of the stored rows it changed and the projects embedding a refreshed
+// user), the issues whose stored rows may have changed (including ones that were deleted or moved
+// out of the project), the commits that were written or deleted and the users whose fields were
+// refreshed.
+public class ProjectWrittenEvent {
+
+    private final Set<String> projectIds;
+    private final Set<String> issueIds;
+    private final Set<String> commitIds;
+    private final Set<String> userIds;
+
+    public ProjectWrittenEvent(Set<String> projectIds, Set<String> issueIds, Set<String> commitIds, Set<String> userIds) {
+        // Copied into sets that accept contains(null): rows without an owner are checked against them
+        this.projectIds = new HashSet<>(projectIds);
+        this.issueIds = new HashSet<>(issueIds);
+        this.commitIds = new HashSet<>(commitIds);
+        this.userIds = new HashSet<>(userIds);
+    }
+
+    public Set<String> getProjectIds() {
+        return projectIds;
+    }
+
+    public Set<String> getIssueIds() {
+        return issueIds;
+    }
+
+    public Set<String> getCommitIds() {
+        return commitIds;
+    }
+
+    public Set<String> getUserIds() {
+        return userIds;
+    }
+}
@@ -0,0 +1,188 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.etag.ETags;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Already encoded JSON bodies of the hot read endpoints, so a repeat read is a byte copy instead
+// of a Jackson pass over the graph. Every entry remembers the project, issues and users it embeds
+// and is dropped by the same ProjectWrittenEvent that clears the entity cache.
+@Service
+public class ResponseCacheService {
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${gitminer.response-cache.gzip:true}")
+    boolean gzip;
+
+    private final Cache<String, CachedResponse> responses;
+    // Bumped before every eviction pass, so a body serialized before a write is not kept after it
+    private final AtomicLong writes = new AtomicLong();
+
+    public ResponseCacheService(@Value("${gitminer.response-cache.maximum-bytes:67108864}") long maximumBytes,
+                                @Value("${gitminer.response-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((String key, CachedResponse response) -> response.weight())
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    public Optional<CachedResponse> findProject(String id, Supplier<Optional<Stamped<Project>>> loader) {
+        return find("project:" + id, () -> loader.get().map(stamped -> {
+            Project project = stamped.getValue();
+            Set<String> userIds = new HashSet<>();
+            project.getIssues().forEach(issue -> addUserIds(userIds, issue));
+            return serialize(stamped.getStamp(), project, project.getId(), Set.of(), userIds);
+        }));
+    }
+
+    public Optional<CachedResponse> findIssue(String id, Supplier<Optional<Stamped<Issue>>> loader) {
+        return find("issue:" + id, () -> loader.get().map(stamped -> {
+            Issue issue = stamped.getValue();
+            Set<String> userIds = new HashSet<>();
+            addUserIds(userIds, issue);
+            return serialize(stamped.getStamp(), issue, issue.getProjectId(), Set.of(issue.getId()), userIds);
+        }));
+    }
+
+    private Optional<CachedResponse> find(String key, Supplier<Optional<CachedResponse>> loader) {
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long writesBefore = writes.get();
+        Optional<CachedResponse> loaded = loader.get();
+        if (loaded.isPresent()) {
+            responses.put(key, loaded.get());
+            // An eviction pass started while serializing may have missed the new entry
+            if (writes.get() != writesBefore) {
+                responses.asMap().remove(key, loaded.get());
+            }
+        }
+        return loaded;
+    }
+
+    private CachedResponse serialize(String stamp, Object body, String projectId, Set<String> issueIds, Set<String> userIds) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new CachedResponse(stamp, json, gzip ? compress(json) : null, projectId, issueIds, userIds);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 32);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Small bodies may not shrink; those are always sent as they are
+        return out.size() < json.length ? out.toByteArray() : null;
+    }
+
+    private static void addUserIds(Set<String> userIds, Issue issue) {
+        addUserId(userIds, issue.getAuthor());
+        addUserId(userIds, issue.getAssignee());
+        addUserIds(userIds, issue.getComments());
+    }
+
+    private static void addUserIds(Set<String> userIds, List<Comment> comments) {
+        if (comments != null) {
+            comments.forEach(comment -> addUserId(userIds, comment.getAuthor()));
+        }
+    }
+
+    private static void addUserId(Set<String> userIds, User user) {
+        if (user != null) {
+            userIds.add(user.getId());
+        }
+    }
+
+    // Ordered after the entity cache, so an eviction here cannot be refilled from stale entities
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectWritten(ProjectWrittenEvent event) {
+        writes.incrementAndGet();
+        responses.asMap().values().removeIf(response -> response.embeds(event));
+    }
+
+    @Order(1)
+    @EventListener
+    public void onDatasetRestored(DatasetRestoredEvent event) {
+        writes.incrementAndGet();
+        responses.invalidateAll();
+    }
+
+    public static class CachedResponse {
+
+        private final String stamp;
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String projectId;
+        private final Set<String> issueIds;
+        private final Set<String> userIds;
+
+        CachedResponse(String stamp, byte[] json, byte[] gzip, String projectId, Set<String> issueIds, Set<String> userIds) {
+            this.stamp = stamp;
+            this.json = json;
+            this.gzip = gzip;
+            this.projectId = projectId;
+            this.issueIds = issueIds;
+            this.userIds = userIds;
+        }
+
+        int weight() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+
+        boolean embeds(ProjectWrittenEvent event) {
+            return event.getProjectIds().contains(projectId)
+                    || issueIds.stream().anyMatch(event.getIssueIds()::contains)
+                    || userIds.stream().anyMatch(event.getUserIds()::contains);
+        }
+
+        // Each encoding is a different representation, so it gets its own strong ETag
+        public ResponseEntity<byte[]> toResponseEntity(String acceptEncoding) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip != null && ETags.acceptsGzip(acceptEncoding)) {
+                return response.eTag(ETags.gzip(stamp))
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .body(gzip);
+            }
+            return response.eTag(ETags.of(stamp)).body(json);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package aiss.gitminer.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Source of Project.revision values. They follow the wall clock in milliseconds but never repeat
+// or go back, so a project deleted and created again under the same id cannot reuse an old ETag,
+// not even after a restart.
+@Component
+public class RevisionClock {
+
+    private final AtomicLong last = new AtomicLong();
+
+    public long next() {
+        return last.accumulateAndGet(System.currentTimeMillis(), (previous, now) -> Math.max(previous + 1, now));
+    }
+}
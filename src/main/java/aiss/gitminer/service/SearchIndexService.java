@@ -0,0 +1,321 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.SearchHit;
+import aiss.gitminer.exception.InvalidCursorException;
+import aiss.gitminer.exception.InvalidSearchQueryException;
+import aiss.gitminer.model.Change;
+import aiss.gitminer.pagination.Cursor;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.repository.ProjectRepository;
+import aiss.gitminer.repository.SearchDocumentView;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Lucene index over the text of commits (title and message), issues (title and description) and
+// comments (body, titled after their issue). Follows the change log after every committed write, like
+// IssueLatencyService, and is kept in memory unless gitminer.search.index-dir is set. On disk, each
+// commit records the number of projects and their latest revision, and the index is only rebuilt on
+// startup when the database no longer matches them.
+@Service
+public class SearchIndexService {
+
+    public static final Set<String> TYPES = Set.of("commit", "issue", "comment");
+
+    private static final String KEY = "key";
+    private static final String TYPE = "type";
+    private static final String ID = "id";
+    private static final String PROJECT = "project_id";
+    private static final String TITLE = "title";
+    private static final String TEXT = "text";
+    private static final String MARKER = "gitminer.marker";
+    private static final int BATCH_SIZE = 1000;
+    // Ranked, ties broken by key so that the cursor of a page is a (score, key) pair
+    private static final Sort SORT = new Sort(SortField.FIELD_SCORE, new SortField(KEY, SortField.Type.STRING));
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    @Value("${gitminer.search.index-dir:}")
+    String indexDir;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    // Last change applied
+    private long seq;
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = indexDir.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Path.of(indexDir));
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        String stored = null;
+        for (Map.Entry<String, String> entry : writer.getLiveCommitData()) {
+            if (MARKER.equals(entry.getKey())) {
+                stored = entry.getValue();
+            }
+        }
+        if (!marker().equals(stored)) {
+            rebuild();
+        } else {
+            seq = changeLogService.lastSeq();
+        }
+    }
+
+    public synchronized void rebuild() {
+        // Changes committed during the scan are applied once more below, which is harmless: rows are
+        // always read again by id
+        long last = changeLogService.lastSeq();
+        try {
+            writer.deleteAll();
+            for (Document document : documents(commitRepository.findSearchDocuments(), issueRepository.findSearchDocuments(),
+                    commentRepository.findSearchDocuments()).values()) {
+                writer.addDocument(document);
+            }
+            seq = last;
+            catchUp();
+            commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Same order as LabelIndexService: refreshed before the list stamp changes
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProjectWritten(ProjectWrittenEvent event) {
+        try {
+            if (catchUp()) {
+                commit();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Order(1)
+    @EventListener
+    public void onDatasetRestored(DatasetRestoredEvent event) {
+        rebuild();
+    }
+
+    // Follows the change log like IssueLatencyService, so a write costs what it wrote and not the size
+    // of its project. Returns whether anything was applied.
+    private boolean catchUp() throws IOException {
+        boolean applied = false;
+        List<Change> changes;
+        do {
+            changes = changeLogService.findAfter(seq, PageRequest.of(0, BATCH_SIZE));
+            if (!changes.isEmpty()) {
+                apply(changes);
+                applied = true;
+            }
+        } while (changes.size() == BATCH_SIZE);
+        return applied;
+    }
+
+    private void apply(List<Change> changes) throws IOException {
+        Map<String, Set<String>> changed = new HashMap<>();
+        TYPES.forEach(type -> changed.put(type, new HashSet<>()));
+        for (Change change : changes) {
+            // Projects have no document of their own, and a restore rebuilds everything anyway
+            Set<String> ids = changed.get(change.getEntity());
+            if (ids != null) {
+                ids.add(change.getEntityId());
+            }
+        }
+        Set<String> issueIds = changed.get("issue");
+        List<SearchDocumentView> comments = new ArrayList<>(IdChunks.query(changed.get("comment"), commentRepository::findSearchDocumentsByIds));
+        // Comments are titled and filed after their issue
+        comments.addAll(IdChunks.query(issueIds, commentRepository::findSearchDocumentsByIssueIds));
+        Map<String, Document> documents = documents(IdChunks.query(changed.get("commit"), commitRepository::findSearchDocumentsByIds),
+                IdChunks.query(issueIds, issueRepository::findSearchDocumentsByIds), comments);
+
+        // Rows that are no longer stored
+        for (Map.Entry<String, Set<String>> ids : changed.entrySet()) {
+            for (String id : ids.getValue()) {
+                String key = key(ids.getKey(), id);
+                if (!documents.containsKey(key)) {
+                    writer.deleteDocuments(new Term(KEY, key));
+                }
+            }
+        }
+        for (Map.Entry<String, Document> document : documents.entrySet()) {
+            writer.updateDocument(new Term(KEY, document.getKey()), document.getValue());
+        }
+        seq = changes.get(changes.size() - 1).getSeq();
+    }
+
+    private void commit() throws IOException {
+        writer.setLiveCommitData(Map.of(MARKER, marker()).entrySet());
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    private String marker() {
+        return projectRepository.count() + ":" + projectRepository.findMaxRevision().map(String::valueOf).orElse("");
+    }
+
+    private static Map<String, Document> documents(List<SearchDocumentView> commits, List<SearchDocumentView> issues,
+                                                   List<SearchDocumentView> comments) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        commits.forEach(row -> documents.put(key("commit", row.getId()), document("commit", row)));
+        issues.forEach(row -> documents.put(key("issue", row.getId()), document("issue", row)));
+        comments.forEach(row -> documents.put(key("comment", row.getId()), document("comment", row)));
+        return documents;
+    }
+
+    // Only what a hit returns is stored; the text itself is just indexed
+    private static Document document(String type, SearchDocumentView row) {
+        String key = key(type, row.getId());
+        Document document = new Document();
+        document.add(new StringField(KEY, key, Field.Store.NO));
+        document.add(new SortedDocValuesField(KEY, new BytesRef(key)));
+        document.add(new StringField(TYPE, type, Field.Store.YES));
+        document.add(new StoredField(ID, row.getId()));
+        if (row.getProjectId() != null) {
+            document.add(new StringField(PROJECT, row.getProjectId(), Field.Store.YES));
+        }
+        if (row.getTitle() != null) {
+            document.add(new TextField(TITLE, row.getTitle(), Field.Store.YES));
+        }
+        if (row.getText() != null) {
+            document.add(new TextField(TEXT, row.getText(), Field.Store.NO));
+        }
+        return document;
+    }
+
+    private static String key(String type, String id) {
+        return type + ":" + id;
+    }
+
+    // Lucene query syntax: every term is required unless OR is used, "quoted phrases" match in order,
+    // and title matches weigh twice as much as text matches
+    public KeysetPage<SearchHit> search(String q, String type, String projectId, int limit, String after)
+            throws InvalidSearchQueryException, InvalidCursorException {
+        if (type != null && !TYPES.contains(type)) {
+            throw new InvalidSearchQueryException();
+        }
+        QueryParser parser = new MultiFieldQueryParser(new String[] { TITLE, TEXT }, analyzer, Map.of(TITLE, 2f, TEXT, 1f));
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        try {
+            query.add(parser.parse(q), BooleanClause.Occur.MUST);
+        } catch (ParseException e) {
+            throw new InvalidSearchQueryException();
+        }
+        if (type != null) {
+            query.add(new TermQuery(new Term(TYPE, type)), BooleanClause.Occur.FILTER);
+        }
+        if (projectId != null) {
+            query.add(new TermQuery(new Term(PROJECT, projectId)), BooleanClause.Occur.FILTER);
+        }
+        Object[] afterKeys = after == null ? null : afterKeys(after);
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                // Sort keys are unique, so only the row of the cursor itself ties with it, and is skipped
+                FieldDoc afterDoc = afterKeys == null ? null
+                        : new FieldDoc(searcher.getIndexReader().maxDoc() - 1, (Float) afterKeys[0], afterKeys);
+                TopDocs top = searcher.searchAfter(afterDoc, query.build(), limit + 1, SORT, true);
+                List<SearchHit> hits = new ArrayList<>();
+                for (ScoreDoc scoreDoc : top.scoreDocs) {
+                    Document document = searcher.doc(scoreDoc.doc);
+                    hits.add(new SearchHit(document.get(TYPE), document.get(ID), document.get(PROJECT), document.get(TITLE), scoreDoc.score));
+                }
+                Function<SearchHit, String> cursorOf = hit -> Cursor.encode(String.valueOf(hit.getScore()), key(hit.getType(), hit.getId()));
+                return KeysetPage.of(hits, limit, cursorOf);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object[] afterKeys(String after) throws InvalidCursorException {
+        String[] keys = Cursor.decode(after, 2);
+        try {
+            return new Object[] { Float.parseFloat(keys[0]), new BytesRef(keys[1]) };
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.dto.RestoreReport;
+import aiss.gitminer.exception.InvalidSnapshotException;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.snapshot.SnapshotReader;
+import aiss.gitminer.snapshot.SnapshotTable;
+import aiss.gitminer.snapshot.SnapshotWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Point-in-time copies of the whole database in the binary format of SnapshotWriter. A snapshot reads
+// every table in one serializable read-only transaction, so it sees a single consistent state while
+// writers go on. A restore replaces everything: the file is verified first, then the old rows are
+// deleted and the new ones inserted in JDBC batches in one transaction, with the secondary indexes
+// dropped meanwhile and built again once all rows are in. No write runs from then on until the views
+// kept in memory are rebuilt (see DatasetLock).
+@Service
+public class SnapshotService {
+
+    // Rows inserted per JDBC batch
+    static final int BATCH_SIZE = 1000;
+
+    // Entities whose @Table indexes are rebuilt after a restore rather than kept up to date during it
+    private static final List<Class<?>> INDEXED_ENTITIES = List.of(Commit.class, Issue.class, Comment.class);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    DatasetLock datasetLock;
+
+    public long snapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16)) {
+            return snapshot(out);
+        }
+    }
+
+    // Returns the number of rows written; the stream is left open
+    public long snapshot(OutputStream out) throws IOException {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        try {
+            return transaction.execute(status -> {
+                try {
+                    SnapshotWriter writer = new SnapshotWriter(out);
+                    for (SnapshotTable table : SnapshotTable.values()) {
+                        writer.beginTable(table);
+                        jdbcTemplate.query(table.selectSql(), (RowCallbackHandler) rows -> {
+                            try {
+                                writer.writeRow(table.row(rows));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                        writer.endTable();
+                    }
+                    writer.finish();
+                    return writer.getRows();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Restores are read twice, once to verify and once to load, so they come from a file
+    public synchronized RestoreReport restore(Path file) throws IOException, InvalidSnapshotException {
+        long start = System.nanoTime();
+        RestoreReport report = new RestoreReport();
+        try (SnapshotReader reader = open(file)) {
+            for (Optional<SnapshotTable> table = reader.nextTable(); table.isPresent(); table = reader.nextTable()) {
+                long rows = 0;
+                while (reader.nextRow() != null) {
+                    rows++;
+                }
+                report.addRows(table.get().getName(), rows);
+            }
+        }
+
+        datasetLock.lockRestore();
+        try {
+            Map<String, String> indexes = secondaryIndexes();
+            indexes.keySet().forEach(name -> jdbcTemplate.execute("drop index if exists " + name));
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> load(file));
+            } finally {
+                indexes.values().forEach(jdbcTemplate::execute);
+                Integer maxLabelId = jdbcTemplate.queryForObject("select max(id) from label", Integer.class);
+                jdbcTemplate.execute("alter table label alter column id restart with " + (maxLabelId == null ? 1 : maxLabelId + 1));
+            }
+            eventPublisher.publishEvent(new DatasetRestoredEvent());
+        } finally {
+            datasetLock.unlockRestore();
+        }
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    private void load(Path file) {
+        List<SnapshotTable> tables = Arrays.asList(SnapshotTable.values());
+        for (int i = tables.size() - 1; i >= 0; i--) {
+            jdbcTemplate.update("delete from " + tables.get(i).getName());
+        }
+        try (SnapshotReader reader = open(file)) {
+            for (Optional<SnapshotTable> table = reader.nextTable(); table.isPresent(); table = reader.nextTable()) {
+                List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+                for (Object[] row = reader.nextRow(); row != null; row = reader.nextRow()) {
+                    batch.add(row);
+                    if (batch.size() == BATCH_SIZE) {
+                        insert(table.get(), batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    insert(table.get(), batch);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InvalidSnapshotException e) {
+            // Verified just before, so the file changed in between
+            throw new IllegalStateException("Snapshot changed while being restored", e);
+        }
+    }
+
+    private void insert(SnapshotTable table, List<Object[]> rows) {
+        jdbcTemplate.batchUpdate(table.insertSql(), rows, rows.size(), (statement, row) -> table.bind(statement, row));
+    }
+
+    private static SnapshotReader open(Path file) throws IOException, InvalidSnapshotException {
+        InputStream in = Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ));
+        try {
+            return new SnapshotReader(in);
+        } catch (IOException | InvalidSnapshotException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // Index name to its create statement, with the physical names Spring's naming strategy gives the
+    // tables and columns of the entities
+    private static Map<String, String> secondaryIndexes() {
+        Map<String, String> indexes = new LinkedHashMap<>();
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            Table table = entity.getAnnotation(Table.class);
+            for (Index index : table.indexes()) {
+                String columns = Arrays.stream(index.columnList().split(","))
+                        .map(column -> physicalName(column.trim()))
+                        .collect(Collectors.joining(", "));
+                indexes.put(index.name(), "create index " + index.name() + " on " + physicalName(table.name()) + " (" + columns + ")");
+            }
+        }
+        return indexes;
+    }
+
+    private static String physicalName(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+}
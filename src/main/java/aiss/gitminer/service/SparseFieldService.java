@@ -0,0 +1,153 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.fields.EntityFields;
+import aiss.gitminer.fields.FieldSelection;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.pagination.TimeRange;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Reads only what a sparse fieldset selects: one tuple query per chunk of IDs for the selected
+// columns and one more per embedded association, so unselected TEXT columns and associations are never
+// read. Objects are returned as maps of JSON names. Listings first read the keys of a page alone, with
+// the same keyset conditions as the repositories.
+@Service
+@Transactional(readOnly = true)
+public class SparseFieldService {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    public Optional<Map<String, Object>> find(String id, FieldSelection selection) {
+        return load(List.of(id), selection).stream().findFirst();
+    }
+
+    // In the order of the IDs, skipping the ones that do not exist
+    public List<Map<String, Object>> load(List<String> ids, FieldSelection selection) {
+        Map<String, Map<String, Object>> rows = rows(ids, selection);
+        return ids.stream().map(rows::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    public KeysetPage<Map<String, Object>> page(String afterId, int limit, FieldSelection selection) {
+        List<String> ids = entityManager.createQuery("select e.id from " + selection.getType().getEntity()
+                        + " e where e.id > :after order by e.id", String.class)
+                .setParameter("after", afterId == null ? "" : afterId)
+                .setMaxResults(limit + 1)
+                .getResultList();
+        return KeysetPage.byId(ids, limit, id -> id).map(page -> load(page, selection));
+    }
+
+    // Sorted by the time attribute and then by ID, optionally only the objects whose attribute (like
+    // projectId) has the given value, see TimeRange
+    public KeysetPage<Map<String, Object>> pageInRange(String timeAttribute, TimeRange range, String ownerAttribute, String ownerId,
+                                                      int limit, FieldSelection selection) {
+        String time = "e." + timeAttribute;
+        TypedQuery<Object[]> query = entityManager.createQuery("select e.id, " + time + " from " + selection.getType().getEntity() + " e where "
+                        + (ownerAttribute == null ? "" : "e." + ownerAttribute + " = :ownerId and ")
+                        + time + " >= :afterTime and (" + time + " > :afterTime or e.id > :afterId) and " + time + " < :to "
+                        + "order by " + time + ", e.id", Object[].class)
+                .setParameter("afterTime", range.getAfterTime())
+                .setParameter("afterId", range.getAfterId())
+                .setParameter("to", range.getTo())
+                .setMaxResults(limit + 1);
+        if (ownerAttribute != null) {
+            query.setParameter("ownerId", ownerId);
+        }
+        List<Object[]> keys = query.getResultList();
+        return KeysetPage.byTime(keys, limit, key -> (Instant) key[1], key -> (String) key[0])
+                .map(page -> load(page.stream().map(key -> (String) key[0]).collect(Collectors.toList()), selection));
+    }
+
+    // Every object whose attribute (a path like author.id) has the value, sorted by ID
+    public List<Map<String, Object>> findBy(String attribute, Object value, FieldSelection selection) {
+        List<String> ids = entityManager.createQuery("select e.id from " + selection.getType().getEntity()
+                        + " e where e." + attribute + " = :value order by e.id", String.class)
+                .setParameter("value", value)
+                .getResultList();
+        return load(ids, selection);
+    }
+
+    private Map<String, Map<String, Object>> rows(Collection<String> ids, FieldSelection selection) {
+        EntityFields type = selection.getType();
+        List<String> names = selection.getScalars();
+        String columns = names.stream().map(name -> "e." + type.getScalars().get(name)).collect(Collectors.joining(", "));
+        Map<String, Map<String, Object>> rows = new HashMap<>();
+        for (Object result : query("select " + columns + " from " + type.getEntity() + " e where e.id in :ids", ids)) {
+            Object[] values = result instanceof Object[] ? (Object[]) result : new Object[] { result };
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                row.put(names.get(i), values[i]);
+            }
+            rows.put((String) values[0], row);
+        }
+        if (!rows.isEmpty()) {
+            for (Map.Entry<String, FieldSelection> include : selection.getIncludes().entrySet()) {
+                embed(rows, type, type.association(include.getKey()).orElseThrow(), include.getValue());
+            }
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void embed(Map<String, Map<String, Object>> rows, EntityFields owner, EntityFields.Association association,
+                       FieldSelection selection) {
+        String name = association.getName();
+        String attribute = association.getAttribute();
+        switch (association.getKind()) {
+            case TO_ONE: {
+                Map<String, String> targetIds = new HashMap<>();
+                for (Object result : query("select e.id, e." + attribute + ".id from " + owner.getEntity() + " e "
+                        + "where e.id in :ids and e." + attribute + " is not null", rows.keySet())) {
+                    Object[] pair = (Object[]) result;
+                    targetIds.put((String) pair[0], (String) pair[1]);
+                }
+                Map<String, Map<String, Object>> targets = rows(new HashSet<>(targetIds.values()), selection);
+                rows.forEach((id, row) -> row.put(name, targets.get(targetIds.get(id))));
+                break;
+            }
+            case ELEMENTS: {
+                rows.values().forEach(row -> row.put(name, new ArrayList<>()));
+                for (Object result : query("select e.id, v from " + owner.getEntity() + " e join e." + attribute + " v "
+                        + "where e.id in :ids", rows.keySet())) {
+                    Object[] pair = (Object[]) result;
+                    ((List<Object>) rows.get((String) pair[0]).get(name)).add(pair[1]);
+                }
+                break;
+            }
+            case CHILDREN: {
+                List<Object[]> pairs = new ArrayList<>();
+                for (Object result : query("select c.id, c." + attribute + " from " + association.getTarget().getEntity() + " c "
+                        + "where c." + attribute + " in :ids order by c.id", rows.keySet())) {
+                    pairs.add((Object[]) result);
+                }
+                Map<String, Map<String, Object>> children = rows(pairs.stream().map(pair -> (String) pair[0]).collect(Collectors.toList()), selection);
+                rows.values().forEach(row -> row.put(name, new ArrayList<>()));
+                for (Object[] pair : pairs) {
+                    ((List<Object>) rows.get((String) pair[1]).get(name)).add(children.get((String) pair[0]));
+                }
+                break;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> query(String jpql, Collection<String> ids) {
+        return IdChunks.query(ids, IdChunks.LOOKUP_CHUNK_SIZE,
+                chunk -> entityManager.createQuery(jpql).setParameter("ids", chunk).getResultList());
+    }
+}
@@ -0,0 +1,22 @@
+package aiss.gitminer.service;
+
+// A cached value together with the version stamp that was read before it was loaded, so the
+// value is never older than its stamp
+public class Stamped<T> {
+
+    private final String stamp;
+    private final T value;
+
+    public Stamped(String stamp, T value) {
+        this.stamp = stamp;
+        this.value = value;
+    }
+
+    public String getStamp() {
+        return stamp;
+    }
+
+    public T getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,78 @@
+package aiss.gitminer.service;
+
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.repository.ProjectRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Version stamps behind the ETags. A single entity is stamped with the revision of the project that
+// owns it, read with one indexed query and no graph. Listings, and entities that belong to no project,
+// share a stamp made of the boot time and a counter of the writes committed since, so any write
+// changes it and a restart never reuses one.
+@Service
+public class VersionStampService {
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong writes = new AtomicLong();
+
+    public String listStamp() {
+        return epoch + "." + writes.get();
+    }
+
+    public Optional<String> projectStamp(String id) {
+        return projectRepository.findRevision(id).map(String::valueOf);
+    }
+
+    public Optional<String> issueStamp(String id) {
+        return ownerStamp(issueRepository.findProjectRevision(id));
+    }
+
+    public Optional<String> commitStamp(String id) {
+        return ownerStamp(commitRepository.findProjectRevision(id));
+    }
+
+    public Optional<String> commentStamp(String id) {
+        return ownerStamp(commentRepository.findProjectRevision(id));
+    }
+
+    private Optional<String> ownerStamp(List<Long> revisions) {
+        if (revisions.isEmpty()) {
+            return Optional.empty();
+        }
+        Long revision = revisions.get(0);
+        return Optional.of(revision == null ? listStamp() : String.valueOf(revision));
+    }
+
+    @Order(2)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectWritten(ProjectWrittenEvent event) {
+        writes.incrementAndGet();
+    }
+
+    @Order(2)
+    @EventListener
+    public void onDatasetRestored(DatasetRestoredEvent event) {
+        writes.incrementAndGet();
+    }
+}
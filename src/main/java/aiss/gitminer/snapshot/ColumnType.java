@@ -0,0 +1,133 @@
+package aiss.gitminer.snapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// How the values of a column are read from JDBC and encoded in a snapshot. Timestamps are copied as
+// the local date-times stored in the table, so they round-trip whatever the time zone of the JVM.
+public enum ColumnType {
+    STRING(Types.VARCHAR) {
+        @Override
+        Object get(ResultSet rows, int column) throws SQLException {
+            return rows.getString(column);
+        }
+
+        @Override
+        void set(PreparedStatement statement, int parameter, Object value) throws SQLException {
+            statement.setString(parameter, (String) value);
+        }
+
+        @Override
+        void write(DataOutput out, Object value) throws IOException {
+            // Not writeUTF, which is limited to 64 KB
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        Object read(DataInput in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    },
+    LONG(Types.BIGINT) {
+        @Override
+        Object get(ResultSet rows, int column) throws SQLException {
+            long value = rows.getLong(column);
+            return rows.wasNull() ? null : value;
+        }
+
+        @Override
+        void set(PreparedStatement statement, int parameter, Object value) throws SQLException {
+            statement.setLong(parameter, (Long) value);
+        }
+
+        @Override
+        void write(DataOutput out, Object value) throws IOException {
+            out.writeLong((Long) value);
+        }
+
+        @Override
+        Object read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    },
+    INT(Types.INTEGER) {
+        @Override
+        Object get(ResultSet rows, int column) throws SQLException {
+            int value = rows.getInt(column);
+            return rows.wasNull() ? null : value;
+        }
+
+        @Override
+        void set(PreparedStatement statement, int parameter, Object value) throws SQLException {
+            statement.setInt(parameter, (Integer) value);
+        }
+
+        @Override
+        void write(DataOutput out, Object value) throws IOException {
+            out.writeInt((Integer) value);
+        }
+
+        @Override
+        Object read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    },
+    TIMESTAMP(Types.TIMESTAMP) {
+        @Override
+        Object get(ResultSet rows, int column) throws SQLException {
+            return rows.getObject(column, LocalDateTime.class);
+        }
+
+        @Override
+        void set(PreparedStatement statement, int parameter, Object value) throws SQLException {
+            statement.setObject(parameter, value);
+        }
+
+        @Override
+        void write(DataOutput out, Object value) throws IOException {
+            LocalDateTime timestamp = (LocalDateTime) value;
+            out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(timestamp.getNano());
+        }
+
+        @Override
+        Object read(DataInput in) throws IOException {
+            return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        }
+    };
+
+    private final int sqlType;
+
+    ColumnType(int sqlType) {
+        this.sqlType = sqlType;
+    }
+
+    abstract Object get(ResultSet rows, int column) throws SQLException;
+
+    // Typed, so the driver does not have to work out the type of each value or null
+    void bind(PreparedStatement statement, int parameter, Object value) throws SQLException {
+        if (value == null) {
+            statement.setNull(parameter, sqlType);
+        } else {
+            set(statement, parameter, value);
+        }
+    }
+
+    abstract void set(PreparedStatement statement, int parameter, Object value) throws SQLException;
+
+    abstract void write(DataOutput out, Object value) throws IOException;
+
+    abstract Object read(DataInput in) throws IOException;
+}
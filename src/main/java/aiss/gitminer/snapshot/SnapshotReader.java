@@ -0,0 +1,97 @@
+package aiss.gitminer.snapshot;
+
+import aiss.gitminer.exception.InvalidSnapshotException;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+// Reads what SnapshotWriter wrote. Anything that does not match it, from a wrong header or an unknown
+// column to a truncated stream or a checksum mismatch, is an InvalidSnapshotException.
+public class SnapshotReader implements Closeable {
+
+    private final CRC32 checksum = new CRC32();
+    private final DataInputStream in;
+    private SnapshotTable table;
+
+    public SnapshotReader(InputStream source) throws IOException, InvalidSnapshotException {
+        byte[] header = source.readNBytes(SnapshotWriter.MAGIC.length + 1);
+        if (!Arrays.equals(header, 0, SnapshotWriter.MAGIC.length, SnapshotWriter.MAGIC, 0, SnapshotWriter.MAGIC.length)
+                || header[SnapshotWriter.MAGIC.length] != SnapshotWriter.VERSION) {
+            throw new InvalidSnapshotException();
+        }
+        try {
+            // Checksummed above the buffer, so only the bytes actually consumed are counted
+            in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new GZIPInputStream(source, SnapshotWriter.BUFFER_SIZE), SnapshotWriter.BUFFER_SIZE), checksum));
+        } catch (ZipException | EOFException e) {
+            throw new InvalidSnapshotException();
+        }
+    }
+
+    // The next table, or empty once the trailer has been read and verified
+    public Optional<SnapshotTable> nextTable() throws IOException, InvalidSnapshotException {
+        try {
+            int marker = in.readUnsignedByte();
+            if (marker == SnapshotWriter.END) {
+                long expected = checksum.getValue();
+                if (in.readLong() != expected || in.read() != -1) {
+                    throw new InvalidSnapshotException();
+                }
+                return Optional.empty();
+            }
+            if (marker != SnapshotWriter.TABLE) {
+                throw new InvalidSnapshotException();
+            }
+            table = SnapshotTable.named(in.readUTF()).orElseThrow(InvalidSnapshotException::new);
+            List<String> columns = new ArrayList<>();
+            for (int i = in.readUnsignedShort(); i > 0; i--) {
+                columns.add(in.readUTF());
+            }
+            if (!columns.equals(table.getColumns())) {
+                throw new InvalidSnapshotException();
+            }
+            return Optional.of(table);
+        } catch (ZipException | EOFException | UTFDataFormatException e) {
+            throw new InvalidSnapshotException();
+        }
+    }
+
+    // The next row of the current table, or null at its end
+    public Object[] nextRow() throws IOException, InvalidSnapshotException {
+        try {
+            int marker = in.readUnsignedByte();
+            if (marker == SnapshotWriter.END) {
+                return null;
+            }
+            if (marker != SnapshotWriter.ROW) {
+                throw new InvalidSnapshotException();
+            }
+            List<ColumnType> types = table.getTypes();
+            Object[] row = new Object[types.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = in.readBoolean() ? types.get(i).read(in) : null;
+            }
+            return row;
+        } catch (ZipException | EOFException | NegativeArraySizeException | DateTimeException e) {
+            throw new InvalidSnapshotException();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
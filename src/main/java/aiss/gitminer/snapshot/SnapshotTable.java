@@ -0,0 +1,96 @@
+package aiss.gitminer.snapshot;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static aiss.gitminer.snapshot.ColumnType.INT;
+import static aiss.gitminer.snapshot.ColumnType.LONG;
+import static aiss.gitminer.snapshot.ColumnType.STRING;
+import static aiss.gitminer.snapshot.ColumnType.TIMESTAMP;
+
+// The tables a snapshot holds, in an order where every row comes after the rows it references. Rows
+// are copied sorted by primary key, so that a restore appends to the key index instead of splitting
+// pages all over it.
+public enum SnapshotTable {
+    PROJECT("project", "id", STRING, "name", STRING, "web_url", STRING, "revision", LONG),
+    USER("gmuser", "id", STRING, "username", STRING, "name", STRING, "avatar_url", STRING, "web_url", STRING),
+    LABEL("label", "id", INT, "name", STRING),
+    COMMIT("commit", "id", STRING, "title", STRING, "message", STRING, "author_name", STRING,
+            "author_email", STRING, "authored_date", TIMESTAMP, "web_url", STRING, "content_hash", LONG, "project_id", STRING),
+    ISSUE("issue", "id", STRING, "title", STRING, "description", STRING, "state", STRING,
+            "created_at", TIMESTAMP, "updated_at", TIMESTAMP, "closed_at", TIMESTAMP, "votes", INT, "content_hash", LONG,
+            "author_id", STRING, "assignee_id", STRING, "project_id", STRING),
+    // No key: the labels of an issue are a list kept in the order they were stored, so they are
+    // copied in that order too
+    ISSUE_LABELS("issue_labels", "issue_id", STRING, "label_id", INT) {
+        @Override
+        public String selectSql() {
+            return select();
+        }
+    },
+    COMMENT("comment", "id", STRING, "body", STRING, "created_at", TIMESTAMP, "updated_at", TIMESTAMP,
+            "content_hash", LONG, "author_id", STRING, "issue_id", STRING);
+
+    private final String name;
+    private final List<String> columns = new ArrayList<>();
+    private final List<ColumnType> types = new ArrayList<>();
+
+    // Columns are given as pairs of name and type
+    SnapshotTable(String name, Object... columns) {
+        this.name = name;
+        for (int i = 0; i < columns.length; i += 2) {
+            this.columns.add((String) columns[i]);
+            this.types.add((ColumnType) columns[i + 1]);
+        }
+    }
+
+    public static Optional<SnapshotTable> named(String name) {
+        return Arrays.stream(values()).filter(table -> table.name.equals(name)).findFirst();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    List<ColumnType> getTypes() {
+        return Collections.unmodifiableList(types);
+    }
+
+    public String selectSql() {
+        return select() + " order by " + columns.get(0);
+    }
+
+    String select() {
+        return "select " + String.join(", ", columns) + " from " + name;
+    }
+
+    public String insertSql() {
+        return "insert into " + name + " (" + String.join(", ", columns) + ") values ("
+                + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+    }
+
+    public void bind(PreparedStatement statement, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            types.get(i).bind(statement, i + 1, row[i]);
+        }
+    }
+
+    public Object[] row(ResultSet rows) throws SQLException {
+        Object[] row = new Object[types.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = types.get(i).get(rows, i + 1);
+        }
+        return row;
+    }
+}
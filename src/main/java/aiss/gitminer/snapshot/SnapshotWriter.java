@@ -0,0 +1,90 @@
+package aiss.gitminer.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Binary snapshot format. After a plain header (magic and version) everything is gzipped: each table
+// is its name and column names followed by its rows, each value behind a null flag, and the snapshot
+// ends with the CRC-32 of all of that, so a restore can tell a complete file from a damaged one
+// before touching the database.
+public class SnapshotWriter implements Closeable {
+
+    static final byte[] MAGIC = "GMSNAP".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int TABLE = 1;
+    static final int ROW = 2;
+    static final int END = 0;
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final GZIPOutputStream compressed;
+    private final CRC32 checksum = new CRC32();
+    private final DataOutputStream out;
+    private SnapshotTable table;
+    private long rows;
+
+    public SnapshotWriter(OutputStream target) throws IOException {
+        target.write(MAGIC);
+        target.write(VERSION);
+        // Fastest level: snapshots of text rows still shrink several times, and writing stays I/O bound
+        compressed = new GZIPOutputStream(target, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+        out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(compressed, BUFFER_SIZE), checksum));
+    }
+
+    public void beginTable(SnapshotTable table) throws IOException {
+        this.table = table;
+        out.writeByte(TABLE);
+        out.writeUTF(table.getName());
+        List<String> columns = table.getColumns();
+        out.writeShort(columns.size());
+        for (String column : columns) {
+            out.writeUTF(column);
+        }
+    }
+
+    public void writeRow(Object[] row) throws IOException {
+        List<ColumnType> types = table.getTypes();
+        out.writeByte(ROW);
+        for (int i = 0; i < row.length; i++) {
+            out.writeBoolean(row[i] != null);
+            if (row[i] != null) {
+                types.get(i).write(out, row[i]);
+            }
+        }
+        rows++;
+    }
+
+    public void endTable() throws IOException {
+        out.writeByte(END);
+        table = null;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    // Writes the trailer; the target itself is left open
+    public void finish() throws IOException {
+        out.writeByte(END);
+        out.writeLong(checksum.getValue());
+        out.flush();
+        compressed.finish();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,88 @@
+-- Schema of the entities as of the first durable release; later changes go in new versions
+
+create table project (
+    id varchar(255) not null,
+    name varchar(255),
+    web_url varchar(255),
+    revision bigint default 0 not null,
+    primary key (id)
+);
+
+create table gmuser (
+    id varchar(255) not null,
+    username varchar(255),
+    name varchar(255),
+    avatar_url varchar(255),
+    web_url varchar(255),
+    primary key (id)
+);
+
+create table commit (
+    id varchar(255) not null,
+    title varchar(255),
+    message text,
+    author_name varchar(255),
+    author_email varchar(255),
+    authored_date timestamp not null,
+    web_url varchar(255),
+    content_hash bigint,
+    project_id varchar(255),
+    primary key (id)
+);
+
+create table issue (
+    id varchar(255) not null,
+    title varchar(255),
+    description text,
+    state varchar(255),
+    created_at timestamp not null,
+    updated_at timestamp,
+    closed_at timestamp,
+    votes integer,
+    content_hash bigint,
+    author_id varchar(255) not null,
+    assignee_id varchar(255),
+    project_id varchar(255),
+    primary key (id)
+);
+
+create table label (
+    id integer generated by default as identity,
+    name varchar(255) not null,
+    primary key (id),
+    constraint uk_label_name unique (name)
+);
+
+create table issue_labels (
+    issue_id varchar(255) not null,
+    label_id integer
+);
+
+create table comment (
+    id varchar(255) not null,
+    body text,
+    created_at timestamp not null,
+    updated_at timestamp,
+    content_hash bigint,
+    author_id varchar(255) not null,
+    issue_id varchar(255),
+    primary key (id)
+);
+
+alter table commit add constraint fk_commit_project foreign key (project_id) references project;
+alter table issue add constraint fk_issue_project foreign key (project_id) references project;
+alter table issue add constraint fk_issue_author foreign key (author_id) references gmuser;
+alter table issue add constraint fk_issue_assignee foreign key (assignee_id) references gmuser;
+alter table issue_labels add constraint fk_issue_labels_issue foreign key (issue_id) references issue;
+alter table comment add constraint fk_comment_issue foreign key (issue_id) references issue;
+alter table comment add constraint fk_comment_author foreign key (author_id) references gmuser;
+
+create index idx_commit_authored_date on commit (authored_date, id);
+create index idx_commit_project_authored_date on commit (project_id, authored_date, id);
+create index idx_issue_created_at on issue (created_at, id);
+create index idx_issue_updated_at on issue (updated_at, id);
+create index idx_issue_project_state on issue (project_id, state, created_at);
+create index idx_issue_author_state on issue (author_id, state, created_at);
+create index idx_issue_state_created_at on issue (state, created_at, id);
+create index idx_comment_created_at on comment (created_at, id);
+create index idx_comment_issue_created_at on comment (issue_id, created_at, id);
@@ -0,0 +1,12 @@
+-- Change log of GET /gitminer/changes, see ChangeLogService
+
+create table change_log (
+    seq bigint not null,
+    entity varchar(16) not null,
+    entity_id varchar(255),
+    operation varchar(8) not null,
+    project_id varchar(255),
+    issue_id varchar(255),
+    changed_at timestamp not null,
+    primary key (seq)
+);
@@ -0,0 +1,9 @@
+-- Last sequence number of the change log, see ChangeLogService
+
+create table change_log_seq (
+    id integer not null,
+    seq bigint not null,
+    primary key (id)
+);
+
+insert into change_log_seq (id, seq) select 1, coalesce(max(seq), 0) from change_log;
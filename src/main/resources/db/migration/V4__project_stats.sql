@@ -0,0 +1,24 @@
+-- Counters of GET /gitminer/projects/{id}/stats, see ProjectStatsService
+
+create table project_stats (
+    project_id varchar(255) not null,
+    kind varchar(16) not null,
+    name varchar(255) not null,
+    total bigint not null,
+    primary key (project_id, kind, name)
+);
+
+insert into project_stats (project_id, kind, name, total)
+select project_id, 'commits', '', count(*) from commit where project_id is not null group by project_id;
+insert into project_stats (project_id, kind, name, total)
+select project_id, 'author', author_name, count(*) from commit where project_id is not null and author_name is not null group by project_id, author_name;
+insert into project_stats (project_id, kind, name, total)
+select project_id, 'issues', '', count(*) from issue where project_id is not null group by project_id;
+insert into project_stats (project_id, kind, name, total)
+select project_id, 'state', state, count(*) from issue where project_id is not null and state is not null group by project_id, state;
+insert into project_stats (project_id, kind, name, total)
+select project_id, 'votes', '', sum(votes) from issue where project_id is not null and votes is not null group by project_id having sum(votes) <> 0;
+insert into project_stats (project_id, kind, name, total)
+select project_id, 'voted_issues', '', count(*) from issue where project_id is not null and votes is not null group by project_id;
+insert into project_stats (project_id, kind, name, total)
+select i.project_id, 'comments', '', count(*) from comment c join issue i on i.id = c.issue_id where i.project_id is not null group by i.project_id;
@@ -0,0 +1,147 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.service.BatchLookupService;
+import aiss.gitminer.service.ProjectService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// POST /gitminer/{commits,issues,comments,users}/batch: one item per requested ID, in request order
+// and repeated IDs included, null for the IDs that are not found, which are listed in not_found
+@SpringBootTest
+@AutoConfigureMockMvc
+class BatchLookupTests {
+
+    private static final String ID = "batch";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ProjectService projectService;
+
+    @BeforeEach
+    void createProject() throws Exception {
+        Project project = new Project(ID, "https://example.org/" + ID);
+        project.setId(ID);
+        List<Commit> commits = new ArrayList<>();
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Commit commit = new Commit();
+            commit.setId(ID + "-commit-" + i);
+            commit.setTitle("Commit " + i);
+            commit.setAuthorName("author");
+            commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+            commit.setWebUrl("https://example.org/" + ID + "/commit/" + i);
+            commits.add(commit);
+
+            Issue issue = new Issue();
+            issue.setId(ID + "-issue-" + i);
+            issue.setTitle("Issue " + i);
+            issue.setState("open");
+            issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+            issue.setLabels(List.of("bug"));
+            issue.setAuthor(user(ID + "-user-" + i));
+            Comment comment = new Comment();
+            comment.setId(ID + "-comment-" + i);
+            comment.setBody("Comment " + i);
+            comment.setAuthor(user(ID + "-user-" + i));
+            comment.setCreatedAt(Instant.parse("2023-01-25T12:00:00Z"));
+            issue.setComments(new ArrayList<>(List.of(comment)));
+            issues.add(issue);
+        }
+        project.setCommits(commits);
+        project.setIssues(issues);
+        projectService.create(project);
+    }
+
+    @Test
+    void commitsComeInRequestOrder() throws Exception {
+        batch("commits", "commit")
+                .andExpect(jsonPath("$.items[0].title").value("Commit 1"))
+                .andExpect(jsonPath("$.items[2].title").value("Commit 0"));
+    }
+
+    @Test
+    void issuesComeInRequestOrder() throws Exception {
+        batch("issues", "issue")
+                .andExpect(jsonPath("$.items[0].title").value("Issue 1"))
+                .andExpect(jsonPath("$.items[0].labels", contains("bug")))
+                .andExpect(jsonPath("$.items[0].author.id").value(ID + "-user-1"))
+                .andExpect(jsonPath("$.items[2].title").value("Issue 0"));
+    }
+
+    @Test
+    void commentsComeInRequestOrder() throws Exception {
+        batch("comments", "comment")
+                .andExpect(jsonPath("$.items[0].body").value("Comment 1"))
+                .andExpect(jsonPath("$.items[2].body").value("Comment 0"));
+    }
+
+    @Test
+    void usersComeInRequestOrder() throws Exception {
+        batch("users", "user")
+                .andExpect(jsonPath("$.items[0].username").value(ID + "-user-1"))
+                .andExpect(jsonPath("$.items[2].username").value(ID + "-user-0"));
+    }
+
+    @Test
+    void tooManyIdsAreRefused() throws Exception {
+        List<String> ids = Collections.nCopies(BatchLookupService.MAX_IDS + 1, ID + "-commit-0");
+        for (String path : List.of("commits", "issues", "comments", "users")) {
+            mockMvc.perform(post("/gitminer/" + path + "/batch").contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(ids)))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    // Asks for the second entity, a missing one, the first, the second again and another missing one
+    private ResultActions batch(String path, String entity) throws Exception {
+        List<String> ids = List.of(ID + "-" + entity + "-1", ID + "-" + entity + "-missing", ID + "-" + entity + "-0",
+                ID + "-" + entity + "-1", ID + "-" + entity + "-gone");
+        return mockMvc.perform(post("/gitminer/" + path + "/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(ids)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(5)))
+                .andExpect(jsonPath("$.items[0].id").value(ids.get(0)))
+                .andExpect(jsonPath("$.items[1]").value(nullValue()))
+                .andExpect(jsonPath("$.items[2].id").value(ids.get(2)))
+                .andExpect(jsonPath("$.items[3].id").value(ids.get(0)))
+                .andExpect(jsonPath("$.items[4]").value(nullValue()))
+                .andExpect(jsonPath("$.not_found", contains(ids.get(1), ids.get(4))));
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+}
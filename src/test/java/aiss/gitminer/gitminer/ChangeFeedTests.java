@@ -0,0 +1,166 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.service.ChangeLogService;
+import aiss.gitminer.service.ProjectService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /gitminer/changes and /gitminer/changes/stream: a client that resumes from the last sequence
+// number it read, by cursor or by Last-Event-ID, gets every later record once and in order
+@SpringBootTest
+@AutoConfigureMockMvc
+class ChangeFeedTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    @Test
+    void pagesFollowTheCursorToTheEnd() throws Exception {
+        long start = changeLogService.lastSeq();
+        projectService.create(project("feed-paged"));
+        // The project, 3 commits, 2 issues and 2 comments
+        assertEquals(start + 8, changeLogService.lastSeq());
+
+        List<Map<String, Object>> read = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String after = String.valueOf(start);
+        while (after != null) {
+            MockHttpServletResponse response = mockMvc.perform(get("/gitminer/changes").param("after", after).param("limit", "3"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse();
+            List<Map<String, Object>> page = objectMapper.readValue(response.getContentAsString(), new TypeReference<>() {});
+            read.addAll(page);
+            pageSizes.add(page.size());
+            after = response.getHeader(KeysetPage.NEXT_CURSOR_HEADER);
+            if (after != null) {
+                assertEquals(String.valueOf(page.get(page.size() - 1).get("seq")), after);
+            }
+        }
+
+        assertEquals(List.of(3, 3, 2), pageSizes);
+        assertEquals(LongStream.rangeClosed(start + 1, start + 8).boxed().collect(Collectors.toList()),
+                read.stream().map(change -> ((Number) change.get("seq")).longValue()).collect(Collectors.toList()));
+        assertEquals(List.of("feed-paged"), read.stream().filter(change -> change.get("entity").equals("project"))
+                .map(change -> change.get("id")).collect(Collectors.toList()));
+        read.forEach(change -> assertEquals("upsert", change.get("op")));
+    }
+
+    @Test
+    void streamResumesAfterTheLastEventId() throws Exception {
+        long start = changeLogService.lastSeq();
+        projectService.create(project("feed-streamed"));
+        long resumed = start + 4;
+
+        MockHttpServletResponse response = mockMvc.perform(get("/gitminer/changes/stream").header("Last-Event-ID", resumed))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+        // Then committed while the stream is open
+        projectService.create(project("feed-streamed-later"));
+        long end = start + 16;
+
+        List<Long> ids = eventIds(response, end);
+        assertEquals(LongStream.rangeClosed(resumed + 1, end).boxed().collect(Collectors.toList()), ids);
+    }
+
+    @Test
+    void lastPageHasNoCursor() throws Exception {
+        long last = changeLogService.lastSeq();
+        MockHttpServletResponse response = mockMvc.perform(get("/gitminer/changes").param("after", String.valueOf(last)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertEquals("[]", response.getContentAsString());
+        assertNull(response.getHeader(KeysetPage.NEXT_CURSOR_HEADER));
+    }
+
+    // Ids of the events sent so far, waiting up to five seconds for the one numbered last
+    private static List<Long> eventIds(MockHttpServletResponse response, long last) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        List<Long> ids;
+        do {
+            Thread.sleep(20);
+            ids = response.getContentAsString().lines()
+                    .filter(line -> line.startsWith("id:"))
+                    .map(line -> Long.parseLong(line.substring(3).trim()))
+                    .collect(Collectors.toList());
+        } while ((ids.isEmpty() || ids.get(ids.size() - 1) < last) && System.nanoTime() < deadline);
+        return ids;
+    }
+
+    private static Project project(String id) {
+        Project project = new Project(id, "https://example.org/" + id);
+        project.setId(id);
+        List<Commit> commits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Commit commit = new Commit();
+            commit.setId(id + "-commit-" + i);
+            commit.setTitle("Commit " + i);
+            commit.setAuthorName("author");
+            commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+            commit.setWebUrl("https://example.org/" + id + "/commit/" + i);
+            commits.add(commit);
+        }
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Issue issue = new Issue();
+            issue.setId(id + "-issue-" + i);
+            issue.setTitle("Issue " + i);
+            issue.setState("open");
+            issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+            issue.setLabels(List.of("bug"));
+            issue.setAuthor(user(id + "-author"));
+            Comment comment = new Comment();
+            comment.setId(id + "-comment-" + i);
+            comment.setBody("Thanks!");
+            comment.setAuthor(user(id + "-commenter"));
+            comment.setCreatedAt(Instant.parse("2023-01-25T12:00:00Z"));
+            issue.setComments(new ArrayList<>(List.of(comment)));
+            issues.add(issue);
+        }
+        project.setCommits(commits);
+        project.setIssues(issues);
+        return project;
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+}
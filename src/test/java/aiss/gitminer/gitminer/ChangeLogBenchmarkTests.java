@@ -0,0 +1,129 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.service.ChangeLogService;
+import aiss.gitminer.service.ProjectService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Cost of appending to the change log in commit order: every writing transaction holds the append
+// lock from its change log inserts through its commit, so concurrent writers only overlap in the
+// work before that. Compares the throughput of small project writes with more and more writers.
+// Only run on demand:
+//   mvn test -Dtest=ChangeLogBenchmarkTests -Dgitminer.benchmark=true [-Dgitminer.benchmark.writes=2000]
+@EnabledIfSystemProperty(named = "gitminer.benchmark", matches = "true")
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:change-log-benchmark", "spring.jpa.show-sql=false" })
+class ChangeLogBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeLogBenchmarkTests.class);
+
+    private static final int[] WRITERS = { 1, 2, 4, 8 };
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    @Test
+    void concurrentWritersShareTheAppendLock() throws Exception {
+        int writes = Integer.getInteger("gitminer.benchmark.writes", 2_000);
+        write("warmup", 1, writes / 4);
+
+        double single = 0;
+        for (int writers : WRITERS) {
+            long before = changeLogService.lastSeq();
+            long start = System.nanoTime();
+            write("writers-" + writers, writers, writes);
+            double perSecond = writes / ((System.nanoTime() - start) / 1e9);
+            if (writers == 1) {
+                single = perSecond;
+            }
+            log.info("{} writer(s): {} project writes/s ({}x one writer), {} change log records",
+                    writers, Math.round(perSecond), String.format("%.2f", perSecond / single), changeLogService.lastSeq() - before);
+            // One record per project, commit, issue and comment
+            assertEquals(writes * 12L, changeLogService.lastSeq() - before);
+        }
+    }
+
+    private void write(String batch, int writers, int writes) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = writer; i < writes; i += writers) {
+                        projectService.create(project(batch + "-" + i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Project project(String id) {
+        Project project = new Project(id, "https://example.org/" + id);
+        project.setId(id);
+        List<Commit> commits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Commit commit = new Commit();
+            commit.setId(id + "-commit-" + i);
+            commit.setTitle("Commit " + i);
+            commit.setAuthorName("author");
+            commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+            commit.setWebUrl("https://example.org/" + id + "/commit/" + i);
+            commits.add(commit);
+        }
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Issue issue = new Issue();
+            issue.setId(id + "-issue-" + i);
+            issue.setTitle("Issue " + i);
+            issue.setState("open");
+            issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+            issue.setLabels(List.of("bug"));
+            issue.setAuthor(user(id + "-author"));
+            Comment comment = new Comment();
+            comment.setId(id + "-comment-" + i);
+            comment.setBody("Thanks!");
+            comment.setAuthor(user(id + "-commenter-" + i));
+            comment.setCreatedAt(Instant.parse("2023-01-25T12:00:00Z"));
+            issue.setComments(new ArrayList<>(List.of(comment)));
+            issues.add(issue);
+        }
+        project.setCommits(commits);
+        project.setIssues(issues);
+        return project;
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+}
@@ -0,0 +1,127 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.service.BatchLookupService;
+import aiss.gitminer.service.ProjectService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Abbreviated commit IDs, by GET /gitminer/commits/{id} and in bulk by POST /gitminer/commits/resolve
+@SpringBootTest
+@AutoConfigureMockMvc
+class CommitResolveTests {
+
+    private static final String UNIQUE = "resolve-bbbb";
+    private static final String AMBIGUOUS = "resolve-aaaa";
+    private static final String UNKNOWN = "resolve-cccc";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ProjectService projectService;
+
+    @BeforeEach
+    void createProject() throws Exception {
+        projectService.create(project("resolve", "resolve-aaaa1111", "resolve-aaaa2222", "resolve-bbbb3333"));
+    }
+
+    @Test
+    void uniqueAbbreviationFindsItsCommit() throws Exception {
+        mockMvc.perform(get("/gitminer/commits/" + UNIQUE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("resolve-bbbb3333"));
+    }
+
+    @Test
+    void ambiguousAbbreviationListsTheCandidates() throws Exception {
+        mockMvc.perform(get("/gitminer/commits/" + AMBIGUOUS))
+                .andExpect(status().isMultipleChoices())
+                .andExpect(jsonPath("$.ambiguous").value(true))
+                .andExpect(jsonPath("$.candidates", contains("resolve-aaaa1111", "resolve-aaaa2222")));
+    }
+
+    @Test
+    void unknownAbbreviationIsNotFound() throws Exception {
+        mockMvc.perform(get("/gitminer/commits/" + UNKNOWN))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void resolveAnswersInRequestOrder() throws Exception {
+        mockMvc.perform(post("/gitminer/commits/resolve").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Arrays.asList(UNKNOWN, UNIQUE, null, AMBIGUOUS, "resolve-aaaa1111"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(nullValue()))
+                .andExpect(jsonPath("$[0].candidates", empty()))
+                .andExpect(jsonPath("$[1].id").value("resolve-bbbb3333"))
+                .andExpect(jsonPath("$[2].prefix").value(nullValue()))
+                .andExpect(jsonPath("$[2].candidates", empty()))
+                .andExpect(jsonPath("$[3].ambiguous").value(true))
+                // A full ID resolves to itself
+                .andExpect(jsonPath("$[4].id").value("resolve-aaaa1111"));
+    }
+
+    @Test
+    void resolveRefusesTooManyIds() throws Exception {
+        List<String> prefixes = Collections.nCopies(BatchLookupService.MAX_IDS + 1, UNIQUE);
+        mockMvc.perform(post("/gitminer/commits/resolve").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(prefixes)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void deletedCommitsLeaveTheIndex() throws Exception {
+        projectService.create(project("resolve-deleted", "resolve-dddd4444"));
+        mockMvc.perform(get("/gitminer/commits/resolve-dddd")).andExpect(status().isOk());
+
+        projectService.delete("resolve-deleted");
+
+        mockMvc.perform(get("/gitminer/commits/resolve-dddd")).andExpect(status().isNotFound());
+        mockMvc.perform(post("/gitminer/commits/resolve").contentType(MediaType.APPLICATION_JSON).content("[\"resolve-dddd\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].candidates", empty()));
+    }
+
+    private static Project project(String id, String... commitIds) {
+        Project project = new Project(id, "https://example.org/" + id);
+        project.setId(id);
+        List<Commit> commits = new ArrayList<>();
+        for (String commitId : commitIds) {
+            Commit commit = new Commit();
+            commit.setId(commitId);
+            commit.setTitle("Commit " + commitId);
+            commit.setAuthorName("author");
+            commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+            commit.setWebUrl("https://example.org/" + id + "/commit/" + commitId);
+            commits.add(commit);
+        }
+        project.setCommits(commits);
+        project.setIssues(new ArrayList<>());
+        return project;
+    }
+}
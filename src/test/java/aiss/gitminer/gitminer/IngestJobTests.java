@@ -0,0 +1,148 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.repository.ProjectRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// POST /gitminer/projects/ingest?async=true with a single worker and room for one waiting job
+@SpringBootTest(properties = { "gitminer.ingest.jobs.workers=1", "gitminer.ingest.jobs.queue-capacity=1" })
+@AutoConfigureMockMvc
+class IngestJobTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Test
+    void jobIsAcceptedAndWrittenInTheBackground() throws Exception {
+        JsonNode job = submit("async-accepted");
+        assertEquals("async-accepted", job.get("project_id").asText());
+
+        JsonNode done = awaitStatus(job.get("id").asText(), "succeeded");
+        assertEquals(6, done.get("commits").asInt());
+        assertEquals(4, done.get("issues").asInt());
+        assertEquals(6, commitRepository.findIdsByProjectId("async-accepted").size());
+        assertEquals(4, issueRepository.findIdsByProjectId("async-accepted").size());
+    }
+
+    @Test
+    void fullQueueIsAnsweredTooManyRequests() throws Exception {
+        String running;
+        String queued;
+        // The row of the first project, inserted and not committed, holds its worker until rolled back
+        try (Connection blocker = dataSource.getConnection()) {
+            blocker.setAutoCommit(false);
+            try (PreparedStatement insert = blocker.prepareStatement("insert into project (id, name, web_url, revision) values (?, ?, ?, 0)")) {
+                insert.setString(1, "async-running");
+                insert.setString(2, "async-running");
+                insert.setString(3, "https://example.org/async-running");
+                insert.executeUpdate();
+            }
+            running = submit("async-running").get("id").asText();
+            awaitStatus(running, "running");
+            queued = submit("async-queued").get("id").asText();
+            assertEquals("queued", job(queued).get("status").asText());
+
+            mockMvc.perform(post("/gitminer/projects/ingest").param("async", "true")
+                            .contentType(MediaType.APPLICATION_JSON).content(document("async-refused")))
+                    .andExpect(status().isTooManyRequests());
+            blocker.rollback();
+        }
+
+        awaitStatus(running, "succeeded");
+        awaitStatus(queued, "succeeded");
+        assertEquals(6, commitRepository.findIdsByProjectId("async-queued").size());
+        assertFalse(projectRepository.existsById("async-refused"));
+        // With the queue free again, the refused project can be sent once more
+        awaitStatus(submit("async-refused").get("id").asText(), "succeeded");
+    }
+
+    @Test
+    void invalidProjectIsRefusedBeforeQueueing() throws Exception {
+        mockMvc.perform(post("/gitminer/projects/ingest").param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"no id\",\"commits\":[]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/gitminer/jobs/unknown")).andExpect(status().isNotFound());
+    }
+
+    private JsonNode submit(String id) throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(post("/gitminer/projects/ingest").param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON).content(document(id)))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse();
+        JsonNode job = objectMapper.readTree(response.getContentAsString());
+        assertEquals("/gitminer/jobs/" + job.get("id").asText(), response.getHeader(HttpHeaders.LOCATION));
+        return job;
+    }
+
+    private JsonNode job(String id) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get("/gitminer/jobs/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    // Polls the job for up to five seconds
+    private JsonNode awaitStatus(String id, String status) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        JsonNode job = job(id);
+        while (!job.get("status").asText().equals(status) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            job = job(id);
+        }
+        assertEquals(status, job.get("status").asText(), job.toString());
+        return job;
+    }
+
+    private static String document(String id) {
+        StringBuilder json = new StringBuilder("{\"id\":\"" + id + "\",\"name\":\"" + id + "\",\"web_url\":\"https://example.org/" + id + "\",\"commits\":[");
+        for (int i = 0; i < 6; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"id\":\"").append(id).append("-commit-").append(i)
+                    .append("\",\"title\":\"Commit ").append(i)
+                    .append("\",\"author_name\":\"author\",\"authored_date\":\"2023-01-25T13:06:19Z\",\"web_url\":\"https://example.org/c\"}");
+        }
+        json.append("],\"issues\":[");
+        for (int i = 0; i < 4; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"id\":\"").append(id).append("-issue-").append(i)
+                    .append("\",\"title\":\"Issue ").append(i)
+                    .append("\",\"state\":\"open\",\"created_at\":\"2023-01-25T11:35:30Z\",\"labels\":[\"bug\"]")
+                    .append(",\"author\":{\"id\":\"").append(id).append("-user\",\"username\":\"user\",\"web_url\":\"https://example.org/user\"}}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,130 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.dto.IssueLatency;
+import aiss.gitminer.dto.ProjectSyncRequest;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.service.IssueLatencyService;
+import aiss.gitminer.service.ProjectService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static aiss.gitminer.gitminer.LatencyHistogramTests.assertWithinAccuracy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Every write is followed through the change log, so the histograms must match a count from scratch
+// after issues change hands, labels or comments
+@SpringBootTest
+class IssueLatencyTests {
+
+    private static final Instant CREATED_AT = Instant.parse("2023-01-25T11:00:00Z");
+
+    @Autowired
+    IssueLatencyService issueLatencyService;
+
+    @Autowired
+    ProjectService projectService;
+
+    @Test
+    void issueMovedToAnotherProjectIsCountedThereOnly() throws Exception {
+        projectService.create(project("latency-from", issue("latency-moved", "latency-bug", 7_200, 600)));
+        assertEquals(1, issueLatencyService.latency("latency-from", null).getTimeToClose().getCount());
+
+        projectService.create(project("latency-to", issue("latency-moved", "latency-bug", 7_200, 600)));
+
+        IssueLatency from = issueLatencyService.latency("latency-from", null);
+        assertEquals(0, from.getTimeToClose().getCount());
+        assertEquals(0, from.getTimeToFirstComment().getCount());
+        assertEquals(0, issueLatencyService.latency("latency-from", "latency-bug").getTimeToClose().getCount());
+
+        IssueLatency to = issueLatencyService.latency("latency-to", "latency-bug");
+        assertEquals(1, to.getTimeToClose().getCount());
+        assertWithinAccuracy(7_200, to.getTimeToClose().getP50Seconds());
+        assertWithinAccuracy(600, to.getTimeToFirstComment().getP50Seconds());
+    }
+
+    @Test
+    void relabelledIssueMovesBetweenLabels() throws Exception {
+        projectService.create(project("latency-labels",
+                issue("latency-relabelled", "latency-old", 3_600, 60),
+                issue("latency-kept", "latency-old", 86_400, 60)));
+
+        ProjectSyncRequest delta = new ProjectSyncRequest();
+        delta.setIssues(List.of(issue("latency-relabelled", "latency-new", 3_600, 60)));
+        projectService.sync("latency-labels", delta);
+
+        IssueLatency old = issueLatencyService.latency("latency-labels", "latency-old");
+        assertEquals(1, old.getTimeToClose().getCount());
+        assertWithinAccuracy(86_400, old.getTimeToClose().getP50Seconds());
+        IssueLatency relabelled = issueLatencyService.latency("latency-labels", "latency-new");
+        assertEquals(1, relabelled.getTimeToClose().getCount());
+        assertWithinAccuracy(3_600, relabelled.getTimeToClose().getP50Seconds());
+        assertEquals(2, issueLatencyService.latency("latency-labels", null).getTimeToClose().getCount());
+    }
+
+    @Test
+    void issueThatLosesItsFirstCommentIsMeasuredToTheNextOne() throws Exception {
+        projectService.create(project("latency-comments", issue("latency-commented", "latency-bug", -1, 60, 3_600)));
+        assertWithinAccuracy(60, issueLatencyService.latency("latency-comments", null).getTimeToFirstComment().getP50Seconds());
+
+        // Re-posted without the first comment, which is detached from the issue
+        Issue second = issue("latency-commented", "latency-bug", -1, 60, 3_600);
+        second.getComments().remove(0);
+        projectService.create(project("latency-comments", second));
+
+        IssueLatency latency = issueLatencyService.latency("latency-comments", null);
+        assertEquals(1, latency.getTimeToFirstComment().getCount());
+        assertWithinAccuracy(3_600, latency.getTimeToFirstComment().getP50Seconds());
+
+        Issue none = issue("latency-commented", "latency-bug", -1);
+        projectService.create(project("latency-comments", none));
+        assertEquals(0, issueLatencyService.latency("latency-comments", null).getTimeToFirstComment().getCount());
+    }
+
+    private static Project project(String id, Issue... issues) {
+        Project project = new Project(id, "https://example.org/" + id);
+        project.setId(id);
+        project.setCommits(new ArrayList<>());
+        project.setIssues(new ArrayList<>(List.of(issues)));
+        return project;
+    }
+
+    // Closed the given seconds after it was opened, or still open when negative, and commented on
+    // after each of the given seconds
+    private static Issue issue(String id, String label, long toClose, long... toComments) {
+        Issue issue = new Issue();
+        issue.setId(id);
+        issue.setTitle("Issue");
+        issue.setCreatedAt(CREATED_AT);
+        issue.setState(toClose < 0 ? "opened" : "closed");
+        issue.setClosedAt(toClose < 0 ? null : CREATED_AT.plusSeconds(toClose));
+        issue.setLabels(List.of(label));
+        issue.setAuthor(user(id + "-author"));
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < toComments.length; i++) {
+            Comment comment = new Comment();
+            comment.setId(id + "-comment-" + i);
+            comment.setBody("Thanks!");
+            comment.setAuthor(user(id + "-commenter-" + i));
+            comment.setCreatedAt(CREATED_AT.plusSeconds(toComments[i]));
+            comments.add(comment);
+        }
+        issue.setComments(comments);
+        return issue;
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+}
@@ -0,0 +1,106 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.repository.LabelRepository;
+import aiss.gitminer.service.FetchPlanService;
+import aiss.gitminer.service.LabelDictionary;
+import aiss.gitminer.service.ProjectService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A pool of two connections, so a writer that needed a second one for its new labels would time out
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=2000" })
+class LabelDictionaryTests {
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    FetchPlanService fetchPlanService;
+
+    @Autowired
+    LabelDictionary labelDictionary;
+
+    @Autowired
+    LabelRepository labelRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void writersAddingLabelsNeedOneConnectionEach() throws Exception {
+        int writers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                String id = "labels-" + w;
+                // Every writer brings a label of its own and one they all share
+                futures.add(executor.submit(() -> projectService.create(project(id, List.of(id, "shared")))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int w = 0; w < writers; w++) {
+            Project project = fetchPlanService.findProject("labels-" + w).orElseThrow();
+            assertEquals(List.of("labels-" + w, "shared"), project.getIssues().get(0).getLabels());
+        }
+        assertEquals(1, labelRepository.findAll().stream().filter(label -> label.getName().equals("shared")).count());
+    }
+
+    @Test
+    void labelsOfARolledBackWriteAreNotKept() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            labelDictionary.internAll(project("rolled-back", List.of("rolled-back")).getIssues());
+            assertTrue(labelDictionary.find("rolled-back").isPresent());
+            status.setRollbackOnly();
+        });
+
+        assertTrue(labelDictionary.find("rolled-back").isEmpty());
+        assertTrue(labelRepository.findByName("rolled-back").isEmpty());
+
+        projectService.create(project("relabelled", List.of("rolled-back")));
+        assertEquals(List.of("rolled-back"), fetchPlanService.findProject("relabelled").orElseThrow().getIssues().get(0).getLabels());
+    }
+
+    private static Project project(String id, List<String> labels) {
+        Project project = new Project(id, "https://example.org/" + id);
+        project.setId(id);
+        Issue issue = new Issue();
+        issue.setId(id + "-issue");
+        issue.setTitle("Issue");
+        issue.setState("open");
+        issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+        issue.setLabels(labels);
+        User author = new User();
+        author.setId(id + "-author");
+        author.setUsername(id + "-author");
+        author.setWebUrl("https://example.org/" + id + "-author");
+        issue.setAuthor(author);
+        project.setCommits(new ArrayList<>());
+        project.setIssues(new ArrayList<>(List.of(issue)));
+        return project;
+    }
+}
@@ -0,0 +1,113 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.histogram.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static aiss.gitminer.histogram.LatencyHistogram.RELATIVE_ACCURACY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTests {
+
+    @Test
+    void everyDurationFallsInABucketWithinTheAccuracy() {
+        for (long seconds = 1; seconds < 4_000_000_000L; seconds = seconds * 3 / 2 + 1) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.add(seconds);
+            assertWithinAccuracy(seconds, histogram.quantile(0.5));
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.add(0);
+        assertEquals(0, histogram.quantile(0.5));
+    }
+
+    @Test
+    void quantilesAreWithinTheAccuracyOfTheExactOnes() {
+        Random random = new Random(42);
+        long[] durations = new long[10_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < durations.length; i++) {
+            // From seconds to about a year, spread evenly over the orders of magnitude
+            durations[i] = (long) Math.exp(random.nextDouble() * Math.log(3e7));
+            histogram.add(durations[i]);
+        }
+        Arrays.sort(durations);
+
+        for (double fraction : new double[] { 0, 0.1, 0.5, 0.9, 0.99, 1 }) {
+            long exact = durations[(int) Math.floor(fraction * (durations.length - 1))];
+            assertWithinAccuracy(exact, histogram.quantile(fraction));
+        }
+        assertEquals(Arrays.stream(durations).average().orElseThrow(), histogram.mean(), 1e-6);
+    }
+
+    @Test
+    void removingWhatWasAddedLeavesTheOtherDurations() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.add(60);
+        histogram.add(3_600);
+        histogram.add(86_400);
+        histogram.remove(86_400);
+        histogram.remove(60);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(3_600.0, histogram.mean());
+        assertWithinAccuracy(3_600, histogram.quantile(0));
+        assertWithinAccuracy(3_600, histogram.quantile(1));
+
+        histogram.remove(3_600);
+        assertTrue(histogram.isEmpty());
+        assertNull(histogram.mean());
+        assertNull(histogram.quantile(0.5));
+    }
+
+    @Test
+    void mergedHistogramsCountLikeOne() {
+        LatencyHistogram low = new LatencyHistogram();
+        LatencyHistogram high = new LatencyHistogram();
+        LatencyHistogram both = new LatencyHistogram();
+        for (long seconds = 1; seconds <= 1_000; seconds++) {
+            low.add(seconds);
+            both.add(seconds);
+        }
+        for (long seconds = 1_000_000; seconds <= 1_001_000; seconds++) {
+            high.add(seconds);
+            both.add(seconds);
+        }
+
+        // Merged into the histogram with the lower buckets and into the one with the higher ones
+        LatencyHistogram intoLow = new LatencyHistogram();
+        intoLow.merge(low);
+        intoLow.merge(high);
+        LatencyHistogram intoHigh = new LatencyHistogram();
+        intoHigh.merge(high);
+        intoHigh.merge(low);
+
+        for (LatencyHistogram merged : new LatencyHistogram[] { intoLow, intoHigh }) {
+            assertEquals(both.getCount(), merged.getCount());
+            assertEquals(both.mean(), merged.mean());
+            for (double fraction : new double[] { 0, 0.25, 0.5, 0.75, 1 }) {
+                assertEquals(both.quantile(fraction), merged.quantile(fraction));
+            }
+        }
+        assertEquals(1_000, low.getCount());
+    }
+
+    @Test
+    void emptyHistogramHasNoQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.merge(new LatencyHistogram());
+
+        assertTrue(histogram.isEmpty());
+        assertNull(histogram.quantile(0.99));
+    }
+
+    // Quantiles are whole seconds, so they may also be off by the rounding
+    static void assertWithinAccuracy(long expected, Long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected * RELATIVE_ACCURACY + 0.5,
+                "expected " + expected + " within " + RELATIVE_ACCURACY + ", was " + actual);
+    }
+}
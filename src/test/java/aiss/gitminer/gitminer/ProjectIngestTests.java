@@ -0,0 +1,84 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.repository.ProjectRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "gitminer.ingest.chunk-size=2")
+@AutoConfigureMockMvc
+class ProjectIngestTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    @Test
+    void truncatedDocumentLeavesNothingBehind() throws Exception {
+        String document = document("truncated");
+        // Cut inside the last issue, after several chunks have been flushed
+        String truncated = document.substring(0, document.lastIndexOf("\"title\""));
+
+        mockMvc.perform(post("/gitminer/projects/ingest").contentType(MediaType.APPLICATION_JSON).content(truncated))
+                .andExpect(status().isBadRequest());
+
+        assertFalse(projectRepository.existsById("truncated"));
+        assertEquals(List.of(), commitRepository.findExistingIds(List.of("truncated-commit-0", "truncated-commit-5")));
+        assertEquals(List.of(), issueRepository.findExistingIds(List.of("truncated-issue-0", "truncated-issue-3")));
+        assertEquals(List.of(), commentRepository.findExistingIds(List.of("truncated-comment-0")));
+    }
+
+    @Test
+    void completeDocumentIsIngested() throws Exception {
+        mockMvc.perform(post("/gitminer/projects/ingest").contentType(MediaType.APPLICATION_JSON).content(document("complete")))
+                .andExpect(status().isCreated());
+
+        assertEquals(6, commitRepository.findIdsByProjectId("complete").size());
+        assertEquals(4, issueRepository.findIdsByProjectId("complete").size());
+    }
+
+    private static String document(String id) {
+        StringBuilder json = new StringBuilder("{\"id\":\"" + id + "\",\"name\":\"" + id + "\",\"web_url\":\"https://example.org/" + id + "\",\"commits\":[");
+        for (int i = 0; i < 6; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"id\":\"").append(id).append("-commit-").append(i)
+                    .append("\",\"title\":\"Commit ").append(i)
+                    .append("\",\"author_name\":\"author\",\"authored_date\":\"2023-01-25T13:06:19Z\",\"web_url\":\"https://example.org/c\"}");
+        }
+        json.append("],\"issues\":[");
+        for (int i = 0; i < 4; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"id\":\"").append(id).append("-issue-").append(i)
+                    .append("\",\"title\":\"Issue ").append(i)
+                    .append("\",\"state\":\"open\",\"created_at\":\"2023-01-25T11:35:30Z\",\"labels\":[\"bug\"]")
+                    .append(",\"author\":{\"id\":\"user-1\",\"username\":\"user-1\",\"web_url\":\"https://example.org/user-1\"}")
+                    .append(",\"comments\":[{\"id\":\"").append(id).append("-comment-").append(i)
+                    .append("\",\"body\":\"Thanks!\",\"author\":{\"id\":\"user-2\",\"username\":\"user-2\",\"web_url\":\"https://example.org/user-2\"},\"created_at\":\"2023-01-25T12:00:00Z\"}]}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,121 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.repository.ProjectRepository;
+import aiss.gitminer.service.FetchPlanService;
+import aiss.gitminer.service.LabelDictionary;
+import aiss.gitminer.service.ProjectService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ProjectInsertPathTests {
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    FetchPlanService fetchPlanService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    LabelDictionary labelDictionary;
+
+    @Test
+    void firstIngestHalvesStatementCount() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Project merged = project("merged");
+        labelDictionary.internAll(merged.getIssues());
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status -> projectRepository.save(merged));
+        long mergeStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        projectService.create(project("inserted"));
+        long insertStatements = statistics.getPrepareStatementCount();
+
+        assertTrue(insertStatements * 2 <= mergeStatements,
+                "insert path used " + insertStatements + " statements, merge path " + mergeStatements);
+        assertEquals(40, fetchPlanService.findProject("inserted").orElseThrow().getCommits().size());
+    }
+
+    @Test
+    void repostKeepsUpsertSemantics() throws Exception {
+        projectService.create(project("reposted"));
+        Project again = project("reposted");
+        again.setName("renamed");
+        projectService.create(again);
+
+        Project stored = fetchPlanService.findProject("reposted").orElseThrow();
+        assertEquals("renamed", stored.getName());
+        assertEquals(10, stored.getIssues().size());
+    }
+
+    private static Project project(String id) {
+        Project project = new Project(id, "https://example.org/" + id);
+        project.setId(id);
+        List<Commit> commits = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Commit commit = new Commit();
+            commit.setId(id + "-commit-" + i);
+            commit.setTitle("Commit " + i);
+            commit.setAuthorName("author");
+            commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+            commit.setWebUrl("https://example.org/" + id + "/commit/" + i);
+            commits.add(commit);
+        }
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Issue issue = new Issue();
+            issue.setId(id + "-issue-" + i);
+            issue.setTitle("Issue " + i);
+            issue.setState("open");
+            issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+            issue.setLabels(List.of("bug"));
+            issue.setAuthor(user("user-" + (i % 3)));
+            Comment comment = new Comment();
+            comment.setId(id + "-comment-" + i);
+            comment.setBody("Thanks!");
+            comment.setAuthor(user("user-" + (i % 2)));
+            comment.setCreatedAt(Instant.parse("2023-01-25T12:00:00Z"));
+            issue.setComments(new ArrayList<>(List.of(comment)));
+            issues.add(issue);
+        }
+        project.setCommits(commits);
+        project.setIssues(issues);
+        return project;
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+}
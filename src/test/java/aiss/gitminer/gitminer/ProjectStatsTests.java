@@ -0,0 +1,184 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.dto.ProjectSyncRequest;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /gitminer/projects/{id}/stats after every kind of write: the counters must always match the
+// figures of the rows the project holds at that point
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProjectStatsTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    void figuresFollowIngestDeleteAndSync() throws Exception {
+        String id = "stats";
+        mockMvc.perform(post("/gitminer/projects/ingest").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(project(id))))
+                .andExpect(status().isCreated());
+        Map<String, Object> ingested = stats(id);
+        assertFigures(Map.of("project_id", id, "commits", 3, "authors", 2, "commits_by_author", Map.of("alice", 2, "bob", 1),
+                "issues", 2, "issues_by_state", Map.of("closed", 1, "open", 1), "votes", 3, "voted_issues", 1, "comments", 3), ingested);
+
+        // Bob's commit goes to Alice, and the open issue is closed with two more votes and another comment
+        ProjectSyncRequest delta = new ProjectSyncRequest();
+        delta.setCommits(List.of(commit(id, 2, "alice")));
+        Issue closed = issue(id, 0, "closed", 5, 3);
+        delta.setIssues(List.of(closed));
+        mockMvc.perform(patch("/gitminer/projects/" + id + "/sync").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(delta)))
+                .andExpect(status().isOk());
+        Map<String, Object> synced = stats(id);
+        assertFigures(Map.of("project_id", id, "commits", 3, "authors", 1, "commits_by_author", Map.of("alice", 3),
+                "issues", 2, "issues_by_state", Map.of("closed", 2), "votes", 5, "voted_issues", 1, "comments", 4), synced);
+        assertTrue(seq(synced) > seq(ingested));
+
+        mockMvc.perform(delete("/gitminer/projects/" + id)).andExpect(status().isNoContent());
+        mockMvc.perform(get("/gitminer/projects/" + id + "/stats")).andExpect(status().isNotFound());
+
+        // Sent again in full, the project counts exactly what it did after the ingest
+        mockMvc.perform(post("/gitminer/projects").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(project(id))))
+                .andExpect(status().isCreated());
+        assertEquals(withoutSeq(ingested), withoutSeq(stats(id)));
+        mockMvc.perform(patch("/gitminer/projects/" + id + "/sync").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(delta)))
+                .andExpect(status().isOk());
+        assertEquals(withoutSeq(synced), withoutSeq(stats(id)));
+    }
+
+    @Test
+    void rowsSentByAnotherProjectCountForIt() throws Exception {
+        String id = "stats-origin";
+        mockMvc.perform(post("/gitminer/projects").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(project(id))))
+                .andExpect(status().isCreated());
+
+        // A fork sends one commit and the open issue of the first project, which move to it with its comments
+        Project fork = new Project("stats-fork", "https://example.org/stats-fork");
+        fork.setId("stats-fork");
+        fork.setCommits(new ArrayList<>(List.of(commit(id, 0, "alice"))));
+        fork.setIssues(new ArrayList<>(List.of(issue(id, 0, "open", 3, 2))));
+        mockMvc.perform(post("/gitminer/projects").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(fork)))
+                .andExpect(status().isCreated());
+
+        assertFigures(Map.of("project_id", id, "commits", 2, "authors", 2, "commits_by_author", Map.of("alice", 1, "bob", 1),
+                "issues", 1, "issues_by_state", Map.of("closed", 1), "votes", 0, "voted_issues", 0, "comments", 1), stats(id));
+        assertFigures(Map.of("project_id", "stats-fork", "commits", 1, "authors", 1, "commits_by_author", Map.of("alice", 1),
+                "issues", 1, "issues_by_state", Map.of("open", 1), "votes", 3, "voted_issues", 1, "comments", 2), stats("stats-fork"));
+
+        // Re-posted without them, the fork leaves them without a project: they count nowhere
+        fork.setCommits(new ArrayList<>());
+        fork.setIssues(new ArrayList<>());
+        mockMvc.perform(post("/gitminer/projects").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(fork)))
+                .andExpect(status().isCreated());
+        assertFigures(Map.of("project_id", "stats-fork", "commits", 0, "authors", 0, "commits_by_author", Map.of(),
+                "issues", 0, "issues_by_state", Map.of(), "votes", 0, "voted_issues", 0, "comments", 0), stats("stats-fork"));
+        assertEquals(2, stats(id).get("commits"));
+    }
+
+    private Map<String, Object> stats(String id) throws Exception {
+        String body = mockMvc.perform(get("/gitminer/projects/" + id + "/stats")).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, new TypeReference<>() {});
+    }
+
+    // Only the figures that are counted, the averages and open/closed counts derive from them
+    private static void assertFigures(Map<String, Object> expected, Map<String, Object> stats) {
+        expected.forEach((name, figure) -> assertEquals(figure, stats.get(name), name));
+    }
+
+    private static Map<String, Object> withoutSeq(Map<String, Object> stats) {
+        Map<String, Object> figures = new HashMap<>(stats);
+        figures.remove("seq");
+        return figures;
+    }
+
+    private static long seq(Map<String, Object> stats) {
+        return ((Number) stats.get("seq")).longValue();
+    }
+
+    // Three commits, two by Alice; an open issue with three votes and two comments, and a closed one
+    // without votes and with one comment
+    private static Project project(String id) {
+        Project project = new Project(id, "https://example.org/" + id);
+        project.setId(id);
+        project.setCommits(new ArrayList<>(List.of(commit(id, 0, "alice"), commit(id, 1, "alice"), commit(id, 2, "bob"))));
+        project.setIssues(new ArrayList<>(List.of(issue(id, 0, "open", 3, 2), issue(id, 1, "closed", null, 1))));
+        return project;
+    }
+
+    private static Commit commit(String id, int i, String author) {
+        Commit commit = new Commit();
+        commit.setId(id + "-commit-" + i);
+        commit.setTitle("Commit " + i);
+        commit.setAuthorName(author);
+        commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+        commit.setWebUrl("https://example.org/" + id + "/commit/" + i);
+        return commit;
+    }
+
+    private static Issue issue(String id, int i, String state, Integer votes, int comments) {
+        Issue issue = new Issue();
+        issue.setId(id + "-issue-" + i);
+        issue.setTitle("Issue " + i);
+        issue.setState(state);
+        issue.setVotes(votes);
+        issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+        issue.setLabels(List.of("bug"));
+        // Users of their own: deleting a project removes the authors of its issues and comments
+        issue.setAuthor(user(issue.getId() + "-author"));
+        List<Comment> list = new ArrayList<>();
+        for (int c = 0; c < comments; c++) {
+            Comment comment = new Comment();
+            comment.setId(issue.getId() + "-comment-" + c);
+            comment.setBody("Comment " + c);
+            comment.setAuthor(user(comment.getId() + "-author"));
+            comment.setCreatedAt(Instant.parse("2023-01-25T12:00:00Z"));
+            list.add(comment);
+        }
+        issue.setComments(list);
+        return issue;
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+}
@@ -0,0 +1,273 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.dto.BulkImportReport;
+import aiss.gitminer.dto.ProjectSyncRequest;
+import aiss.gitminer.dto.SyncReport;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.repository.UserRepository;
+import aiss.gitminer.service.FetchPlanService;
+import aiss.gitminer.service.ProjectBulkImportService;
+import aiss.gitminer.service.ProjectService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ProjectSyncTests {
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    ProjectBulkImportService bulkImportService;
+
+    @Autowired
+    FetchPlanService fetchPlanService;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void syncInsertsUpdatesAndSkipsUnchangedRows() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        projectService.create(project("synced", 40, 10));
+
+        statistics.clear();
+        SyncReport report = projectService.sync("synced", delta("synced"));
+        assertCounts(1, 1, 1, report.getCommits());
+        assertCounts(0, 1, 1, report.getIssues());
+        assertCounts(1, 0, 2, report.getComments());
+        // One new commit and comment, one changed commit and issue; nothing else is written
+        assertEquals(2, statistics.getEntityInsertCount());
+        assertEquals(2, statistics.getEntityUpdateCount());
+
+        statistics.clear();
+        report = projectService.sync("synced", delta("synced"));
+        assertCounts(0, 0, 3, report.getCommits());
+        assertCounts(0, 0, 2, report.getIssues());
+        assertCounts(0, 0, 3, report.getComments());
+        assertEquals(0, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+        assertEquals(0, statistics.getCollectionUpdateCount() + statistics.getCollectionRecreateCount());
+
+        Project stored = fetchPlanService.findProject("synced").orElseThrow();
+        assertEquals(41, stored.getCommits().size());
+        assertEquals("Changed commit", commitRepository.findById("synced-commit-0").orElseThrow().getTitle());
+        assertEquals("Changed issue", issueRepository.findById("synced-issue-0").orElseThrow().getTitle());
+    }
+
+    @Test
+    void syncCostsTheSameWhateverTheSizeOfTheProject() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        projectService.create(project("small", 10, 2));
+        projectService.create(project("large", 400, 80));
+
+        statistics.clear();
+        projectService.sync("small", delta("small"));
+        long smallStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        projectService.sync("large", delta("large"));
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(smallStatements, largeStatements);
+    }
+
+    @Test
+    void repostDetachesChildrenThatAreNotSentAgain() throws Exception {
+        projectService.create(project("detached", 4, 3));
+        Project again = project("detached", 3, 2);
+        again.getIssues().get(1).setComments(new ArrayList<>());
+        projectService.create(again);
+
+        assertEquals(List.of("detached-commit-0", "detached-commit-1", "detached-commit-2"), sorted(commitRepository.findIdsByProjectId("detached")));
+        assertEquals(List.of("detached-issue-0", "detached-issue-1"), sorted(issueRepository.findIdsByProjectId("detached")));
+        assertEquals(List.of("detached-comment-0"), sorted(commentRepository.findIdsByIssueIdIn(List.of("detached-issue-0", "detached-issue-1"))));
+        // Detached rows are kept, only without their owner
+        assertTrue(commitRepository.existsById("detached-commit-3"));
+        assertTrue(issueRepository.existsById("detached-issue-2"));
+        assertTrue(commentRepository.existsById("detached-comment-1"));
+        assertEquals(List.of(), commitRepository.findProjectIds(List.of("detached-commit-3")));
+        assertEquals(List.of(), issueRepository.findProjectIds(List.of("detached-issue-2")));
+    }
+
+    @Test
+    void repostReattachesChildrenDetachedOrTakenBefore() throws Exception {
+        projectService.create(project("reattached", 4, 3));
+        Project fewer = project("reattached", 3, 2);
+        fewer.getIssues().get(1).setComments(new ArrayList<>());
+        projectService.create(fewer);
+        // A new project that sends a stored commit takes it over
+        Project other = project("reattached-other", 0, 0);
+        other.getCommits().add(commit("reattached", "0"));
+        projectService.create(other);
+        assertEquals(List.of("reattached-commit-0"), commitRepository.findIdsByProjectId("reattached-other"));
+
+        projectService.create(project("reattached", 4, 3));
+
+        assertEquals(List.of("reattached-commit-0", "reattached-commit-1", "reattached-commit-2", "reattached-commit-3"), sorted(commitRepository.findIdsByProjectId("reattached")));
+        assertEquals(List.of(), commitRepository.findIdsByProjectId("reattached-other"));
+        assertEquals(List.of("reattached-issue-0", "reattached-issue-1", "reattached-issue-2"), sorted(issueRepository.findIdsByProjectId("reattached")));
+        assertEquals(List.of("reattached-comment-0", "reattached-comment-1", "reattached-comment-2"),
+                sorted(commentRepository.findIdsByIssueIdIn(List.of("reattached-issue-0", "reattached-issue-1", "reattached-issue-2"))));
+        Project stored = fetchPlanService.findProject("reattached").orElseThrow();
+        assertEquals(4, stored.getCommits().size());
+        assertEquals(3, stored.getIssues().size());
+    }
+
+    @Test
+    void concurrentBulkImportsShareUsers() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<BulkImportReport>> imports = new ArrayList<>();
+        for (String batch : List.of("bulk-a", "bulk-b")) {
+            imports.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                    return bulkImportService.importAll(new ByteArrayInputStream(ndjson(batch, 4).getBytes(StandardCharsets.UTF_8)));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        start.countDown();
+
+        for (CompletableFuture<BulkImportReport> bulk : imports) {
+            BulkImportReport report = bulk.get();
+            assertEquals(4, report.getSucceeded(), () -> report.getProjects().stream()
+                    .map(BulkImportReport.ProjectResult::getError).collect(Collectors.joining("; ")));
+            assertEquals(0, report.getFailed());
+        }
+        for (String batch : List.of("bulk-a", "bulk-b")) {
+            for (int p = 0; p < 4; p++) {
+                assertEquals(3, issueRepository.findIdsByProjectId(batch + "-" + p).size());
+            }
+        }
+        assertTrue(userRepository.existsById("shared-user"));
+    }
+
+    private static void assertCounts(long inserted, long updated, long unchanged, SyncReport.Counts counts) {
+        assertEquals(List.of(inserted, updated, unchanged), List.of(counts.getInserted(), counts.getUpdated(), counts.getUnchanged()));
+    }
+
+    private static List<String> sorted(List<String> ids) {
+        return ids.stream().sorted().collect(Collectors.toList());
+    }
+
+    // One new commit, one changed and one unchanged; one changed issue and one unchanged issue, which
+    // brings a new comment along with its stored one
+    private static ProjectSyncRequest delta(String id) {
+        Project sent = project(id, 2, 2);
+        sent.getCommits().get(0).setTitle("Changed commit");
+        sent.getCommits().add(commit(id, "new"));
+        sent.getIssues().get(0).setTitle("Changed issue");
+        sent.getIssues().get(1).getComments().add(comment(id, "new", "user-0"));
+        ProjectSyncRequest delta = new ProjectSyncRequest();
+        delta.setCommits(sent.getCommits());
+        delta.setIssues(sent.getIssues());
+        return delta;
+    }
+
+    private static Project project(String id, int commitCount, int issueCount) {
+        Project project = new Project(id, "https://example.org/" + id);
+        project.setId(id);
+        List<Commit> commits = new ArrayList<>();
+        for (int i = 0; i < commitCount; i++) {
+            commits.add(commit(id, String.valueOf(i)));
+        }
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < issueCount; i++) {
+            Issue issue = new Issue();
+            issue.setId(id + "-issue-" + i);
+            issue.setTitle("Issue " + i);
+            issue.setState("open");
+            issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+            issue.setLabels(List.of("bug"));
+            issue.setAuthor(user("user-" + (i % 3)));
+            issue.setComments(new ArrayList<>(List.of(comment(id, String.valueOf(i), "user-" + (i % 2)))));
+            issues.add(issue);
+        }
+        project.setCommits(commits);
+        project.setIssues(issues);
+        return project;
+    }
+
+    private static Commit commit(String projectId, String suffix) {
+        Commit commit = new Commit();
+        commit.setId(projectId + "-commit-" + suffix);
+        commit.setTitle("Commit " + suffix);
+        commit.setAuthorName("author");
+        commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+        commit.setWebUrl("https://example.org/" + projectId + "/commit/" + suffix);
+        return commit;
+    }
+
+    private static Comment comment(String projectId, String suffix, String authorId) {
+        Comment comment = new Comment();
+        comment.setId(projectId + "-comment-" + suffix);
+        comment.setBody("Thanks!");
+        comment.setAuthor(user(authorId));
+        comment.setCreatedAt(Instant.parse("2023-01-25T12:00:00Z"));
+        return comment;
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+
+    // Projects whose issues are all written by the same user, and commented on by a user of their own
+    private static String ndjson(String batch, int projects) {
+        StringBuilder json = new StringBuilder();
+        for (int p = 0; p < projects; p++) {
+            String id = batch + "-" + p;
+            json.append("{\"id\":\"").append(id).append("\",\"name\":\"").append(id).append("\",\"web_url\":\"https://example.org/").append(id).append("\",\"commits\":[],\"issues\":[");
+            for (int i = 0; i < 3; i++) {
+                json.append(i == 0 ? "" : ",")
+                        .append("{\"id\":\"").append(id).append("-issue-").append(i)
+                        .append("\",\"title\":\"Issue\",\"state\":\"open\",\"created_at\":\"2023-01-25T11:35:30Z\",\"labels\":[]")
+                        .append(",\"author\":{\"id\":\"shared-user\",\"username\":\"shared\",\"web_url\":\"https://example.org/shared\"}")
+                        .append(",\"comments\":[{\"id\":\"").append(id).append("-comment-").append(i)
+                        .append("\",\"body\":\"Thanks!\",\"author\":{\"id\":\"").append(id).append("-commenter\",\"username\":\"c\",\"web_url\":\"https://example.org/c\"},\"created_at\":\"2023-01-25T12:00:00Z\"}]}");
+            }
+            json.append("]}\n");
+        }
+        return json.toString();
+    }
+}
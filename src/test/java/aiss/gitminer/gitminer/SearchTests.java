@@ -0,0 +1,172 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.pagination.KeysetPage;
+import aiss.gitminer.service.ProjectService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /gitminer/search: ranking, filters and cursor paging over one project of its own
+@SpringBootTest
+@AutoConfigureMockMvc
+class SearchTests {
+
+    private static final String PROJECT = "search-ranked";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ProjectService projectService;
+
+    @BeforeEach
+    void createProject() throws Exception {
+        Project project = new Project(PROJECT, "https://example.org/" + PROJECT);
+        project.setId(PROJECT);
+        Commit commit = new Commit();
+        commit.setId(PROJECT + "-commit");
+        commit.setTitle("Fix timeout");
+        commit.setMessage("Avoids the deadlock when the pool is empty");
+        commit.setAuthorName("author");
+        commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+        commit.setWebUrl("https://example.org/" + PROJECT + "/commit");
+        project.setCommits(new ArrayList<>(List.of(commit)));
+
+        Issue inTitle = issue("in-title", "Deadlock in the scheduler", "Workers hang");
+        Issue inText = issue("in-text", "Workers hang", "A deadlock between two workers");
+        Comment comment = new Comment();
+        comment.setId(PROJECT + "-comment");
+        comment.setBody("Same deadlock here");
+        comment.setAuthor(user(PROJECT + "-commenter"));
+        comment.setCreatedAt(Instant.parse("2023-01-25T12:00:00Z"));
+        inText.setComments(new ArrayList<>(List.of(comment)));
+        project.setIssues(new ArrayList<>(List.of(inTitle, inText, issue("unrelated", "Typo in README", "Nothing to see"))));
+        projectService.create(project);
+    }
+
+    @Test
+    void titleMatchesRankFirst() throws Exception {
+        List<Map<String, Object>> hits = search("deadlock", null, 10).hits;
+
+        assertEquals(List.of("issue:" + PROJECT + "-in-title"), keys(hits.subList(0, 1)));
+        assertEquals(4, hits.size());
+        assertTrue(keys(hits).containsAll(List.of("issue:" + PROJECT + "-in-text", "commit:" + PROJECT + "-commit", "comment:" + PROJECT + "-comment")));
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(score(hits.get(i - 1)) >= score(hits.get(i)));
+        }
+    }
+
+    @Test
+    void filtersAndPhrasesNarrowTheMatches() throws Exception {
+        assertEquals(List.of("commit:" + PROJECT + "-commit"), keys(search("deadlock", "commit", 10).hits));
+        assertEquals(List.of("issue:" + PROJECT + "-in-text"), keys(search("\"deadlock between\"", null, 10).hits));
+        assertEquals(List.of(), keys(search("deadlock scheduler README", null, 10).hits));
+    }
+
+    @Test
+    void cursorWalksTheRankingOneHitAtATime() throws Exception {
+        List<String> ranking = keys(search("deadlock", null, 10).hits);
+
+        List<String> walked = new ArrayList<>();
+        String after = null;
+        do {
+            Page page = search("deadlock", null, 1, after);
+            walked.addAll(keys(page.hits));
+            if (walked.size() < ranking.size()) {
+                assertNotNull(page.next);
+            }
+            after = page.next;
+        } while (after != null);
+
+        assertEquals(ranking, walked);
+    }
+
+    @Test
+    void unknownTypeIsRejected() throws Exception {
+        mockMvc.perform(get("/gitminer/search").param("q", "deadlock").param("type", "wiki"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/gitminer/search").param("q", "deadlock").param("after", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Page search(String q, String type, int limit) throws Exception {
+        Page page = search(q, type, limit, null);
+        assertNull(page.next);
+        return page;
+    }
+
+    private Page search(String q, String type, int limit, String after) throws Exception {
+        var request = get("/gitminer/search").param("q", q).param("projectId", PROJECT).param("limit", String.valueOf(limit));
+        if (type != null) {
+            request.param("type", type);
+        }
+        if (after != null) {
+            request.param("after", after);
+        }
+        MockHttpServletResponse response = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse();
+        Page page = new Page();
+        page.hits = objectMapper.readValue(response.getContentAsString(), new TypeReference<>() {});
+        page.next = response.getHeader(KeysetPage.NEXT_CURSOR_HEADER);
+        return page;
+    }
+
+    private static List<String> keys(List<Map<String, Object>> hits) {
+        return hits.stream().map(hit -> hit.get("type") + ":" + hit.get("id")).collect(Collectors.toList());
+    }
+
+    private static double score(Map<String, Object> hit) {
+        return ((Number) hit.get("score")).doubleValue();
+    }
+
+    private static class Page {
+        List<Map<String, Object>> hits;
+        String next;
+    }
+
+    private static Issue issue(String id, String title, String description) {
+        Issue issue = new Issue();
+        issue.setId(PROJECT + "-" + id);
+        issue.setTitle(title);
+        issue.setDescription(description);
+        issue.setState("open");
+        issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+        issue.setLabels(List.of("bug"));
+        issue.setAuthor(user(PROJECT + "-author"));
+        return issue;
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+}
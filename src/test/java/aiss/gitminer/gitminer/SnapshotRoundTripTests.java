@@ -0,0 +1,189 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.exception.RestoreInProgressException;
+import aiss.gitminer.model.Change;
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.repository.ProjectRepository;
+import aiss.gitminer.service.ChangeLogService;
+import aiss.gitminer.service.DatasetLock;
+import aiss.gitminer.service.FetchPlanService;
+import aiss.gitminer.service.LabelIndexService;
+import aiss.gitminer.service.ProjectService;
+import aiss.gitminer.service.SnapshotService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A restore replaces the whole database, so these tests get one of their own
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:snapshot-tests")
+class SnapshotRoundTripTests {
+
+    @Autowired
+    SnapshotService snapshotService;
+
+    @Autowired
+    DatasetLock datasetLock;
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    FetchPlanService fetchPlanService;
+
+    @Autowired
+    LabelIndexService labelIndexService;
+
+    @Autowired
+    ChangeLogService changeLogService;
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    CommitRepository commitRepository;
+
+    @Autowired
+    IssueRepository issueRepository;
+
+    @Autowired
+    CommentRepository commentRepository;
+
+    @Test
+    void restoreBringsBackTheSnapshottedState(@TempDir Path dir) throws Exception {
+        projectService.create(project("kept", "bug"));
+        Path file = dir.resolve("gitminer.snapshot");
+        long rows = snapshotService.snapshot(file);
+
+        Project renamed = project("kept", "feature");
+        renamed.setName("renamed");
+        projectService.create(renamed);
+        projectService.create(project("later", "bug"));
+
+        snapshotService.restore(file);
+
+        assertTrue(rows > 0);
+        assertFalse(projectRepository.existsById("later"));
+        assertEquals(List.of(), commitRepository.findIdsByProjectId("later"));
+        assertEquals(List.of(), issueRepository.findIdsByProjectId("later"));
+        assertEquals(List.of(), commentRepository.findExistingIds(List.of("later-comment-0")));
+
+        Project restored = fetchPlanService.findProject("kept").orElseThrow();
+        assertEquals("kept", restored.getName());
+        assertEquals(3, restored.getCommits().size());
+        assertEquals(2, restored.getIssues().size());
+        assertEquals(List.of("bug"), restored.getIssues().get(0).getLabels());
+        assertEquals(2, labelIndexService.findIssueIds(List.of("bug"), false, null, "kept", null, 10).getCount());
+        assertEquals(0, labelIndexService.findIssueIds(List.of("feature"), false, null, "kept", null, 10).getCount());
+        assertEquals(0, labelIndexService.findIssueIds(List.of("bug"), false, null, "later", null, 10).getCount());
+    }
+
+    @Test
+    void restoreIsFollowedByAResetRecord(@TempDir Path dir) throws Exception {
+        projectService.create(project("reset-before", "bug"));
+        Path file = dir.resolve("gitminer.snapshot");
+        snapshotService.snapshot(file);
+        projectService.create(project("reset-after", "bug"));
+        long beforeRestore = changeLogService.lastSeq();
+
+        snapshotService.restore(file);
+
+        // Numbered on from the records written before, which a restore leaves in place
+        List<Change> changes = changeLogService.findAfter(beforeRestore, PageRequest.of(0, 10));
+        assertEquals(1, changes.size());
+        assertEquals(Change.RESET, changes.get(0).getOperation());
+        assertEquals("dataset", changes.get(0).getEntity());
+        assertEquals(beforeRestore + 1, changes.get(0).getSeq());
+
+        projectService.create(project("reset-later", "bug"));
+        assertEquals("project", changeLogService.findAfter(beforeRestore + 1, PageRequest.of(0, 10)).get(0).getEntity());
+    }
+
+    @Test
+    void writesAreRefusedWhileARestoreRuns() throws Exception {
+        datasetLock.lockRestore();
+        try {
+            // From another thread, as the one restoring may write
+            CompletableFuture<Project> write = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return projectService.create(project("refused", "bug"));
+                } catch (RestoreInProgressException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            ExecutionException refused = assertThrows(ExecutionException.class, write::get);
+            assertInstanceOf(RestoreInProgressException.class, refused.getCause());
+        } finally {
+            datasetLock.unlockRestore();
+        }
+        assertFalse(projectRepository.existsById("refused"));
+
+        projectService.create(project("accepted", "bug"));
+        assertTrue(projectRepository.existsById("accepted"));
+    }
+
+    private static Project project(String id, String label) {
+        Project project = new Project(id, "https://example.org/" + id);
+        project.setId(id);
+        List<Commit> commits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Commit commit = new Commit();
+            commit.setId(id + "-commit-" + i);
+            commit.setTitle("Commit " + i);
+            commit.setAuthorName("author");
+            commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+            commit.setWebUrl("https://example.org/" + id + "/commit/" + i);
+            commits.add(commit);
+        }
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Issue issue = new Issue();
+            issue.setId(id + "-issue-" + i);
+            issue.setTitle("Issue " + i);
+            issue.setState("open");
+            issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+            issue.setLabels(List.of(label));
+            issue.setAuthor(user(id + "-author"));
+            Comment comment = new Comment();
+            comment.setId(id + "-comment-" + i);
+            comment.setBody("Thanks!");
+            comment.setAuthor(user(id + "-commenter"));
+            comment.setCreatedAt(Instant.parse("2023-01-25T12:00:00Z"));
+            issue.setComments(new ArrayList<>(List.of(comment)));
+            issues.add(issue);
+        }
+        project.setCommits(commits);
+        project.setIssues(issues);
+        return project;
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+}
@@ -0,0 +1,147 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.model.Comment;
+import aiss.gitminer.model.Commit;
+import aiss.gitminer.model.Issue;
+import aiss.gitminer.model.Project;
+import aiss.gitminer.model.User;
+import aiss.gitminer.service.ProjectService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// ?fields= and ?include= return only what they select, and Hibernate statistics show that nothing
+// else is read: no entity is loaded, and no query names an association that was not asked for
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class SparseFieldTests {
+
+    private static final String ID = "sparse";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ProjectService projectService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void createProject() throws Exception {
+        Project project = new Project(ID, "https://example.org/" + ID);
+        project.setId(ID);
+        Commit commit = new Commit();
+        commit.setId(ID + "-commit");
+        commit.setTitle("Commit");
+        commit.setMessage("A long message");
+        commit.setAuthorName("author");
+        commit.setAuthoredDate(Instant.parse("2023-01-25T13:06:19Z"));
+        commit.setWebUrl("https://example.org/" + ID + "/commit");
+        project.setCommits(new ArrayList<>(List.of(commit)));
+        Issue issue = new Issue();
+        issue.setId(ID + "-issue");
+        issue.setTitle("Issue");
+        issue.setDescription("A long description");
+        issue.setState("open");
+        issue.setCreatedAt(Instant.parse("2023-01-25T11:35:30Z"));
+        issue.setLabels(List.of("bug", "ui"));
+        issue.setAuthor(user(ID + "-author"));
+        issue.setAssignee(user(ID + "-assignee"));
+        Comment comment = new Comment();
+        comment.setId(ID + "-comment");
+        comment.setBody("Thanks!");
+        comment.setAuthor(user(ID + "-commenter"));
+        comment.setCreatedAt(Instant.parse("2023-01-25T12:00:00Z"));
+        issue.setComments(new ArrayList<>(List.of(comment)));
+        project.setIssues(new ArrayList<>(List.of(issue)));
+        projectService.create(project);
+    }
+
+    @Test
+    void projectScalarsReadNoChildren() throws Exception {
+        Statistics statistics = statistics();
+        Map<String, Object> project = read("/gitminer/projects/" + ID + "?fields=id,name");
+
+        assertEquals(Map.of("id", ID, "name", ID), project);
+        assertReadNothingOf(statistics, "Commit", "Issue", "Comment", "User", "labels");
+    }
+
+    @Test
+    void embeddedIssuesReadOnlyTheirSelectedColumns() throws Exception {
+        Statistics statistics = statistics();
+        Map<String, Object> project = read("/gitminer/projects/" + ID + "?fields=id,issues.title");
+
+        assertEquals(Map.of("id", ID, "issues", List.of(Map.of("id", ID + "-issue", "title", "Issue"))), project);
+        assertReadNothingOf(statistics, "Commit", "Comment", "User", "labels", "description");
+    }
+
+    @Test
+    void issueIncludesOnlyWhatIsAskedFor() throws Exception {
+        Statistics statistics = statistics();
+        Map<String, Object> issue = read("/gitminer/issues/" + ID + "-issue?fields=id,title,author.username&include=labels");
+
+        assertEquals(Map.of("id", ID + "-issue", "title", "Issue", "labels", List.of("bug", "ui"),
+                "author", Map.of("id", ID + "-author", "username", ID + "-author")), issue);
+        assertReadNothingOf(statistics, "Comment", "assignee", "description");
+    }
+
+    @Test
+    void unknownFieldIsRejected() throws Exception {
+        mockMvc.perform(get("/gitminer/issues/" + ID + "-issue").param("fields", "id,secret"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/gitminer/issues/" + ID + "-issue").param("include", "project"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private Map<String, Object> read(String uri) throws Exception {
+        String body = mockMvc.perform(get(uri)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, new TypeReference<>() {});
+    }
+
+    private static void assertReadNothingOf(Statistics statistics, String... names) {
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        for (String query : statistics.getQueries()) {
+            for (String name : names) {
+                assertFalse(Arrays.asList(query.split("[^A-Za-z]+")).contains(name), query);
+            }
+        }
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setWebUrl("https://example.org/" + id);
+        return user;
+    }
+}
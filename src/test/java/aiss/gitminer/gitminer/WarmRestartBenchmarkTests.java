@@ -0,0 +1,162 @@
+package aiss.gitminer.gitminer;
+
+import aiss.gitminer.GitMinerApplication;
+import aiss.gitminer.repository.CommentRepository;
+import aiss.gitminer.repository.CommitRepository;
+import aiss.gitminer.repository.IssueRepository;
+import aiss.gitminer.service.ProjectIngestService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Startup cost of the persistent profile: re-ingesting a dataset into an empty store against opening
+// the store it left behind. Slow, so only run on demand:
+//   mvn test -Dtest=WarmRestartBenchmarkTests -Dgitminer.benchmark=true [-Dgitminer.benchmark.entities=1000000]
+@EnabledIfSystemProperty(named = "gitminer.benchmark", matches = "true")
+class WarmRestartBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmRestartBenchmarkTests.class);
+
+    private static final int ENTITIES_PER_PROJECT = 50_000;
+    private static final int USERS = 1_000;
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void warmOpenIsFasterThanColdIngest() throws Exception {
+        long entities = Long.getLong("gitminer.benchmark.entities", 1_000_000);
+        List<Path> projects = generate(dataDir.resolve("input"), entities);
+
+        long coldStart = System.nanoTime();
+        long ingested = 0;
+        long[] coldCounts;
+        try (ConfigurableApplicationContext context = start()) {
+            ProjectIngestService ingestService = context.getBean(ProjectIngestService.class);
+            for (Path project : projects) {
+                try (InputStream in = Files.newInputStream(project)) {
+                    ingested += ingestService.ingest(in).getEntities();
+                }
+            }
+            coldCounts = counts(context);
+        }
+        long coldMillis = (System.nanoTime() - coldStart) / 1_000_000;
+
+        long warmStart = System.nanoTime();
+        long[] warmCounts;
+        try (ConfigurableApplicationContext context = start()) {
+            warmCounts = counts(context);
+        }
+        long warmMillis = (System.nanoTime() - warmStart) / 1_000_000;
+
+        log.info("Cold re-ingest of {} entities: {} ms, warm open: {} ms ({}x)",
+                ingested, coldMillis, warmMillis, String.format("%.1f", (double) coldMillis / Math.max(warmMillis, 1)));
+        assertEquals(coldCounts[0] + coldCounts[1] + coldCounts[2], warmCounts[0] + warmCounts[1] + warmCounts[2]);
+        assertTrue(warmMillis < coldMillis);
+    }
+
+    // Returns once the ApplicationReadyEvent listeners have rebuilt the in-memory indexes. Passed as
+    // arguments: default properties would lose to application-persistent.properties
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(GitMinerApplication.class)
+                .profiles("persistent")
+                .run("--gitminer.data-dir=" + dataDir.resolve("store"),
+                        "--server.port=0",
+                        "--spring.jpa.show-sql=false");
+    }
+
+    private static long[] counts(ConfigurableApplicationContext context) {
+        return new long[] {
+                context.getBean(CommitRepository.class).count(),
+                context.getBean(IssueRepository.class).count(),
+                context.getBean(CommentRepository.class).count()
+        };
+    }
+
+    // Projects of ENTITIES_PER_PROJECT entities, half commits and half issues with one comment each,
+    // written by a shared pool of users
+    private static List<Path> generate(Path dir, long entities) throws IOException {
+        Files.createDirectories(dir);
+        JsonFactory factory = new JsonFactory();
+        List<Path> projects = new ArrayList<>();
+        Instant epoch = Instant.parse("2020-01-01T00:00:00Z");
+        long written = 0;
+        for (int p = 0; written < entities; p++) {
+            long size = Math.min(ENTITIES_PER_PROJECT, entities - written);
+            long commits = size / 2;
+            long issues = (size - commits) / 2;
+            Path file = dir.resolve("project-" + p + ".json");
+            try (JsonGenerator json = factory.createGenerator(Files.newOutputStream(file))) {
+                json.writeStartObject();
+                json.writeStringField("id", "bench-" + p);
+                json.writeStringField("name", "Benchmark " + p);
+                json.writeStringField("web_url", "https://example.org/bench-" + p);
+                json.writeArrayFieldStart("commits");
+                for (long c = 0; c < commits; c++) {
+                    json.writeStartObject();
+                    json.writeStringField("id", String.format("%08x%032x", p, c));
+                    json.writeStringField("title", "Commit " + c);
+                    json.writeStringField("message", "Change number " + c + " of project " + p);
+                    json.writeStringField("author_name", "user" + (c % USERS));
+                    json.writeStringField("authored_date", epoch.plusSeconds(c * 60).toString());
+                    json.writeStringField("web_url", "https://example.org/bench-" + p + "/commit/" + c);
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeArrayFieldStart("issues");
+                for (long i = 0; i < issues; i++) {
+                    json.writeStartObject();
+                    json.writeStringField("id", "bench-" + p + "-issue-" + i);
+                    json.writeStringField("title", "Issue " + i);
+                    json.writeStringField("description", "Something about issue " + i);
+                    json.writeStringField("state", i % 3 == 0 ? "closed" : "opened");
+                    json.writeStringField("created_at", epoch.plusSeconds(i * 300).toString());
+                    json.writeArrayFieldStart("labels");
+                    json.writeString("label-" + (i % 20));
+                    json.writeEndArray();
+                    writeUser(json, "author", i % USERS);
+                    json.writeNumberField("votes", (int) (i % 7));
+                    json.writeArrayFieldStart("comments");
+                    json.writeStartObject();
+                    json.writeStringField("id", "bench-" + p + "-comment-" + i);
+                    json.writeStringField("body", "Comment on issue " + i);
+                    writeUser(json, "author", (i + 1) % USERS);
+                    json.writeStringField("created_at", epoch.plusSeconds(i * 300 + 60).toString());
+                    json.writeEndObject();
+                    json.writeEndArray();
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            projects.add(file);
+            written += size;
+        }
+        return projects;
+    }
+
+    private static void writeUser(JsonGenerator json, String field, long user) throws IOException {
+        json.writeObjectFieldStart(field);
+        json.writeStringField("id", "user" + user);
+        json.writeStringField("username", "user" + user);
+        json.writeStringField("web_url", "https://example.org/user" + user);
+        json.writeEndObject();
+    }
+}